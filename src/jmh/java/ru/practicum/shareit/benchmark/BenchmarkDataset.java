@@ -0,0 +1,142 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.ShareItApp;
+import ru.practicum.shareit.booking.service.ItemBookingSummaryService;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.service.ItemService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+    static final String[] WORDS = {"дрель", "перфоратор", "лестница", "палатка", "велосипед", "самокат",
+            "шуруповерт", "пила", "лодка", "мангал", "проектор", "камера", "штатив", "рюкзак", "генератор"};
+    static final int BATCH_SIZE = 1000;
+
+    @Param("200")
+    public int users;
+    @Param("10")
+    public int itemsPerUser;
+    @Param("10")
+    public int bookingsPerItem;
+    @Param("3")
+    public int commentsPerItem;
+    @Param("42")
+    public long seed;
+
+    public ItemService itemService;
+    public BookingService bookingService;
+    ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = start();
+        itemService = context.getBean(ItemService.class);
+        bookingService = context.getBean(BookingService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        seed(jdbcTemplate, new Random(seed));
+        context.getBean(ItemBookingSummaryService.class)
+                .refresh(jdbcTemplate.queryForList("select id from items", Long.class));
+    }
+
+    protected ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(ShareItApp.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run(applicationArgs());
+    }
+
+    protected String[] applicationArgs(String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of("--spring.datasource.url=jdbc:h2:mem:shareit-benchmark",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.transaction.interceptor=WARN",
+                "--logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN"));
+        args.addAll(List.of(extraArgs));
+        return args.toArray(new String[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public long randomUserId() {
+        return randomUserId(ThreadLocalRandom.current());
+    }
+
+    public String randomWord() {
+        return randomWord(ThreadLocalRandom.current());
+    }
+
+    private long randomUserId(Random random) {
+        return 1 + random.nextInt(users);
+    }
+
+    private String randomWord(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate, Random random) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long userId = 1; userId <= users; userId++) {
+            rows.add(new Object[]{userId, "user" + userId, "user" + userId + "@example.com", "user" + userId + "@example.com"});
+        }
+        insert(jdbcTemplate, "insert into users (id, name, email, email_normalized) values (?, ?, ?, ?)", rows);
+        jdbcTemplate.execute(String.format("alter sequence users_seq restart with %d", users + 50));
+
+        long itemCount = (long) users * itemsPerUser;
+        for (long itemId = 1; itemId <= itemCount; itemId++) {
+            rows.add(new Object[]{itemId, randomWord(random) + " " + itemId, randomWord(random) + " " + randomWord(random) + " в аренду",
+                    random.nextInt(10) > 0, 1 + (itemId - 1) / itemsPerUser});
+            if (rows.size() == BATCH_SIZE) {
+                insert(jdbcTemplate, "insert into items (id, name, description, available, owner_id) values (?, ?, ?, ?, ?)", rows);
+            }
+        }
+        insert(jdbcTemplate, "insert into items (id, name, description, available, owner_id) values (?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.execute(String.format("alter sequence items_seq restart with %d", itemCount + 50));
+
+        LocalDateTime now = LocalDateTime.now();
+        BookingStatus[] statuses = BookingStatus.values();
+        for (long itemId = 1; itemId <= itemCount; itemId++) {
+            for (int i = 0; i < bookingsPerItem; i++) {
+                LocalDateTime start = now.plusDays(random.nextInt(730) - 365);
+                rows.add(new Object[]{itemId, randomUserId(random), Timestamp.valueOf(start), Timestamp.valueOf(start.plusDays(1 + random.nextInt(7))),
+                        statuses[random.nextInt(statuses.length)].toString()});
+            }
+            if (rows.size() >= BATCH_SIZE) {
+                insert(jdbcTemplate, "insert into bookings (item_id, booker_id, start_date, end_date, booking_status) values (?, ?, ?, ?, ?)", rows);
+            }
+        }
+        insert(jdbcTemplate, "insert into bookings (item_id, booker_id, start_date, end_date, booking_status) values (?, ?, ?, ?, ?)", rows);
+
+        for (long itemId = 1; itemId <= itemCount; itemId++) {
+            for (int i = 0; i < commentsPerItem; i++) {
+                rows.add(new Object[]{itemId, randomUserId(random), Timestamp.valueOf(now.minusDays(random.nextInt(365))), "Отличная " + randomWord(random)});
+            }
+            if (rows.size() >= BATCH_SIZE) {
+                insert(jdbcTemplate, "insert into comments (item_id, author_id, create_date, text) values (?, ?, ?, ?)", rows);
+            }
+        }
+        insert(jdbcTemplate, "insert into comments (item_id, author_id, create_date, text) values (?, ?, ?, ?)", rows);
+        jdbcTemplate.update("update items set comment_count = (select count(*) from comments c where c.item_id = items.id)");
+        jdbcTemplate.update("insert into item_booking_summary (item_id, refresh_at) select id, timestamp '1970-01-01 00:00:00' from items");
+    }
+
+    private void insert(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+            rows.clear();
+        }
+    }
+}
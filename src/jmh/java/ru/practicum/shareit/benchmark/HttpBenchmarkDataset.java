@@ -0,0 +1,61 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApp;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+@State(Scope.Benchmark)
+public class HttpBenchmarkDataset extends BenchmarkDataset {
+    @Param({"false", "true"})
+    public boolean asyncRequests;
+    @Param("200")
+    public int tomcatThreads;
+    @Param("50")
+    public int dbPoolSize;
+
+    HttpClient httpClient;
+    String baseUrl;
+
+    @Override
+    protected ConfigurableApplicationContext start() {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApp.class)
+                .profiles("test")
+                .run(applicationArgs("--server.port=0",
+                        "--server.tomcat.threads.max=" + tomcatThreads,
+                        "--spring.datasource.hikari.maximum-pool-size=" + dbPoolSize,
+                        "--shareit.server.async-requests.enabled=" + asyncRequests,
+                        "--shareit.server.async-requests.pool-size=" + dbPoolSize));
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        return context;
+    }
+
+    public int get(String path, long userId) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("X-Sharer-User-Id", String.valueOf(userId))
+                .GET()
+                .build();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(String.format("%s %s %d", "Неожиданный ответ на", path,
+                        response.statusCode()));
+            }
+            return response.statusCode();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
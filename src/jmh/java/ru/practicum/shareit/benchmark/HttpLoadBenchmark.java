@@ -0,0 +1,24 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(400)
+@Fork(1)
+public class HttpLoadBenchmark {
+
+    @Benchmark
+    public int getAllItems(HttpBenchmarkDataset dataset) throws InterruptedException {
+        return dataset.get("/items?from=0&size=20", dataset.randomUserId());
+    }
+
+    @Benchmark
+    public int getBookingForItemsCurrentUser(HttpBenchmarkDataset dataset) throws InterruptedException {
+        return dataset.get("/bookings/owner?state=ALL&from=0&size=20", dataset.randomUserId());
+    }
+}
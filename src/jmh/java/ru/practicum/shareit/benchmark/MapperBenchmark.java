@@ -0,0 +1,73 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.practicum.shareit.booking.mapper.BookingDtoMapper;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.mapper.CommentDtoMapper;
+import ru.practicum.shareit.item.mapper.ItemDtoMapper;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+    @Param("1000")
+    public int size;
+
+    List<Item> items;
+    List<Booking> bookings;
+    List<Comment> comments;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        items = new ArrayList<>();
+        bookings = new ArrayList<>();
+        comments = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= size; id++) {
+            User user = User.builder().id(id).name("user" + id).email("user" + id + "@example.com").build();
+            ItemRequest itemRequest = ItemRequest.builder().id(id).author(user).created(now).description("request" + id).build();
+            Item item = Item.builder().id(id).name("item" + id).description("description" + id)
+                    .available(true).owner(user).itemRequest(id % 2 == 0 ? itemRequest : null).build();
+            items.add(item);
+            bookings.add(Booking.builder().id(id).item(item).booker(user).start(now).end(now.plusDays(1))
+                    .status(BookingStatus.APPROVED).build());
+            Comment comment = Comment.builder().id(id).item(item).author(user).createDate(now).text("comment" + id).build();
+            comments.add(comment);
+        }
+    }
+
+    @Benchmark
+    public void itemDtoMapper(Blackhole blackhole) {
+        for (Item item : items) {
+            blackhole.consume(ItemDtoMapper.itemToItemDTO(item));
+        }
+    }
+
+    @Benchmark
+    public void bookingDtoMapper(Blackhole blackhole) {
+        for (Booking booking : bookings) {
+            blackhole.consume(BookingDtoMapper.mapRow(booking));
+        }
+    }
+
+    @Benchmark
+    public void commentDtoMapper(Blackhole blackhole) {
+        for (Comment comment : comments) {
+            blackhole.consume(CommentDtoMapper.mapRow(comment));
+        }
+    }
+}
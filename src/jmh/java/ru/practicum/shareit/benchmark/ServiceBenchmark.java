@@ -0,0 +1,29 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+
+    @Benchmark
+    public List<?> getAllItems(BenchmarkDataset dataset) {
+        return dataset.itemService.getAllItems(dataset.randomUserId(), 0, 20);
+    }
+
+    @Benchmark
+    public List<?> getItemByNameOrDescription(BenchmarkDataset dataset) {
+        return dataset.itemService.getItemByNameOrDescription(dataset.randomWord(), dataset.randomUserId(), 0, 20);
+    }
+
+    @Benchmark
+    public List<?> getBookingForItemsCurrentUser(BenchmarkDataset dataset) {
+        return dataset.bookingService.getBookingForItemsCurrentUser(dataset.randomUserId(), "ALL", 0, 20, false);
+    }
+}
@@ -0,0 +1,28 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public final class IdSequences {
+    public static final int INCREMENT = 50;
+
+    private IdSequences() {
+    }
+
+    public static void replaceIdentity(Context context, String table, String sequence) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long maxId;
+            try (ResultSet resultSet = statement.executeQuery(String.format("SELECT COALESCE(MAX(id), 0) FROM %s", table))) {
+                resultSet.next();
+                maxId = resultSet.getLong(1);
+            }
+            statement.execute(String.format("CREATE SEQUENCE %s START WITH %d INCREMENT BY %d",
+                    sequence, maxId + INCREMENT, INCREMENT));
+            statement.execute(String.format("ALTER TABLE %s ALTER COLUMN id DROP IDENTITY", table));
+            statement.execute(String.format("ALTER TABLE %s ALTER COLUMN id SET DEFAULT nextval('%s')", table, sequence));
+        }
+    }
+}
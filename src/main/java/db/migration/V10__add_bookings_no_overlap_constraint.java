@@ -0,0 +1,22 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class V10__add_bookings_no_overlap_constraint extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws SQLException {
+        if (!"PostgreSQL".equals(context.getConnection().getMetaData().getDatabaseProductName())) {
+            return;
+        }
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS btree_gist");
+            statement.execute("ALTER TABLE bookings ADD CONSTRAINT bookings_approved_no_overlap " +
+                    "EXCLUDE USING gist (item_id WITH =, tsrange(start_date, end_date) WITH &&) " +
+                    "WHERE (booking_status = 'APPROVED')");
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.SQLException;
+
+public class V6__create_users_sequence extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws SQLException {
+        IdSequences.replaceIdentity(context, "users", "users_seq");
+    }
+}
@@ -0,0 +1,13 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.SQLException;
+
+public class V7__create_items_sequence extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws SQLException {
+        IdSequences.replaceIdentity(context, "items", "items_seq");
+    }
+}
@@ -0,0 +1,20 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class V9__add_items_search_index extends BaseJavaMigration {
+    @Override
+    public void migrate(Context context) throws SQLException {
+        if (!"PostgreSQL".equals(context.getConnection().getMetaData().getDatabaseProductName())) {
+            return;
+        }
+        try (Statement statement = context.getConnection().createStatement()) {
+            statement.execute("CREATE INDEX items_search_idx ON items USING gin (" +
+                    "(setweight(to_tsvector('simple', name), 'A') || setweight(to_tsvector('simple', description), 'B')))");
+        }
+    }
+}
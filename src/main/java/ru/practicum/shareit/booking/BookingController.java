@@ -1,13 +1,23 @@
 package ru.practicum.shareit.booking;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.practicum.shareit.booking.dto.BookingApprovalResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.RequestBodyBookingApprovalDto;
 import ru.practicum.shareit.booking.dto.RequestBodyBookingDto;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.config.AsyncRequests;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -16,18 +26,28 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class BookingController {
     final BookingService bookingService;
+    final ObjectMapper objectMapper;
+    final PaginationProperties paginationProperties;
+    final AsyncRequests asyncRequests;
     final String headerUserValue = "X-Sharer-User-Id";
     final String pathBookingId = "/{bookingId}";
+    final String headerNextCursor = "X-Next-Cursor";
+    final String headerIdempotencyKey = "Idempotency-Key";
 
-    public BookingController(BookingService bookingService) {
+    public BookingController(BookingService bookingService, ObjectMapper objectMapper,
+                             PaginationProperties paginationProperties, AsyncRequests asyncRequests) {
         this.bookingService = bookingService;
+        this.objectMapper = objectMapper;
+        this.paginationProperties = paginationProperties;
+        this.asyncRequests = asyncRequests;
     }
 
     @PostMapping
     public BookingDto addNewBooking(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                    @RequestHeader(value = headerIdempotencyKey, required = false) String idempotencyKey,
                                     @RequestBody RequestBodyBookingDto requestBooking) {
         log.info(String.format("%s %d", "Запрос на новое бронирование от пользователя", userId));
-        return bookingService.addNewBooking(requestBooking, userId);
+        return bookingService.addNewBooking(requestBooking, userId, idempotencyKey);
     }
 
     @PatchMapping(pathBookingId)
@@ -37,28 +57,92 @@ public class BookingController {
         return bookingService.approveOrRejectBooking(userId, bookingId, approved);
     }
 
+    @PatchMapping("/batch")
+    public List<BookingApprovalResultDto> approveOrRejectBookings(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                                                  @RequestBody List<RequestBodyBookingApprovalDto> approvals) {
+        log.info(String.format("%s %d", "Запрос на пакетное подтверждение/отклонение бронирований от пользователя", userId));
+        return bookingService.approveOrRejectBookings(userId, approvals);
+    }
+
     @GetMapping(pathBookingId)
     public BookingDto getBookingById(@RequestHeader(value = headerUserValue, required = false) Long userId,
-                                     @PathVariable long bookingId) {
+                                     @PathVariable long bookingId,
+                                     WebRequest webRequest) {
         log.info(String.format("%s %d", "Запрос на вывод бронирования с id =", bookingId));
-        return bookingService.getBookingById(userId, bookingId);
+        return bookingService.getBookingById(userId, bookingId, webRequest::checkNotModified);
     }
 
     @GetMapping
-    public List<BookingDto> getBookingCurrentUser(@RequestHeader(value = headerUserValue, required = false) Long userId,
-                                                  @RequestParam(defaultValue = "ALL") String state,
-                                                  @RequestParam(defaultValue = "0") Integer from,
-                                                  @RequestParam(defaultValue = "10") Integer size) {
+    public Object getBookingCurrentUser(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                        @RequestParam(defaultValue = "ALL") String state,
+                                        @RequestParam(defaultValue = "0") Integer from,
+                                        @RequestParam(defaultValue = "10") Integer size,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "false") boolean expand,
+                                        HttpServletResponse response) {
         log.info(String.format("%s %d", "Запрос на вывод всех бронирований с id пользователя =", userId));
-        return bookingService.getBookingCurrentUser(userId, state, from, size);
+        return asyncRequests.handle(() -> {
+            if (cursor == null) {
+                return bookingService.getBookingCurrentUser(userId, state, from, size, expand);
+            }
+            List<BookingDto> bookings = bookingService.getBookingCurrentUserByCursor(userId, state, cursor, size, expand);
+            setNextCursor(response, bookings, size);
+            return bookings;
+        });
     }
 
     @GetMapping("/owner")
-    public List<BookingDto> getBookingForItemsCurrentUser(@RequestHeader(value = headerUserValue, required = false) Long userId,
-                                                          @RequestParam(defaultValue = "ALL") String state,
-                                                          @RequestParam(defaultValue = "0") Integer from,
-                                                          @RequestParam(defaultValue = "10") Integer size) {
+    public Object getBookingForItemsCurrentUser(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                                @RequestParam(defaultValue = "ALL") String state,
+                                                @RequestParam(defaultValue = "0") Integer from,
+                                                @RequestParam(defaultValue = "10") Integer size,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "false") boolean expand,
+                                                HttpServletResponse response) {
         log.info(String.format("%s %d", "Запрос на вывод всех бронирований для вещей пользователя id = ", userId));
-        return bookingService.getBookingForItemsCurrentUser(userId, state, from, size);
+        return asyncRequests.handle(() -> {
+            if (cursor == null) {
+                return bookingService.getBookingForItemsCurrentUser(userId, state, from, size, expand);
+            }
+            List<BookingDto> bookings = bookingService.getBookingForItemsCurrentUserByCursor(userId, state, cursor, size, expand);
+            setNextCursor(response, bookings, size);
+            return bookings;
+        });
+    }
+
+    @GetMapping("/export")
+    public void exportBookingsCurrentUser(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                          @RequestParam(defaultValue = "ndjson") String format,
+                                          HttpServletResponse response) throws IOException {
+        log.info(String.format("%s %d", "Запрос на выгрузку всех бронирований пользователя id =", userId));
+        BookingExportWriter writer = new BookingExportWriter(response, objectMapper, getExportFormat(format));
+        bookingService.exportBookingsCurrentUser(userId, writer);
+        writer.finish();
+    }
+
+    @GetMapping("/owner/export")
+    public void exportBookingsForItemsCurrentUser(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                                  @RequestParam(defaultValue = "ndjson") String format,
+                                                  HttpServletResponse response) throws IOException {
+        log.info(String.format("%s %d", "Запрос на выгрузку всех бронирований для вещей пользователя id =", userId));
+        BookingExportWriter writer = new BookingExportWriter(response, objectMapper, getExportFormat(format));
+        bookingService.exportBookingsForItemsCurrentUser(userId, writer);
+        writer.finish();
+    }
+
+    private BookingExportFormat getExportFormat(String format) {
+        for (BookingExportFormat exportFormat : BookingExportFormat.values()) {
+            if (exportFormat.toString().equalsIgnoreCase(format)) {
+                return exportFormat;
+            }
+        }
+        throw new ValidationException("Неподдерживаемый формат выгрузки");
+    }
+
+    private void setNextCursor(HttpServletResponse response, List<BookingDto> bookings, Integer size) {
+        if (!bookings.isEmpty() && bookings.size() == paginationProperties.limit(size)) {
+            BookingDto lastBooking = bookings.get(bookings.size() - 1);
+            response.setHeader(headerNextCursor, PageCursor.of(lastBooking.getStart(), lastBooking.getId()).encode());
+        }
     }
 }
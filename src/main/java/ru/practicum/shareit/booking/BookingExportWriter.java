@@ -0,0 +1,81 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import ru.practicum.shareit.booking.dto.BookingDto;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BookingExportWriter implements Consumer<BookingDto> {
+    static final String CSV_HEADER = "id,item_id,item_name,booker_id,start,end,status";
+
+    final HttpServletResponse response;
+    final ObjectMapper objectMapper;
+    final BookingExportFormat format;
+    Writer writer;
+
+    public BookingExportWriter(HttpServletResponse response, ObjectMapper objectMapper, BookingExportFormat format) {
+        this.response = response;
+        this.objectMapper = objectMapper;
+        this.format = format;
+    }
+
+    @Override
+    public void accept(BookingDto booking) {
+        try {
+            open();
+            if (format == BookingExportFormat.CSV) {
+                writer.write(String.join(",",
+                        String.valueOf(booking.getId()),
+                        String.valueOf(booking.getItem().getId()),
+                        escapeCsv(booking.getItem().getName()),
+                        String.valueOf(booking.getBooker().getId()),
+                        String.valueOf(booking.getStart()),
+                        String.valueOf(booking.getEnd()),
+                        String.valueOf(booking.getStatus())));
+            } else {
+                writer.write(objectMapper.writeValueAsString(booking));
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void finish() throws IOException {
+        open();
+        writer.flush();
+    }
+
+    private void open() throws IOException {
+        if (writer != null) {
+            return;
+        }
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        if (format == BookingExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    private String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -1,66 +1,163 @@
 package ru.practicum.shareit.booking;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingVersionView;
+import ru.practicum.shareit.booking.dto.BookingView;
+import ru.practicum.shareit.booking.dto.ItemActiveBookingsView;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookingRepository extends JpaRepository<Booking, Long> {
-    @Query(value = "select b from Booking b where b.booker = :user order by b.start desc")
-    List<Booking> findAllBookingsForUser(User user, Pageable pageable);
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
-    @Query(value = "select b from Booking b where b.booker = :user and b.start < :start and b.end > :end order by b.start desc")
-    List<Booking> findCurrentBookingsForUser(User user, LocalDateTime start, LocalDateTime end, Pageable pageable);
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingRepositoryCustom {
+    @Override
+    @EntityGraph(value = "Booking.detail")
+    Optional<Booking> findById(Long id);
 
-    @Query(value = "select b from Booking b where b.booker = :user and b.end < :end order by b.start desc")
-    List<Booking> findPastBookingsForUser(User user, LocalDateTime end, Pageable pageable);
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "update Booking b set b.status = :status, b.version = b.version + 1 " +
+            "where b.id = :bookingId and b.status = :expectedStatus")
+    int updateBookingStatus(long bookingId, BookingStatus expectedStatus, BookingStatus status);
 
-    @Query(value = "select b from Booking b where b.booker = :user and b.start > :start order by b.start desc")
-    List<Booking> findFutureBookingsForUser(User user, LocalDateTime start, Pageable pageable);
+    @Query(value = "select b.version as version, b.item.version as itemVersion, b.booker.id as bookerId, " +
+            "b.item.owner.id as ownerId from Booking b where b.id = :bookingId")
+    Optional<BookingVersionView> findBookingVersionById(long bookingId);
 
-    @Query(value = "select b from Booking b where b.booker = :user and b.status = :status order by b.start desc")
-    List<Booking> findWaitingOrRejectedBookingsForUser(User user, BookingStatus status, Pageable pageable);
+    @Query(value = "select b from Booking b where b.id in :bookingIds and b.item.owner.id = :ownerId")
+    List<Booking> findBookingsForOwnerByIds(Collection<Long> bookingIds, long ownerId);
 
-    @Query(value = "select b from Booking b where b.item in :items order by b.start desc")
-    List<Booking> findAllBookingsForItems(List<Item> items, Pageable pageable);
+    @EntityGraph(value = "Booking.detail")
+    @Query(value = "select b from Booking b where b.booker.id = :bookerId and b.idempotencyKey = :idempotencyKey")
+    Optional<Booking> findBookingByIdempotencyKey(long bookerId, String idempotencyKey);
 
-    @Query(value = "select b from Booking b where b.item in :items and b.start < :start and b.end > :end order by b.start desc")
-    List<Booking> findCurrentBookingsForItems(List<Item> items, LocalDateTime start, LocalDateTime end, Pageable pageable);
+    @EntityGraph(value = "Booking.detail")
+    @Query(value = "select b from Booking b where b.id in :bookingIds")
+    List<Booking> findBookingsWithDetailsByIds(Collection<Long> bookingIds);
 
-    @Query(value = "select b from Booking b where b.item in :items and b.end < :end order by b.start desc")
-    List<Booking> findPastBookingsForItems(List<Item> items, LocalDateTime end, Pageable pageable);
+    @EntityGraph(value = "Booking.detail")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(value = "select b from Booking b where b.booker.id = :bookerId order by b.start desc, b.id desc")
+    Stream<Booking> streamBookingsForUser(long bookerId);
 
-    @Query(value = "select b from Booking b where b.item in :items and b.start > :start order by b.start desc")
-    List<Booking> findFutureBookingsForItems(List<Item> items, LocalDateTime start, Pageable pageable);
+    @EntityGraph(value = "Booking.detail")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(value = "select b from Booking b where b.item.owner.id = :ownerId order by b.start desc, b.id desc")
+    Stream<Booking> streamBookingsForOwner(long ownerId);
 
-    @Query(value = "select b from Booking b where b.item in :items and b.status = :status")
-    List<Booking> findWaitingOrRejectedBookingsForItems(List<Item> items, BookingStatus status, Pageable pageable);
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where b.booker = :user " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findAllBookingsForUser(User user, LocalDateTime cursorStart, long cursorId, Pageable pageable);
 
-    @Query(value = "select * from bookings b " +
-            "left join items i on b.item_id = i.id " +
-            "left join users u on b.booker_id = u.id " +
-            "where b.item_id = :itemId " +
-            "and b.start_date < :start " +
-            "and b.booking_status = :status " +
-            "order by b.start_date desc " +
-            "limit 1", nativeQuery = true)
-    Booking findLastBooking(long itemId, LocalDateTime start, String status);
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where b.booker = :user and b.start < :start and b.end > :end " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findCurrentBookingsForUser(User user, LocalDateTime start, LocalDateTime end,
+                                                 LocalDateTime cursorStart, long cursorId, Pageable pageable);
 
-    @Query(value = "select * from bookings b " +
-            "left join items i on b.item_id = i.id " +
-            "left join users u on b.booker_id = u.id " +
-            "where b.item_id = :itemId " +
-            "and b.start_date > :start " +
-            "and b.booking_status = :status " +
-            "order by b.start_date asc " +
-            "limit 1", nativeQuery = true)
-    Booking findNextBooking(long itemId, LocalDateTime start, String status);
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where b.booker = :user and b.end < :end " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findPastBookingsForUser(User user, LocalDateTime end,
+                                              LocalDateTime cursorStart, long cursorId, Pageable pageable);
+
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where b.booker = :user and b.start > :start " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findFutureBookingsForUser(User user, LocalDateTime start,
+                                                LocalDateTime cursorStart, long cursorId, Pageable pageable);
+
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where b.booker = :user and b.status = :status " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findWaitingOrRejectedBookingsForUser(User user, BookingStatus status,
+                                                          LocalDateTime cursorStart, long cursorId, Pageable pageable);
+
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where i.owner = :owner " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findAllBookingsForOwner(User owner, LocalDateTime cursorStart, long cursorId, Pageable pageable);
+
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where i.owner = :owner and b.start < :start and b.end > :end " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findCurrentBookingsForOwner(User owner, LocalDateTime start, LocalDateTime end,
+                                                  LocalDateTime cursorStart, long cursorId, Pageable pageable);
+
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where i.owner = :owner and b.end < :end " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findPastBookingsForOwner(User owner, LocalDateTime end,
+                                               LocalDateTime cursorStart, long cursorId, Pageable pageable);
+
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where i.owner = :owner and b.start > :start " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findFutureBookingsForOwner(User owner, LocalDateTime start,
+                                                 LocalDateTime cursorStart, long cursorId, Pageable pageable);
+
+    @Query(value = "select b.id as id, b.start as start, b.end as end, b.status as status, " +
+            "i.id as itemId, i.name as itemName, b.booker.id as bookerId from Booking b join b.item i " +
+            "where i.owner = :owner and b.status = :status " +
+            "and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId)) " +
+            "order by b.start desc, b.id desc")
+    List<BookingView> findWaitingOrRejectedBookingsForOwner(User owner, BookingStatus status,
+                                                           LocalDateTime cursorStart, long cursorId, Pageable pageable);
+
+    @Query(value = "select b from Booking b where b.item.id in :itemIds and b.status = :status " +
+            "and b.start = (select max(lb.start) from Booking lb " +
+            "where lb.item = b.item and lb.status = :status and lb.start < :start)")
+    List<Booking> findLastBookingsForItems(Collection<Long> itemIds, LocalDateTime start, BookingStatus status);
+
+    @Query(value = "select b from Booking b where b.item.id in :itemIds and b.status = :status " +
+            "and b.start = (select min(nb.start) from Booking nb " +
+            "where nb.item = b.item and nb.status = :status and nb.start > :start)")
+    List<Booking> findNextBookingsForItems(Collection<Long> itemIds, LocalDateTime start, BookingStatus status);
+
+    @Query(value = "select b.item.id as itemId, count(b) as activeCount, min(b.end) as firstEnd from Booking b " +
+            "where b.item.id in :itemIds and b.status = :status and b.end > :end group by b.item.id")
+    List<ItemActiveBookingsView> countActiveBookingsForItems(Collection<Long> itemIds, BookingStatus status, LocalDateTime end);
+
+    @Query(value = "select b from Booking b where b.item.id = :itemId and b.status = :status and b.end > :end")
+    List<Booking> findActiveBookingsForItem(long itemId, BookingStatus status, LocalDateTime end);
+
+    @Query(value = "select b from Booking b where b.item.id in :itemIds and b.status = :status and b.end > :end")
+    List<Booking> findActiveBookingsForItems(Collection<Long> itemIds, BookingStatus status, LocalDateTime end);
 
     @Query(value = "select b from Booking b where b.item = :item and b.booker = :user and b.status = :status and b.end < :end")
     List<Booking> findPastBookingsForUserAndItem(Item item, User user, BookingStatus status, LocalDateTime end);
@@ -0,0 +1,9 @@
+package ru.practicum.shareit.booking;
+
+import ru.practicum.shareit.booking.model.BookingStatusUpdate;
+
+import java.util.List;
+
+public interface BookingRepositoryCustom {
+    int[] updateBookingStatuses(List<BookingStatusUpdate> updates);
+}
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.booking;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.model.BookingStatusUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BookingRepositoryCustomImpl implements BookingRepositoryCustom {
+    static final String UPDATE_STATUS_SQL = "update bookings set booking_status = ?, version = version + 1 " +
+            "where id = ? and booking_status = ?";
+
+    final JdbcTemplate jdbcTemplate;
+
+    public BookingRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int[] updateBookingStatuses(List<BookingStatusUpdate> updates) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (BookingStatusUpdate update : updates) {
+            batchArgs.add(new Object[]{update.getStatus().toString(), update.getBookingId(), update.getExpectedStatus().toString()});
+        }
+        return jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, batchArgs);
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.ItemBookingSummary;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ItemBookingSummaryRepository extends JpaRepository<ItemBookingSummary, Long> {
+    /**
+     * Locks a batch of stale summaries, skipping rows another instance has already claimed.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query(value = "select s from ItemBookingSummary s where s.refreshAt <= :currentDate order by s.refreshAt")
+    List<ItemBookingSummary> claimStaleSummaries(LocalDateTime currentDate, Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "insert into item_booking_summary (item_id) values (:itemId)", nativeQuery = true)
+    int insertEmpty(long itemId);
+
+    @Modifying
+    @Query(value = "insert into item_booking_summary (item_id) select i.id from items i where i.id in :itemIds",
+            nativeQuery = true)
+    int insertEmpty(Collection<Long> itemIds);
+
+    @Modifying
+    @Query(value = "update ItemBookingSummary s set s.refreshAt = :currentDate where s.itemId in " +
+            "(select b.item.id from Booking b where b.booker.id = :bookerId and b.status = :status)")
+    int markStaleForBooker(long bookerId, BookingStatus status, LocalDateTime currentDate);
+}
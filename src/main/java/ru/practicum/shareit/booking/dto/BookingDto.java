@@ -5,8 +5,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.experimental.FieldDefaults;
 import ru.practicum.shareit.booking.model.BookingStatus;
-import ru.practicum.shareit.item.model.Item;
-import ru.practicum.shareit.user.User;
 
 import java.time.LocalDateTime;
 
@@ -15,9 +13,9 @@ import java.time.LocalDateTime;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class BookingDto {
     long id;
-    Item item;
+    BookingItemDto item;
     LocalDateTime start;
     LocalDateTime end;
-    User booker;
+    BookingUserDto booker;
     BookingStatus status;
 }
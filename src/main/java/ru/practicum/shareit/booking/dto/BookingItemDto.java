@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BookingItemDto {
+    long id;
+    String name;
+    String description;
+    Boolean available;
+    BookingUserDto owner;
+    BookingItemRequestDto itemRequest;
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.booking.dto;
+
+public interface BookingVersionView {
+    long getVersion();
+
+    long getItemVersion();
+
+    long getBookerId();
+
+    long getOwnerId();
+}
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.dto;
+
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+public interface BookingView {
+    long getId();
+
+    LocalDateTime getStart();
+
+    LocalDateTime getEnd();
+
+    BookingStatus getStatus();
+
+    long getItemId();
+
+    String getItemName();
+
+    long getBookerId();
+}
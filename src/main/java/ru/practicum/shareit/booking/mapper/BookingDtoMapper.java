@@ -1,17 +1,72 @@
 package ru.practicum.shareit.booking.mapper;
 
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingItemDto;
+import ru.practicum.shareit.booking.dto.BookingItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingUserDto;
+import ru.practicum.shareit.booking.dto.BookingView;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.User;
 
 public class BookingDtoMapper {
     public static BookingDto mapRow(Booking booking) {
         return BookingDto.builder()
                 .id(booking.getId())
-                .item(booking.getItem())
-                .booker(booking.getBooker())
+                .item(itemToBookingItemDto(booking.getItem()))
+                .booker(userToBookingUserDto(booking.getBooker()))
                 .status(booking.getStatus())
                 .start(booking.getStart())
                 .end(booking.getEnd())
                 .build();
     }
-}
\ No newline at end of file
+
+    public static BookingDto mapView(BookingView bookingView) {
+        return BookingDto.builder()
+                .id(bookingView.getId())
+                .item(BookingItemDto.builder().id(bookingView.getItemId()).name(bookingView.getItemName()).build())
+                .booker(BookingUserDto.builder().id(bookingView.getBookerId()).build())
+                .status(bookingView.getStatus())
+                .start(bookingView.getStart())
+                .end(bookingView.getEnd())
+                .build();
+    }
+
+    private static BookingItemDto itemToBookingItemDto(Item item) {
+        if (item == null) {
+            return null;
+        }
+        return BookingItemDto.builder()
+                .id(item.getId())
+                .name(item.getName())
+                .description(item.getDescription())
+                .available(item.getAvailable())
+                .owner(userToBookingUserDto(item.getOwner()))
+                .itemRequest(itemRequestToBookingItemRequestDto(item.getItemRequest()))
+                .build();
+    }
+
+    private static BookingItemRequestDto itemRequestToBookingItemRequestDto(ItemRequest itemRequest) {
+        if (itemRequest == null) {
+            return null;
+        }
+        return BookingItemRequestDto.builder()
+                .id(itemRequest.getId())
+                .author(userToBookingUserDto(itemRequest.getAuthor()))
+                .created(itemRequest.getCreated())
+                .description(itemRequest.getDescription())
+                .build();
+    }
+
+    private static BookingUserDto userToBookingUserDto(User user) {
+        if (user == null) {
+            return null;
+        }
+        return BookingUserDto.builder()
+                .id(user.getId())
+                .name(user.getName())
+                .email(user.getEmail())
+                .build();
+    }
+}
@@ -2,6 +2,7 @@ package ru.practicum.shareit.booking.mapper;
 
 import ru.practicum.shareit.booking.dto.LastAndNextBookingDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.ItemBookingSummary;
 
 public class LastAndNextBookingDtoMapper {
     public static LastAndNextBookingDto mapRow(Booking booking) {
@@ -10,4 +11,24 @@ public class LastAndNextBookingDtoMapper {
                 .bookerId(booking.getBooker().getId())
                 .build();
     }
+
+    public static LastAndNextBookingDto mapLast(ItemBookingSummary summary) {
+        if (summary.getLastBookingId() == null) {
+            return null;
+        }
+        return LastAndNextBookingDto.builder()
+                .id(summary.getLastBookingId())
+                .bookerId(summary.getLastBookerId())
+                .build();
+    }
+
+    public static LastAndNextBookingDto mapNext(ItemBookingSummary summary) {
+        if (summary.getNextBookingId() == null) {
+            return null;
+        }
+        return LastAndNextBookingDto.builder()
+                .id(summary.getNextBookingId())
+                .bookerId(summary.getNextBookerId())
+                .build();
+    }
 }
\ No newline at end of file
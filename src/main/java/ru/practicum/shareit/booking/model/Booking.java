@@ -19,15 +19,25 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 @Table(name = "bookings")
+@NamedEntityGraph(name = "Booking.detail", attributeNodes = {
+        @NamedAttributeNode(value = "item", subgraph = "item"),
+        @NamedAttributeNode("booker")
+}, subgraphs = {
+        @NamedSubgraph(name = "item", attributeNodes = {
+                @NamedAttributeNode("owner"),
+                @NamedAttributeNode(value = "itemRequest", subgraph = "itemRequest")
+        }),
+        @NamedSubgraph(name = "itemRequest", attributeNodes = @NamedAttributeNode("author"))
+})
 public class Booking {
     @Id
     @Column(name = "id")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     long id;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id", referencedColumnName = "id")
     Item item;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "booker_id", referencedColumnName = "id")
     User booker;
     @Column(name = "start_date", nullable = false)
@@ -37,5 +47,10 @@ public class Booking {
     @Enumerated(EnumType.STRING)
     @Column(name = "booking_status", nullable = false)
     BookingStatus status;
+    @Version
+    @Column(name = "version", nullable = false)
+    long version;
+    @Column(name = "idempotency_key")
+    String idempotencyKey;
 }
 
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BookingStatusUpdate {
+    long bookingId;
+    BookingStatus expectedStatus;
+    BookingStatus status;
+}
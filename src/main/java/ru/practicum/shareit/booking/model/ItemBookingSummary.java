@@ -0,0 +1,39 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "item_booking_summary")
+public class ItemBookingSummary {
+    @Id
+    @Column(name = "item_id")
+    long itemId;
+    @Column(name = "last_booking_id")
+    Long lastBookingId;
+    @Column(name = "last_booker_id")
+    Long lastBookerId;
+    @Column(name = "next_booking_id")
+    Long nextBookingId;
+    @Column(name = "next_booker_id")
+    Long nextBookerId;
+    @Column(name = "active_booking_count", nullable = false)
+    int activeBookingCount;
+    @Column(name = "refresh_at")
+    LocalDateTime refreshAt;
+
+    public boolean isStale(LocalDateTime currentDate) {
+        return refreshAt != null && !currentDate.isBefore(refreshAt);
+    }
+}
@@ -0,0 +1,273 @@
+package ru.practicum.shareit.booking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.ItemRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BookingCalendar {
+    static final long MAX_CALENDARS = 10_000;
+    static final Duration CALENDAR_IDLE_TIMEOUT = Duration.ofHours(1);
+
+    final BookingRepository bookingRepository;
+    final ItemRepository itemRepository;
+    final Cache<Long, ItemCalendar> calendars = Caffeine.newBuilder()
+            .maximumSize(MAX_CALENDARS)
+            .expireAfterAccess(CALENDAR_IDLE_TIMEOUT)
+            .build();
+
+    public BookingCalendar(BookingRepository bookingRepository, ItemRepository itemRepository) {
+        this.bookingRepository = bookingRepository;
+        this.itemRepository = itemRepository;
+    }
+
+    public void checkFree(long itemId, LocalDateTime start, LocalDateTime end) {
+        ItemCalendar calendar = getCalendar(itemId);
+        synchronized (calendar) {
+            if (calendar.findOverlap(start, end, 0) == null) {
+                return;
+            }
+        }
+        List<Booking> approvedBookings = findApproved(itemId);
+        synchronized (calendar) {
+            calendar.replaceApproved(approvedBookings);
+            if (calendar.findOverlap(start, end, 0) != null) {
+                throwOverlap(itemId);
+            }
+        }
+    }
+
+    public void lock(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        List<Long> lockedItemIds = itemRepository.lockItems(new TreeSet<>(itemIds));
+        Map<Long, List<Booking>> approvedByItem = new HashMap<>();
+        for (Booking booking : bookingRepository.findActiveBookingsForItems(lockedItemIds, BookingStatus.APPROVED,
+                LocalDateTime.now())) {
+            approvedByItem.computeIfAbsent(booking.getItem().getId(), id -> new ArrayList<>()).add(booking);
+        }
+        for (Long itemId : lockedItemIds) {
+            ItemCalendar calendar = calendars.get(itemId, id -> new ItemCalendar());
+            synchronized (calendar) {
+                calendar.replaceApproved(approvedByItem.getOrDefault(itemId, List.of()));
+            }
+        }
+    }
+
+    public void reserve(Booking booking) {
+        long itemId = booking.getItem().getId();
+        ItemCalendar calendar = getCalendar(itemId);
+        boolean pending = TransactionSynchronizationManager.isSynchronizationActive();
+        boolean reserved;
+        synchronized (calendar) {
+            reserved = calendar.findOverlap(booking.getStart(), booking.getEnd(), booking.getId()) == null;
+            if (reserved) {
+                calendar.add(booking.getId(), booking.getStart(), booking.getEnd(), pending);
+            }
+        }
+        if (!reserved) {
+            List<Booking> approvedBookings = findApproved(itemId);
+            synchronized (calendar) {
+                calendar.replaceApproved(approvedBookings);
+                if (calendar.findOverlap(booking.getStart(), booking.getEnd(), booking.getId()) != null) {
+                    throwOverlap(itemId);
+                }
+                calendar.add(booking.getId(), booking.getStart(), booking.getEnd(), pending);
+            }
+        }
+        if (pending) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (calendar) {
+                        if (status == STATUS_COMMITTED) {
+                            calendar.confirm(booking.getId(), booking.getStart());
+                        } else {
+                            calendar.remove(booking.getId(), booking.getStart());
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    public void release(Booking booking) {
+        ItemCalendar calendar = calendars.getIfPresent(booking.getItem().getId());
+        if (calendar == null) {
+            return;
+        }
+        synchronized (calendar) {
+            calendar.remove(booking.getId(), booking.getStart());
+        }
+    }
+
+    public void releaseAfterCommit(Booking booking) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(booking);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(booking);
+            }
+        });
+    }
+
+    /**
+     * Bookings are queried outside both Caffeine's compute and the calendar monitor, which only guard the
+     * in-memory swap; overlapping approvals are serialized by the item row locks taken in {@link #lock}.
+     */
+    private ItemCalendar getCalendar(long itemId) {
+        ItemCalendar calendar = calendars.getIfPresent(itemId);
+        if (calendar != null) {
+            return calendar;
+        }
+        List<Booking> approvedBookings = findApproved(itemId);
+        calendar = calendars.get(itemId, id -> new ItemCalendar());
+        synchronized (calendar) {
+            calendar.replaceApproved(approvedBookings);
+        }
+        return calendar;
+    }
+
+    private List<Booking> findApproved(long itemId) {
+        return bookingRepository.findActiveBookingsForItem(itemId, BookingStatus.APPROVED, LocalDateTime.now());
+    }
+
+    private void throwOverlap(long itemId) {
+        String message = String.format("%s %d %s", "Вещь с id =", itemId, "уже забронирована на указанные даты");
+        log.info(message);
+        throw new ValidationException(message);
+    }
+
+    /**
+     * Rows already in the table may overlap each other (they predate the overlap check or were written by
+     * another node), so several intervals can share a start and a later start can end earlier than an
+     * earlier one. Intervals are kept in a list per start, and the backward scan stops only once a start is
+     * older than the longest interval seen allows it to reach.
+     */
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    static class ItemCalendar {
+        final NavigableMap<LocalDateTime, List<BookedInterval>> intervals = new TreeMap<>();
+        Duration longestInterval = Duration.ZERO;
+
+        BookedInterval findOverlap(LocalDateTime start, LocalDateTime end, long ignoredBookingId) {
+            removeFinished();
+            LocalDateTime earliestOverlappingStart = start.minus(longestInterval);
+            for (Map.Entry<LocalDateTime, List<BookedInterval>> entry
+                    : intervals.headMap(end, false).descendingMap().entrySet()) {
+                if (!entry.getKey().isAfter(earliestOverlappingStart)) {
+                    break;
+                }
+                for (BookedInterval interval : entry.getValue()) {
+                    if (interval.end.isAfter(start) && interval.bookingId != ignoredBookingId) {
+                        return interval;
+                    }
+                }
+            }
+            return null;
+        }
+
+        void add(long bookingId, LocalDateTime start, LocalDateTime end, boolean pending) {
+            remove(bookingId, start);
+            intervals.computeIfAbsent(start, key -> new ArrayList<>()).add(new BookedInterval(bookingId, end, pending));
+            Duration length = Duration.between(start, end);
+            if (length.compareTo(longestInterval) > 0) {
+                longestInterval = length;
+            }
+        }
+
+        void confirm(long bookingId, LocalDateTime start) {
+            List<BookedInterval> startIntervals = intervals.get(start);
+            if (startIntervals == null) {
+                return;
+            }
+            for (int i = 0; i < startIntervals.size(); i++) {
+                BookedInterval interval = startIntervals.get(i);
+                if (interval.bookingId == bookingId) {
+                    startIntervals.set(i, new BookedInterval(bookingId, interval.end, false));
+                }
+            }
+        }
+
+        void remove(long bookingId, LocalDateTime start) {
+            List<BookedInterval> startIntervals = intervals.get(start);
+            if (startIntervals != null && startIntervals.removeIf(interval -> interval.bookingId == bookingId)
+                    && startIntervals.isEmpty()) {
+                intervals.remove(start);
+            }
+        }
+
+        void replaceApproved(List<Booking> approvedBookings) {
+            Set<Long> pendingBookingIds = new HashSet<>();
+            for (Iterator<List<BookedInterval>> iterator = intervals.values().iterator(); iterator.hasNext(); ) {
+                List<BookedInterval> startIntervals = iterator.next();
+                startIntervals.removeIf(interval -> !interval.pending);
+                if (startIntervals.isEmpty()) {
+                    iterator.remove();
+                }
+                for (BookedInterval interval : startIntervals) {
+                    pendingBookingIds.add(interval.bookingId);
+                }
+            }
+            for (Booking booking : approvedBookings) {
+                if (!pendingBookingIds.contains(booking.getId())) {
+                    add(booking.getId(), booking.getStart(), booking.getEnd(), false);
+                }
+            }
+        }
+
+        private void removeFinished() {
+            LocalDateTime currentDate = LocalDateTime.now();
+            while (!intervals.isEmpty()) {
+                List<BookedInterval> startIntervals = intervals.firstEntry().getValue();
+                startIntervals.removeIf(interval -> !interval.end.isAfter(currentDate));
+                if (!startIntervals.isEmpty()) {
+                    return;
+                }
+                intervals.pollFirstEntry();
+            }
+        }
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    static class BookedInterval {
+        long bookingId;
+        LocalDateTime end;
+        boolean pending;
+
+        BookedInterval(long bookingId, LocalDateTime end, boolean pending) {
+            this.bookingId = bookingId;
+            this.end = end;
+            this.pending = pending;
+        }
+    }
+}
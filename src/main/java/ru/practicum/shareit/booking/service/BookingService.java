@@ -1,19 +1,33 @@
 package ru.practicum.shareit.booking.service;
 
 
+import ru.practicum.shareit.booking.dto.BookingApprovalResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.RequestBodyBookingApprovalDto;
 import ru.practicum.shareit.booking.dto.RequestBodyBookingDto;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public interface BookingService {
-    BookingDto addNewBooking(RequestBodyBookingDto requestBooking, Long userId);
+    BookingDto addNewBooking(RequestBodyBookingDto requestBooking, Long userId, String idempotencyKey);
 
     BookingDto approveOrRejectBooking(Long userId, long bookingId, boolean approved);
 
-    BookingDto getBookingById(Long userId, long bookingId);
+    List<BookingApprovalResultDto> approveOrRejectBookings(Long userId, List<RequestBodyBookingApprovalDto> approvals);
 
-    List<BookingDto> getBookingCurrentUser(Long userId, String state, Integer from, Integer size);
+    BookingDto getBookingById(Long userId, long bookingId, Predicate<String> notModified);
 
-    List<BookingDto> getBookingForItemsCurrentUser(Long userId, String state, Integer from, Integer size);
-}
\ No newline at end of file
+    List<BookingDto> getBookingCurrentUser(Long userId, String state, Integer from, Integer size, boolean expand);
+
+    List<BookingDto> getBookingCurrentUserByCursor(Long userId, String state, String cursor, Integer size, boolean expand);
+
+    List<BookingDto> getBookingForItemsCurrentUser(Long userId, String state, Integer from, Integer size, boolean expand);
+
+    List<BookingDto> getBookingForItemsCurrentUserByCursor(Long userId, String state, String cursor, Integer size, boolean expand);
+
+    void exportBookingsCurrentUser(Long userId, Consumer<BookingDto> consumer);
+
+    void exportBookingsForItemsCurrentUser(Long userId, Consumer<BookingDto> consumer);
+}
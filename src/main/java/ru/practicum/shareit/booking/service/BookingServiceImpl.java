@@ -4,183 +4,441 @@ import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.BookingState;
 import ru.practicum.shareit.booking.BookingValidation;
+import ru.practicum.shareit.booking.dto.BookingApprovalResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingVersionView;
+import ru.practicum.shareit.booking.dto.BookingView;
+import ru.practicum.shareit.booking.dto.RequestBodyBookingApprovalDto;
 import ru.practicum.shareit.booking.mapper.BookingDtoMapper;
 import ru.practicum.shareit.booking.dto.RequestBodyBookingDto;
 import ru.practicum.shareit.booking.mapper.RequestBodyBookingDtoMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.BookingStatusUpdate;
 import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.common.EntityResolver;
+import ru.practicum.shareit.config.routing.ReplicaRoutingDataSource;
 import ru.practicum.shareit.exception.IllegalArgumentException;
 import ru.practicum.shareit.exception.IsAlreadyDoneException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
-import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.UserRepository;
 
+import javax.persistence.EntityManager;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 @Qualifier("BookingServiceImpl")
 @FieldDefaults(level = AccessLevel.PRIVATE)
+@Transactional(readOnly = true)
 public class BookingServiceImpl implements BookingService {
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+    static final int MAX_APPROVAL_BATCH_SIZE = 500;
+    static final int EXPORT_CLEAR_INTERVAL = 500;
+
     final BookingRepository bookingRepository;
-    final ItemRepository itemRepository;
-    final UserRepository userRepository;
+    final BookingCalendar bookingCalendar;
+    final ItemBookingSummaryService itemBookingSummaryService;
+    final EntityResolver entityResolver;
+    final EntityManager entityManager;
+    final PaginationProperties paginationProperties;
     final BookingValidation bookingValidation = new BookingValidation();
 
     public BookingServiceImpl(BookingRepository bookingRepository,
-                              UserRepository userRepository,
-                              ItemRepository itemRepository) {
+                              BookingCalendar bookingCalendar,
+                              ItemBookingSummaryService itemBookingSummaryService,
+                              EntityResolver entityResolver,
+                              EntityManager entityManager,
+                              PaginationProperties paginationProperties) {
         this.bookingRepository = bookingRepository;
-        this.userRepository = userRepository;
-        this.itemRepository = itemRepository;
+        this.bookingCalendar = bookingCalendar;
+        this.itemBookingSummaryService = itemBookingSummaryService;
+        this.entityResolver = entityResolver;
+        this.entityManager = entityManager;
+        this.paginationProperties = paginationProperties;
     }
 
     @Override
-    public BookingDto addNewBooking(RequestBodyBookingDto requestBooking, Long userId) {
-        Item item = getItemById(requestBooking.getItemId());
+    @Transactional
+    public BookingDto addNewBooking(RequestBodyBookingDto requestBooking, Long userId, String idempotencyKey) {
+        if (userId == null) {
+            String message = "Не указан id пользователя";
+            log.info(message);
+            throw new ValidationException(message);
+        }
+        if (idempotencyKey != null) {
+            checkIdempotencyKey(idempotencyKey);
+            entityResolver.lockUser(userId);
+            Optional<Booking> existingBooking = bookingRepository.findBookingByIdempotencyKey(userId, idempotencyKey);
+            if (existingBooking.isPresent()) {
+                log.info(String.format("%s %s", "Повторный запрос на бронирование с ключом", idempotencyKey));
+                return bookingToBookingDto(existingBooking.get());
+            }
+        }
+        Item item = entityResolver.getItem(requestBooking.getItemId());
         bookingValidation.bookingValidation(requestBooking, item, userId);
-        User user = getUserById(userId);
+        bookingCalendar.checkFree(item.getId(), requestBooking.getStart(), requestBooking.getEnd());
+        User user = entityResolver.getUser(userId);
         Booking booking = RequestBodyBookingDtoMapper.mapRow(requestBooking);
         booking.setBooker(user);
         booking.setItem(item);
         booking.setStatus(BookingStatus.WAITING);
+        booking.setIdempotencyKey(idempotencyKey);
         return bookingToBookingDto(bookingRepository.save(booking));
     }
 
     @Override
+    @Transactional
     public BookingDto approveOrRejectBooking(Long userId, long bookingId, boolean approved) {
-        if (bookingRepository.findById(bookingId).isEmpty()) {
-            String message = String.format("%s %d %s", "Бронирование с id =", bookingId, "не найдено");
-            log.info(message);
-            throw new NotFoundException(message);
-        }
-        Booking booking = bookingRepository.findById(bookingId).get();
+        Booking booking = entityResolver.getBooking(bookingId);
         if (!userId.equals(booking.getItem().getOwner().getId())) {
             String message = "Подтверждать или отменять бронь может только владелец вещи";
             log.info(message);
             throw new NotFoundException(message);
         }
+        BookingStatus currentStatus = booking.getStatus();
+        if (approved && currentStatus.equals(BookingStatus.APPROVED)) {
+            String message = "Попытка подтверждения уже подтвержденного бронирования";
+            log.info(message);
+            throw new IsAlreadyDoneException(message);
+        }
+        if (!approved && currentStatus.equals(BookingStatus.REJECTED)) {
+            String message = "Попытка отмены уже отмененного бронирования";
+            log.info(message);
+            throw new IsAlreadyDoneException(message);
+        }
+        BookingStatus newStatus = approved ? BookingStatus.APPROVED : BookingStatus.REJECTED;
         if (approved) {
-            if (booking.getStatus().equals(BookingStatus.APPROVED)) {
-                String message = "Попытка подтверждения уже подтвержденного бронирования";
-                log.info(message);
-                throw new IsAlreadyDoneException(message);
+            bookingCalendar.lock(List.of(booking.getItem().getId()));
+            bookingCalendar.reserve(booking);
+        }
+        int updated;
+        try {
+            updated = bookingRepository.updateBookingStatus(bookingId, currentStatus, newStatus);
+        } catch (DataIntegrityViolationException e) {
+            bookingCalendar.release(booking);
+            throw overlapsApproved(booking);
+        }
+        if (updated == 0) {
+            if (approved) {
+                bookingCalendar.release(booking);
+            }
+            String message = String.format("%s %d %s", "Статус бронирования с id =", bookingId, "уже изменён другим запросом");
+            log.info(message);
+            throw new IsAlreadyDoneException(message);
+        }
+        if (currentStatus.equals(BookingStatus.APPROVED)) {
+            bookingCalendar.releaseAfterCommit(booking);
+        }
+        if (approved || currentStatus.equals(BookingStatus.APPROVED)) {
+            itemBookingSummaryService.refresh(List.of(booking.getItem().getId()));
+        }
+        booking.setStatus(newStatus);
+        booking.setVersion(booking.getVersion() + 1);
+        return bookingToBookingDto(booking);
+    }
+
+    @Override
+    @Transactional
+    public List<BookingApprovalResultDto> approveOrRejectBookings(Long userId, List<RequestBodyBookingApprovalDto> approvals) {
+        if (approvals == null || approvals.isEmpty() || approvals.size() > MAX_APPROVAL_BATCH_SIZE) {
+            String message = String.format("%s %d", "Количество бронирований в запросе должно быть от 1 до", MAX_APPROVAL_BATCH_SIZE);
+            log.info(message);
+            throw new ValidationException(message);
+        }
+        Set<Long> bookingIds = new HashSet<>();
+        for (RequestBodyBookingApprovalDto approval : approvals) {
+            bookingIds.add(approval.getBookingId());
+        }
+        Map<Long, Booking> bookings = new HashMap<>();
+        for (Booking booking : bookingRepository.findBookingsForOwnerByIds(bookingIds, userId)) {
+            bookings.put(booking.getId(), booking);
+        }
+        Set<Long> approvedItemIds = new HashSet<>();
+        for (RequestBodyBookingApprovalDto approval : approvals) {
+            Booking booking = bookings.get(approval.getBookingId());
+            if (approval.isApproved() && booking != null) {
+                approvedItemIds.add(booking.getItem().getId());
+            }
+        }
+        bookingCalendar.lock(approvedItemIds);
+        List<BookingApprovalResultDto> results = new ArrayList<>();
+        List<BookingStatusUpdate> updates = new ArrayList<>();
+        List<BookingApprovalResultDto> updateResults = new ArrayList<>();
+        Set<Long> processedIds = new HashSet<>();
+        Map<Long, List<Booking>> approvedByItem = new HashMap<>();
+        for (RequestBodyBookingApprovalDto approval : approvals) {
+            long bookingId = approval.getBookingId();
+            BookingApprovalResultDto result = BookingApprovalResultDto.builder().bookingId(bookingId).build();
+            results.add(result);
+            Booking booking = bookings.get(bookingId);
+            if (!processedIds.add(bookingId)) {
+                result.setError("Бронирование указано в запросе повторно");
+                continue;
+            }
+            if (booking == null) {
+                result.setError(String.format("%s %d %s", "Бронирование с id =", bookingId, "не найдено среди бронирований вещей пользователя"));
+                continue;
             }
-            booking.setStatus(BookingStatus.APPROVED);
-        } else {
-            if (booking.getStatus().equals(BookingStatus.REJECTED)) {
-                String message = "Попытка отмены уже отмененного бронирования";
-                log.info(message);
-                throw new IsAlreadyDoneException(message);
+            BookingStatus currentStatus = booking.getStatus();
+            result.setStatus(currentStatus);
+            if (approval.isApproved() && currentStatus.equals(BookingStatus.APPROVED)) {
+                result.setError("Попытка подтверждения уже подтвержденного бронирования");
+                continue;
             }
-            booking.setStatus(BookingStatus.REJECTED);
+            if (!approval.isApproved() && currentStatus.equals(BookingStatus.REJECTED)) {
+                result.setError("Попытка отмены уже отмененного бронирования");
+                continue;
+            }
+            if (approval.isApproved()) {
+                List<Booking> approvedForItem = approvedByItem.computeIfAbsent(booking.getItem().getId(), id -> new ArrayList<>());
+                if (overlapsAny(booking, approvedForItem)) {
+                    result.setError("Бронирование пересекается с другим подтверждаемым в запросе бронированием вещи");
+                    continue;
+                }
+                try {
+                    bookingCalendar.reserve(booking);
+                } catch (ValidationException e) {
+                    result.setError(e.getMessage());
+                    continue;
+                }
+                approvedForItem.add(booking);
+            }
+            updates.add(BookingStatusUpdate.builder()
+                    .bookingId(bookingId)
+                    .expectedStatus(currentStatus)
+                    .status(approval.isApproved() ? BookingStatus.APPROVED : BookingStatus.REJECTED)
+                    .build());
+            updateResults.add(result);
         }
-        return bookingToBookingDto(bookingRepository.save(booking));
+        if (updates.isEmpty()) {
+            return results;
+        }
+        int[] updateCounts;
+        try {
+            updateCounts = bookingRepository.updateBookingStatuses(updates);
+        } catch (DataIntegrityViolationException e) {
+            String message = "Подтверждаемые бронирования пересекаются с уже подтверждёнными";
+            log.info(message);
+            throw new ValidationException(message);
+        }
+        Set<Long> changedItemIds = new HashSet<>();
+        for (int i = 0; i < updates.size(); i++) {
+            BookingStatusUpdate update = updates.get(i);
+            Booking booking = bookings.get(update.getBookingId());
+            BookingApprovalResultDto result = updateResults.get(i);
+            if (updateCounts[i] == 0) {
+                if (update.getStatus().equals(BookingStatus.APPROVED)) {
+                    bookingCalendar.release(booking);
+                }
+                result.setError(String.format("%s %d %s", "Статус бронирования с id =", update.getBookingId(), "уже изменён другим запросом"));
+                continue;
+            }
+            if (update.getExpectedStatus().equals(BookingStatus.APPROVED)) {
+                bookingCalendar.releaseAfterCommit(booking);
+            }
+            if (update.getStatus().equals(BookingStatus.APPROVED) || update.getExpectedStatus().equals(BookingStatus.APPROVED)) {
+                changedItemIds.add(booking.getItem().getId());
+            }
+            result.setStatus(update.getStatus());
+        }
+        itemBookingSummaryService.refresh(changedItemIds);
+        log.info(String.format("%s %d %s %d", "Обработано", updates.size(), "изменений статуса бронирований пользователя", userId));
+        return results;
     }
 
     @Override
-    public BookingDto getBookingById(Long userId, long bookingId) {
-        if (bookingRepository.findById(bookingId).isEmpty()) {
+    public BookingDto getBookingById(Long userId, long bookingId, Predicate<String> notModified) {
+        ReplicaRoutingDataSource.requirePrimary();
+        BookingVersionView bookingVersion = bookingRepository.findBookingVersionById(bookingId).orElseThrow(() -> {
             String message = String.format("%s %d %s", "Бронь с id =", bookingId, "не найдена");
             log.info(message);
-            throw new NotFoundException(message);
-        }
-        Booking booking = bookingRepository.findById(bookingId).get();
-        if (!userId.equals(booking.getBooker().getId()) && !userId.equals(booking.getItem().getOwner().getId())) {
+            return new NotFoundException(message);
+        });
+        if (!userId.equals(bookingVersion.getBookerId()) && !userId.equals(bookingVersion.getOwnerId())) {
             String message = "Просматривать бронь может либо автор брони либо владелец вещи";
             log.info(message);
             throw new NotFoundException(message);
         }
-        return bookingToBookingDto(booking);
+        if (notModified.test(String.format("%d-%d-%d", bookingId, bookingVersion.getVersion(), bookingVersion.getItemVersion()))) {
+            return null;
+        }
+        return bookingToBookingDto(entityResolver.getBooking(bookingId));
+    }
+
+    @Override
+    public List<BookingDto> getBookingCurrentUser(Long userId, String state, Integer from, Integer size, boolean expand) {
+        checkFromAndSize(from, size);
+        return viewsToBookingsDto(getBookingsForBooker(entityResolver.getUserReference(userId), getBookingStateValue(state),
+                PageCursor.FIRST, OffsetPageRequest.of(from, paginationProperties.limit(size))), expand);
     }
 
     @Override
-    public List<BookingDto> getBookingCurrentUser(Long userId, String state, Integer from, Integer size) {
+    public List<BookingDto> getBookingCurrentUserByCursor(Long userId, String state, String cursor, Integer size, boolean expand) {
+        checkFromAndSize(0, size);
+        return viewsToBookingsDto(getBookingsForBooker(entityResolver.getUserReference(userId), getBookingStateValue(state),
+                PageCursor.decode(cursor), OffsetPageRequest.of(0, paginationProperties.limit(size))), expand);
+    }
+
+    @Override
+    public List<BookingDto> getBookingForItemsCurrentUser(Long userId, String state, Integer from, Integer size, boolean expand) {
         checkFromAndSize(from, size);
+        return viewsToBookingsDto(getBookingsForOwner(entityResolver.getUserReference(userId), getBookingStateValue(state),
+                PageCursor.FIRST, OffsetPageRequest.of(from, paginationProperties.limit(size))), expand);
+    }
+
+    @Override
+    public List<BookingDto> getBookingForItemsCurrentUserByCursor(Long userId, String state, String cursor, Integer size, boolean expand) {
+        checkFromAndSize(0, size);
+        return viewsToBookingsDto(getBookingsForOwner(entityResolver.getUserReference(userId), getBookingStateValue(state),
+                PageCursor.decode(cursor), OffsetPageRequest.of(0, paginationProperties.limit(size))), expand);
+    }
+
+    @Override
+    public void exportBookingsCurrentUser(Long userId, Consumer<BookingDto> consumer) {
+        entityResolver.getUserSnapshot(userId);
+        try (Stream<Booking> bookings = bookingRepository.streamBookingsForUser(userId)) {
+            exportBookings(bookings, consumer);
+        }
+    }
+
+    @Override
+    public void exportBookingsForItemsCurrentUser(Long userId, Consumer<BookingDto> consumer) {
+        entityResolver.getUserSnapshot(userId);
+        try (Stream<Booking> bookings = bookingRepository.streamBookingsForOwner(userId)) {
+            exportBookings(bookings, consumer);
+        }
+    }
+
+    private void exportBookings(Stream<Booking> bookings, Consumer<BookingDto> consumer) {
+        int count = 0;
+        for (Iterator<Booking> iterator = bookings.iterator(); iterator.hasNext(); ) {
+            consumer.accept(bookingToBookingDto(iterator.next()));
+            if (++count % EXPORT_CLEAR_INTERVAL == 0) {
+                entityManager.clear();
+            }
+        }
+        log.info(String.format("%s %d", "Выгружено бронирований:", count));
+    }
+
+    private List<BookingView> getBookingsForBooker(User user, BookingState state, PageCursor cursor, Pageable pageable) {
         LocalDateTime currentDate = LocalDateTime.now();
-        User user = getUserById(userId);
-        switch (getBookingStateValue(state)) {
+        LocalDateTime cursorStart = cursor.getPosition();
+        long cursorId = cursor.getId();
+        switch (state) {
             case CURRENT:
-                return bookingsToBookingsDto(bookingRepository.findCurrentBookingsForUser(user, currentDate, currentDate, PageRequest.of(from / size, size)));
+                return bookingRepository.findCurrentBookingsForUser(user, currentDate, currentDate, cursorStart, cursorId, pageable);
             case PAST:
-                return bookingsToBookingsDto(bookingRepository.findPastBookingsForUser(user, currentDate, PageRequest.of(from / size, size)));
+                return bookingRepository.findPastBookingsForUser(user, currentDate, cursorStart, cursorId, pageable);
             case FUTURE:
-                return bookingsToBookingsDto(bookingRepository.findFutureBookingsForUser(user, currentDate, PageRequest.of(from / size, size)));
+                return bookingRepository.findFutureBookingsForUser(user, currentDate, cursorStart, cursorId, pageable);
             case WAITING:
-                return bookingsToBookingsDto(bookingRepository.findWaitingOrRejectedBookingsForUser(user, BookingStatus.WAITING, PageRequest.of(from / size, size)));
+                return bookingRepository.findWaitingOrRejectedBookingsForUser(user, BookingStatus.WAITING, cursorStart, cursorId, pageable);
             case REJECTED:
-                return bookingsToBookingsDto(bookingRepository.findWaitingOrRejectedBookingsForUser(user, BookingStatus.REJECTED, PageRequest.of(from / size, size)));
+                return bookingRepository.findWaitingOrRejectedBookingsForUser(user, BookingStatus.REJECTED, cursorStart, cursorId, pageable);
             default:
-                return bookingsToBookingsDto(bookingRepository.findAllBookingsForUser(user, PageRequest.of(from / size, size)));
+                return bookingRepository.findAllBookingsForUser(user, cursorStart, cursorId, pageable);
         }
     }
 
-    @Override
-    public List<BookingDto> getBookingForItemsCurrentUser(Long userId, String state, Integer from, Integer size) {
-        checkFromAndSize(from, size);
+    private List<BookingView> getBookingsForOwner(User user, BookingState state, PageCursor cursor, Pageable pageable) {
         LocalDateTime currentDate = LocalDateTime.now();
-        User user = getUserById(userId);
-        List<Item> items = itemRepository.findItemsForUser(user);
-
-        switch (getBookingStateValue(state)) {
+        LocalDateTime cursorStart = cursor.getPosition();
+        long cursorId = cursor.getId();
+        switch (state) {
             case CURRENT:
-                return bookingsToBookingsDto(bookingRepository.findCurrentBookingsForItems(items, currentDate, currentDate, PageRequest.of(from / size, size)));
+                return bookingRepository.findCurrentBookingsForOwner(user, currentDate, currentDate, cursorStart, cursorId, pageable);
             case PAST:
-                return bookingsToBookingsDto(bookingRepository.findPastBookingsForItems(items, currentDate, PageRequest.of(from / size, size)));
+                return bookingRepository.findPastBookingsForOwner(user, currentDate, cursorStart, cursorId, pageable);
             case FUTURE:
-                return bookingsToBookingsDto(bookingRepository.findFutureBookingsForItems(items, currentDate, PageRequest.of(from / size, size)));
+                return bookingRepository.findFutureBookingsForOwner(user, currentDate, cursorStart, cursorId, pageable);
             case WAITING:
-                return bookingsToBookingsDto(bookingRepository.findWaitingOrRejectedBookingsForItems(items, BookingStatus.WAITING, PageRequest.of(from / size, size)));
+                return bookingRepository.findWaitingOrRejectedBookingsForOwner(user, BookingStatus.WAITING, cursorStart, cursorId, pageable);
             case REJECTED:
-                return bookingsToBookingsDto(bookingRepository.findWaitingOrRejectedBookingsForItems(items, BookingStatus.REJECTED, PageRequest.of(from / size, size)));
+                return bookingRepository.findWaitingOrRejectedBookingsForOwner(user, BookingStatus.REJECTED, cursorStart, cursorId, pageable);
             default:
-                return bookingsToBookingsDto(bookingRepository.findAllBookingsForItems(items, PageRequest.of(from / size, size)));
+                return bookingRepository.findAllBookingsForOwner(user, cursorStart, cursorId, pageable);
         }
     }
 
-    private BookingState getBookingStateValue(String state) {
-        List<BookingState> states = List.of(BookingState.values());
-        for (BookingState bookingState : states) {
-            if (state.equals(bookingState.toString())) {
-                return bookingState;
+    private boolean overlapsAny(Booking booking, List<Booking> others) {
+        for (Booking other : others) {
+            if (other.getStart().isBefore(booking.getEnd()) && booking.getStart().isBefore(other.getEnd())) {
+                return true;
             }
         }
-        throw new IllegalArgumentException("В поле state указано недопустимое значение");
+        return false;
     }
 
-    private Item getItemById(long itemId) {
-        if (itemRepository.findById(itemId).isEmpty()) {
-            String message = String.format("%s %d %s", "Вещь с id =", itemId, "не найдена");
+    private ValidationException overlapsApproved(Booking booking) {
+        String message = String.format("%s %d %s", "Вещь с id =", booking.getItem().getId(), "уже забронирована на указанные даты");
+        log.info(message);
+        return new ValidationException(message);
+    }
+
+    private void checkIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            String message = "Недопустимое значение ключа идемпотентности";
             log.info(message);
-            throw new NotFoundException(message);
+            throw new ValidationException(message);
         }
-        return itemRepository.findById(itemId).get();
     }
 
-    private User getUserById(long userId) {
-        if (userRepository.findById(userId).isEmpty()) {
-            String message = String.format("%s %d %s", "Пользователь с id =", userId, "не найден");
-            log.info(message);
-            throw new NotFoundException(message);
+    private BookingState getBookingStateValue(String state) {
+        List<BookingState> states = List.of(BookingState.values());
+        for (BookingState bookingState : states) {
+            if (state.equals(bookingState.toString())) {
+                return bookingState;
+            }
         }
-        return userRepository.findById(userId).get();
+        throw new IllegalArgumentException("В поле state указано недопустимое значение");
     }
 
-    private List<BookingDto> bookingsToBookingsDto(List<Booking> bookings) {
+    private List<BookingDto> viewsToBookingsDto(List<BookingView> bookingViews, boolean expand) {
         List<BookingDto> bookingsDto = new ArrayList<>();
-        for (Booking booking : bookings) {
-            bookingsDto.add(bookingToBookingDto(booking));
+        if (!expand) {
+            for (BookingView bookingView : bookingViews) {
+                bookingsDto.add(BookingDtoMapper.mapView(bookingView));
+            }
+            return bookingsDto;
+        }
+        List<Long> bookingIds = new ArrayList<>();
+        for (BookingView bookingView : bookingViews) {
+            bookingIds.add(bookingView.getId());
+        }
+        Map<Long, Booking> bookings = new HashMap<>();
+        if (!bookingIds.isEmpty()) {
+            for (Booking booking : bookingRepository.findBookingsWithDetailsByIds(bookingIds)) {
+                bookings.put(booking.getId(), booking);
+            }
+        }
+        for (Long bookingId : bookingIds) {
+            Booking booking = bookings.get(bookingId);
+            if (booking != null) {
+                bookingsDto.add(bookingToBookingDto(booking));
+            }
         }
         return bookingsDto;
     }
@@ -0,0 +1,131 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.ItemBookingSummaryRepository;
+import ru.practicum.shareit.booking.dto.ItemActiveBookingsView;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.ItemBookingSummary;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ItemBookingSummaryService {
+    static final int ROLL_FORWARD_BATCH_SIZE = 500;
+
+    final ItemBookingSummaryRepository itemBookingSummaryRepository;
+    final BookingRepository bookingRepository;
+
+    public ItemBookingSummaryService(ItemBookingSummaryRepository itemBookingSummaryRepository,
+                                     BookingRepository bookingRepository) {
+        this.itemBookingSummaryRepository = itemBookingSummaryRepository;
+        this.bookingRepository = bookingRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, ItemBookingSummary> getSummaries(Collection<Long> itemIds, LocalDateTime currentDate) {
+        Map<Long, ItemBookingSummary> summaries = new HashMap<>();
+        for (ItemBookingSummary summary : itemBookingSummaryRepository.findAllById(itemIds)) {
+            if (!summary.isStale(currentDate)) {
+                summaries.put(summary.getItemId(), summary);
+            }
+        }
+        List<Long> staleItemIds = new ArrayList<>();
+        for (Long itemId : itemIds) {
+            if (!summaries.containsKey(itemId)) {
+                staleItemIds.add(itemId);
+            }
+        }
+        if (!staleItemIds.isEmpty()) {
+            summaries.putAll(calculate(staleItemIds, currentDate));
+        }
+        return summaries;
+    }
+
+    @Transactional
+    public void createEmpty(long itemId) {
+        itemBookingSummaryRepository.insertEmpty(itemId);
+    }
+
+    @Transactional
+    public void createEmpty(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        itemBookingSummaryRepository.insertEmpty(itemIds);
+    }
+
+    @Transactional
+    public void refresh(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        itemBookingSummaryRepository.saveAll(calculate(itemIds, LocalDateTime.now()).values());
+    }
+
+    @Transactional
+    public void markStaleForBooker(long bookerId) {
+        itemBookingSummaryRepository.markStaleForBooker(bookerId, BookingStatus.APPROVED, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking-summary.roll-forward-delay:PT1M}")
+    @Transactional
+    public void rollForward() {
+        LocalDateTime currentDate = LocalDateTime.now();
+        List<Long> staleItemIds = new ArrayList<>();
+        for (ItemBookingSummary summary : itemBookingSummaryRepository
+                .claimStaleSummaries(currentDate, PageRequest.of(0, ROLL_FORWARD_BATCH_SIZE))) {
+            staleItemIds.add(summary.getItemId());
+        }
+        if (staleItemIds.isEmpty()) {
+            return;
+        }
+        itemBookingSummaryRepository.saveAll(calculate(staleItemIds, currentDate).values());
+        log.info(String.format("%s %d", "Пересчитано сводок бронирований вещей:", staleItemIds.size()));
+    }
+
+    private Map<Long, ItemBookingSummary> calculate(Collection<Long> itemIds, LocalDateTime currentDate) {
+        Map<Long, ItemBookingSummary> summaries = new HashMap<>();
+        for (Long itemId : itemIds) {
+            summaries.put(itemId, ItemBookingSummary.builder().itemId(itemId).build());
+        }
+        for (Booking booking : bookingRepository.findLastBookingsForItems(itemIds, currentDate, BookingStatus.APPROVED)) {
+            ItemBookingSummary summary = summaries.get(booking.getItem().getId());
+            if (summary.getLastBookingId() == null) {
+                summary.setLastBookingId(booking.getId());
+                summary.setLastBookerId(booking.getBooker().getId());
+            }
+        }
+        for (Booking booking : bookingRepository.findNextBookingsForItems(itemIds, currentDate, BookingStatus.APPROVED)) {
+            ItemBookingSummary summary = summaries.get(booking.getItem().getId());
+            if (summary.getNextBookingId() == null) {
+                summary.setNextBookingId(booking.getId());
+                summary.setNextBookerId(booking.getBooker().getId());
+                summary.setRefreshAt(booking.getStart());
+            }
+        }
+        for (ItemActiveBookingsView activeBookings : bookingRepository
+                .countActiveBookingsForItems(itemIds, BookingStatus.APPROVED, currentDate)) {
+            ItemBookingSummary summary = summaries.get(activeBookings.getItemId());
+            summary.setActiveBookingCount((int) activeBookings.getActiveCount());
+            if (summary.getRefreshAt() == null || activeBookings.getFirstEnd().isBefore(summary.getRefreshAt())) {
+                summary.setRefreshAt(activeBookings.getFirstEnd());
+            }
+        }
+        return summaries;
+    }
+}
@@ -0,0 +1,119 @@
+package ru.practicum.shareit.common;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.config.routing.ReplicaRoutingDataSource;
+import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemSnapshot;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.dto.ItemRequestSnapshot;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+import ru.practicum.shareit.user.UserSnapshot;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class EntityResolver {
+    UserRepository userRepository;
+    ItemRepository itemRepository;
+    ItemRequestRepository itemRequestRepository;
+    BookingRepository bookingRepository;
+
+    public EntityResolver(UserRepository userRepository,
+                          ItemRepository itemRepository,
+                          ItemRequestRepository itemRequestRepository,
+                          BookingRepository bookingRepository) {
+        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.itemRequestRepository = itemRequestRepository;
+        this.bookingRepository = bookingRepository;
+    }
+
+    public User getUser(long userId) {
+        return orElseNotFound(userRepository.findById(userId),
+                String.format("%s %d %s", "Пользователь с id =", userId, "не найден"));
+    }
+
+    public void lockUser(long userId) {
+        orElseNotFound(userRepository.lockUser(userId),
+                String.format("%s %d %s", "Пользователь с id =", userId, "не найден"));
+    }
+
+    public UserSnapshot getUserSnapshot(long userId) {
+        return orElseNotFound(userRepository.findSnapshotById(userId),
+                String.format("%s %d %s", "Пользователь с id =", userId, "не найден"));
+    }
+
+    public UserSnapshot getFreshUserSnapshot(long userId) {
+        ReplicaRoutingDataSource.requirePrimary();
+        return orElseNotFound(userRepository.findFreshSnapshotById(userId),
+                String.format("%s %d %s", "Пользователь с id =", userId, "не найден"));
+    }
+
+    public User getUserReference(long userId) {
+        getUserSnapshot(userId);
+        return userRepository.getReferenceById(userId);
+    }
+
+    public Item getFreshItem(long itemId) {
+        ReplicaRoutingDataSource.requirePrimary();
+        return getItem(itemId);
+    }
+
+    public Item getItem(long itemId) {
+        return orElseNotFound(itemRepository.findById(itemId),
+                String.format("%s %d %s", "Вещь с id =", itemId, "не найдена"));
+    }
+
+    public ItemSnapshot getItemSnapshot(long itemId) {
+        return orElseNotFound(itemRepository.findSnapshotById(itemId),
+                String.format("%s %d %s", "Вещь с id =", itemId, "не найдена"));
+    }
+
+    public ItemRequestSnapshot getItemRequestSnapshot(long requestId) {
+        return orElseNotFound(itemRequestRepository.findSnapshotById(requestId),
+                String.format("%s %d %s", "Заявка с id =", requestId, "не найдена"));
+    }
+
+    public ItemRequestSnapshot getFreshItemRequestSnapshot(long requestId) {
+        ReplicaRoutingDataSource.requirePrimary();
+        return orElseNotFound(itemRequestRepository.findFreshSnapshotById(requestId),
+                String.format("%s %d %s", "Заявка с id =", requestId, "не найдена"));
+    }
+
+    public Booking getBooking(long bookingId) {
+        return orElseNotFound(bookingRepository.findById(bookingId),
+                String.format("%s %d %s", "Бронь с id =", bookingId, "не найдена"));
+    }
+
+    public Map<Long, Item> findItems(Collection<Long> itemIds) {
+        Map<Long, Item> itemsById = new HashMap<>();
+        if (!itemIds.isEmpty()) {
+            for (Item item : itemRepository.findAllById(itemIds)) {
+                itemsById.put(item.getId(), item);
+            }
+        }
+        return itemsById;
+    }
+
+    private <T> T orElseNotFound(Optional<T> entity, String message) {
+        return entity.orElseThrow(() -> notFound(message));
+    }
+
+    private NotFoundException notFound(String message) {
+        log.info(message);
+        return new NotFoundException(message);
+    }
+}
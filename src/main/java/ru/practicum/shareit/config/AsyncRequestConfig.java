@@ -0,0 +1,50 @@
+package ru.practicum.shareit.config;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Runs the handlers passed through {@link AsyncRequests} on a pool sized to the JDBC pool, so a Tomcat worker
+ * is released while the request waits for the database. The pool is not a bean, so Boot's own task executor
+ * used by {@code @Async} and schedulers stays as it is.
+ */
+@Configuration
+@EnableConfigurationProperties(AsyncRequestProperties.class)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AsyncRequestConfig implements WebMvcConfigurer {
+    AsyncRequestProperties asyncRequestProperties;
+    ThreadPoolTaskExecutor requestExecutor = new ThreadPoolTaskExecutor();
+
+    public AsyncRequestConfig(AsyncRequestProperties asyncRequestProperties) {
+        this.asyncRequestProperties = asyncRequestProperties;
+        requestExecutor.setCorePoolSize(asyncRequestProperties.getPoolSize());
+        requestExecutor.setMaxPoolSize(asyncRequestProperties.getPoolSize());
+        requestExecutor.setQueueCapacity(asyncRequestProperties.getQueueCapacity());
+        requestExecutor.setThreadNamePrefix("shareit-request-");
+        requestExecutor.initialize();
+    }
+
+    @Bean
+    public AsyncRequests asyncRequests() {
+        return new AsyncRequests(asyncRequestProperties);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(requestExecutor);
+        configurer.setDefaultTimeout(asyncRequestProperties.getTimeout().toMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        requestExecutor.shutdown();
+    }
+}
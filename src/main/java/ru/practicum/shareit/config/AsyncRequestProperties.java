@@ -0,0 +1,18 @@
+package ru.practicum.shareit.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.server.async-requests")
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AsyncRequestProperties {
+    boolean enabled;
+    int poolSize = 50;
+    int queueCapacity = 1000;
+    Duration timeout = Duration.ofSeconds(30);
+}
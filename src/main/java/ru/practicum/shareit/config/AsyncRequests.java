@@ -0,0 +1,29 @@
+package ru.practicum.shareit.config;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * Hands a controller's work to the request pool as a {@link Callable} when
+ * {@code shareit.server.async-requests.enabled} is set, and runs it on the Tomcat worker otherwise. Spring MVC
+ * picks the return value handler from the runtime type, so controllers using it declare {@code Object}.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AsyncRequests {
+    AsyncRequestProperties asyncRequestProperties;
+
+    public AsyncRequests(AsyncRequestProperties asyncRequestProperties) {
+        this.asyncRequestProperties = asyncRequestProperties;
+    }
+
+    public <T> Object handle(Supplier<T> handler) {
+        if (!asyncRequestProperties.isEnabled()) {
+            return handler.get();
+        }
+        Callable<T> callable = handler::get;
+        return callable;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.shareit.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.practicum.shareit.config.routing.PrimaryOnlyCacheManager;
+
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        if (cacheProperties.getCaffeine().getSpec() != null) {
+            cacheManager.setCacheSpecification(cacheProperties.getCaffeine().getSpec());
+        }
+        cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        return new PrimaryOnlyCacheManager(new TransactionAwareCacheManagerProxy(cacheManager));
+    }
+
+    /**
+     * Boot's cache metrics registrar only unwraps {@code TransactionAwareCacheDecorator}, so it cannot see the
+     * Caffeine caches behind {@link PrimaryOnlyCacheManager}; bind their statistics directly instead.
+     */
+    @Bean
+    public MeterBinder cacheMetrics(CacheManager cacheManager) {
+        return registry -> cacheManager.getCacheNames().forEach(name -> {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache) {
+                CaffeineCacheMetrics.monitor(registry,
+                        (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache(),
+                        name, "cache.manager", "cache");
+            }
+        });
+    }
+}
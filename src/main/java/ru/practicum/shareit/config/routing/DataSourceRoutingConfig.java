@@ -0,0 +1,76 @@
+package ru.practicum.shareit.config.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(prefix = "shareit.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class DataSourceRoutingConfig implements WebMvcConfigurer {
+    ReadYourWritesTracker readYourWritesTracker;
+    ReadYourWritesInterceptor readYourWritesInterceptor;
+    List<HikariDataSource> pools = new ArrayList<>();
+
+    public DataSourceRoutingConfig(DataSourceRoutingProperties routingProperties) {
+        this.readYourWritesTracker = new ReadYourWritesTracker(routingProperties.getStickiness(),
+                routingProperties.getMaxStickyUsers(), Clock.systemUTC());
+        this.readYourWritesInterceptor = new ReadYourWritesInterceptor(readYourWritesTracker);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, DataSourceRoutingProperties routingProperties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pools.add(primary);
+        List<DataSource> replicas = new ArrayList<>();
+        for (DataSourceRoutingProperties.Replica replica : routingProperties.getReplicas()) {
+            HikariDataSource replicaDataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            pools.add(replicaDataSource);
+            replicas.add(replicaDataSource);
+        }
+        ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(replicas, routingProperties.getLagQuery(),
+                routingProperties.getMaxLag(), routingProperties.getLagCheckInterval(), Clock.systemUTC());
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replicas, lagMonitor, readYourWritesTracker));
+    }
+
+    @PreDestroy
+    public void closePools() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(readYourWritesInterceptor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(readYourWritesInterceptor);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.config.routing;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "shareit.datasource.routing")
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DataSourceRoutingProperties {
+    boolean enabled;
+    Duration maxLag = Duration.ofSeconds(5);
+    Duration lagCheckInterval = Duration.ofSeconds(5);
+    Duration stickiness = Duration.ofSeconds(10);
+    long maxStickyUsers = 100_000;
+    String lagQuery = "select case when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 " +
+            "else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+    List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Replica {
+        String url;
+        String username;
+        String password;
+    }
+}
@@ -0,0 +1,121 @@
+package ru.practicum.shareit.config.routing;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PrimaryOnlyCacheManager implements CacheManager {
+    CacheManager targetCacheManager;
+    ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public PrimaryOnlyCacheManager(CacheManager targetCacheManager) {
+        this.targetCacheManager = targetCacheManager;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache targetCache = targetCacheManager.getCache(name);
+        if (targetCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, key -> new PrimaryOnlyCache(targetCache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return targetCacheManager.getCacheNames();
+    }
+
+    @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+    private static class PrimaryOnlyCache implements Cache {
+        Cache targetCache;
+
+        PrimaryOnlyCache(Cache targetCache) {
+            this.targetCache = targetCache;
+        }
+
+        @Override
+        public String getName() {
+            return targetCache.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return targetCache.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return targetCache.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return targetCache.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            if (ReplicaRoutingDataSource.isReplicaRead()) {
+                ValueWrapper cached = targetCache.get(key);
+                if (cached != null) {
+                    @SuppressWarnings("unchecked")
+                    T value = (T) cached.get();
+                    return value;
+                }
+                try {
+                    return valueLoader.call();
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+            }
+            return targetCache.get(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            if (!ReplicaRoutingDataSource.isReplicaRead()) {
+                targetCache.put(key, value);
+            }
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            if (ReplicaRoutingDataSource.isReplicaRead()) {
+                return targetCache.get(key);
+            }
+            return targetCache.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            targetCache.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            return targetCache.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            targetCache.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            return targetCache.invalidate();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.shareit.config.routing;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Callable;
+
+/**
+ * Binds the request's user to the tracker on the thread that runs the handler: the Tomcat worker, or the request
+ * pool thread when the handler returns a {@link Callable}.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+    ReadYourWritesTracker readYourWritesTracker;
+
+    public ReadYourWritesInterceptor(ReadYourWritesTracker readYourWritesTracker) {
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        readYourWritesTracker.begin(request);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        readYourWritesTracker.end();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        readYourWritesTracker.end();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        readYourWritesTracker.begin(request.getNativeRequest(HttpServletRequest.class));
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        readYourWritesTracker.end();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.shareit.config.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+import javax.servlet.http.HttpServletRequest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the reads of a user who has just written to the primary for the stickiness window. Deadlines are kept
+ * per X-Sharer-User-Id in a bounded map, so every client acting for that user reads its writes.
+ */
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReadYourWritesTracker {
+    static final String USER_ID_HEADER = "X-Sharer-User-Id";
+
+    ThreadLocal<Long> currentUserId = new ThreadLocal<>();
+    Cache<Long, Instant> primaryUntil;
+    Duration stickiness;
+    Clock clock;
+
+    public ReadYourWritesTracker(Duration stickiness, long maxUsers, Clock clock) {
+        this.stickiness = stickiness;
+        this.clock = clock;
+        this.primaryUntil = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(stickiness)
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .build();
+    }
+
+    public void begin(HttpServletRequest request) {
+        currentUserId.remove();
+        String userId = request.getHeader(USER_ID_HEADER);
+        if (userId == null) {
+            return;
+        }
+        try {
+            currentUserId.set(Long.parseLong(userId.trim()));
+        } catch (NumberFormatException e) {
+            currentUserId.remove();
+        }
+    }
+
+    public void end() {
+        currentUserId.remove();
+    }
+
+    public void markWrite() {
+        Long userId = currentUserId.get();
+        if (userId != null) {
+            primaryUntil.put(userId, clock.instant().plus(stickiness));
+        }
+    }
+
+    public boolean isSticky() {
+        Long userId = currentUserId.get();
+        if (userId == null) {
+            return false;
+        }
+        Instant until = primaryUntil.getIfPresent(userId);
+        return until != null && clock.instant().isBefore(until);
+    }
+}
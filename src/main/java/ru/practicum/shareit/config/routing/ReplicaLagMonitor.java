@@ -0,0 +1,68 @@
+package ru.practicum.shareit.config.routing;
+
+import lombok.AccessLevel;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReplicaLagMonitor {
+    List<JdbcTemplate> replicas = new ArrayList<>();
+    AtomicReferenceArray<LagState> states;
+    String lagQuery;
+    Duration maxLag;
+    Duration checkInterval;
+    Clock clock;
+
+    public ReplicaLagMonitor(List<DataSource> replicas, String lagQuery, Duration maxLag, Duration checkInterval, Clock clock) {
+        for (DataSource replica : replicas) {
+            this.replicas.add(new JdbcTemplate(replica));
+        }
+        this.states = new AtomicReferenceArray<>(replicas.size());
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+        this.clock = clock;
+    }
+
+    public boolean isWithinTolerance(int replicaIndex) {
+        Instant now = clock.instant();
+        LagState state = states.get(replicaIndex);
+        if (state == null || !now.isBefore(state.getCheckedAt().plus(checkInterval))) {
+            state = new LagState(probe(replicaIndex), now);
+            states.set(replicaIndex, state);
+        }
+        return state.getLag() != null && state.getLag().compareTo(maxLag) <= 0;
+    }
+
+    private Duration probe(int replicaIndex) {
+        try {
+            Double lagSeconds = replicas.get(replicaIndex).queryForObject(lagQuery, Double.class);
+            Duration lag = lagSeconds == null ? null : Duration.ofMillis(Math.round(lagSeconds * 1000));
+            if (lag == null || lag.compareTo(maxLag) > 0) {
+                log.info(String.format("%s %d %s %s", "Реплика", replicaIndex, "отстаёт от основной базы:", lag));
+            }
+            return lag;
+        } catch (DataAccessException e) {
+            log.warn(String.format("%s %d %s", "Реплика", replicaIndex, "недоступна"), e);
+            return null;
+        }
+    }
+
+    @Value
+    private static class LagState {
+        Duration lag;
+        Instant checkedAt;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.shareit.config.routing;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    static final String PRIMARY = "primary";
+    static final String REPLICA = "replica-";
+    static final Object REPLICA_READ = new Object();
+    static final Object PRIMARY_REQUIRED = new Object();
+
+    List<String> replicaKeys = new ArrayList<>();
+    AtomicInteger nextReplica = new AtomicInteger();
+    ReplicaLagMonitor lagMonitor;
+    ReadYourWritesTracker readYourWritesTracker;
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    List<DataSource> replicas,
+                                    ReplicaLagMonitor lagMonitor,
+                                    ReadYourWritesTracker readYourWritesTracker) {
+        this.lagMonitor = lagMonitor;
+        this.readYourWritesTracker = readYourWritesTracker;
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            replicaKeys.add(REPLICA + i);
+            targetDataSources.put(REPLICA + i, replicas.get(i));
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.hasResource(PRIMARY_REQUIRED)) {
+            return PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                readYourWritesTracker.markWrite();
+            }
+            return PRIMARY;
+        }
+        if (readYourWritesTracker.isSticky()) {
+            return PRIMARY;
+        }
+        for (int attempt = 0; attempt < replicaKeys.size(); attempt++) {
+            int replicaIndex = Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size());
+            if (lagMonitor.isWithinTolerance(replicaIndex)) {
+                markReplicaRead();
+                return replicaKeys.get(replicaIndex);
+            }
+        }
+        return PRIMARY;
+    }
+
+    public static boolean isReplicaRead() {
+        return TransactionSynchronizationManager.hasResource(REPLICA_READ);
+    }
+
+    public static void requirePrimary() {
+        bindUntilCompletion(PRIMARY_REQUIRED);
+    }
+
+    private void markReplicaRead() {
+        bindUntilCompletion(REPLICA_READ);
+    }
+
+    private static void bindUntilCompletion(Object key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(key)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(key, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(key);
+            }
+        });
+    }
+}
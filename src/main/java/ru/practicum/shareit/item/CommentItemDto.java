@@ -0,0 +1,16 @@
+package ru.practicum.shareit.item;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CommentItemDto {
+    long id;
+    String name;
+    String description;
+    Boolean available;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.item;
+
+import java.time.LocalDateTime;
+
+public interface CommentPreviewView {
+    long getId();
+
+    long getItemId();
+
+    String getAuthorName();
+
+    long getAuthorVersion();
+
+    LocalDateTime getCreated();
+
+    String getText();
+}
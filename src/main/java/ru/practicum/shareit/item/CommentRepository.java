@@ -1,13 +1,25 @@
 package ru.practicum.shareit.item;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.model.Comment;
-import ru.practicum.shareit.item.model.Item;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    @Query(value = "select c from Comment c where c.item = :item")
-    List<Comment> findCommentsByItem(Item item);
+    @Query(value = "select c.id as id, c.item_id as itemId, u.name as authorName, u.version as authorVersion, " +
+            "c.create_date as created, c.text as text " +
+            "from (select cc.*, row_number() over (partition by cc.item_id order by cc.create_date desc, cc.id desc) as rn " +
+            "from comments cc where cc.item_id in (:itemIds)) c " +
+            "join users u on u.id = c.author_id " +
+            "where c.rn <= :limit " +
+            "order by c.item_id, c.create_date desc, c.id desc", nativeQuery = true)
+    List<CommentPreviewView> findLatestCommentsByItems(Collection<Long> itemIds, int limit);
+
+    @EntityGraph(value = "Comment.detail")
+    @Query(value = "select c from Comment c where c.item.id = :itemId order by c.createDate desc, c.id desc")
+    List<Comment> findCommentsByItem(long itemId, Pageable pageable);
 }
\ No newline at end of file
@@ -19,6 +19,8 @@ public class ItemDto {
     Boolean available;
     LastAndNextBookingDto lastBooking;
     LastAndNextBookingDto nextBooking;
+    Integer activeBookingCount;
     List<CommentDto> comments;
+    int commentCount;
     long requestId;
 }
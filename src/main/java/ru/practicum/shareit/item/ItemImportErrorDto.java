@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ItemImportErrorDto {
+    int index;
+    String error;
+}
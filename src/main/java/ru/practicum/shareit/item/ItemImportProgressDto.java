@@ -0,0 +1,17 @@
+package ru.practicum.shareit.item;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ItemImportProgressDto {
+    int processed;
+    int imported;
+    List<ItemImportErrorDto> errors;
+}
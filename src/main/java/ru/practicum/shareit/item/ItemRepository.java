@@ -1,26 +1,57 @@
 package ru.practicum.shareit.item;
 
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemRepositoryCustom {
+    @Cacheable(value = "items", key = "#p0", unless = "#result == null")
+    @Query(value = "select new ru.practicum.shareit.item.ItemSnapshot(i.id, i.name, i.description, i.available, " +
+            "i.owner.id, i.version) from Item i where i.id = :id")
+    Optional<ItemSnapshot> findSnapshotById(long id);
+
+    @Override
+    @CacheEvict(value = "items", key = "#p0.id")
+    <S extends Item> S save(S item);
+
+    @Query(value = "select i.version as version, i.owner_id as ownerId, i.comment_count as commentCount, " +
+            "(select coalesce(sum(u.version), 0) from (select c.author_id from comments c where c.item_id = :itemId " +
+            "order by c.create_date desc, c.id desc limit :previewSize) lc join users u on u.id = lc.author_id) " +
+            "as previewAuthorVersionSum from items i where i.id = :itemId", nativeQuery = true)
+    Optional<ItemVersionView> findItemVersionById(long itemId, int previewSize);
 
-public interface ItemRepository extends JpaRepository<Item, Long> {
     @Query(value = "select i from Item i where i.owner = :user order by i.id asc")
     List<Item> findItemsForUserWithPage(User user, Pageable pageable);
 
-    @Query(value = "select i from Item i where i.owner = :user order by i.id asc")
-    List<Item> findItemsForUser(User user);
+    @Query(value = "select id from items where id in :itemIds order by id for update", nativeQuery = true)
+    List<Long> lockItems(Collection<Long> itemIds);
+
+    @Query(value = "select i from Item i where i.itemRequest.id in :requestIds order by i.id asc")
+    List<Item> findItemsByRequestIdIn(Collection<Long> requestIds);
+
+    @Query(value = "select count(i) as itemCount, coalesce(max(i.id), 0) as maxItemId, " +
+            "coalesce(sum(i.version), 0) as versionSum from Item i where i.itemRequest.id = :requestId")
+    ItemVersionsView findItemVersionsByRequestId(long requestId);
 
-    @Query(value = "select i from Item i " +
-            "where (lower(i.name) like lower(concat('%', :textName, '%')) or lower(i.description) like lower(concat('%', :textDesc, '%')))" +
-            "and i.available is true")
-    List<Item> findAvailableItemsByNameOrDescription(String textName, String textDesc, Pageable pageable);
+    @CacheEvict(value = "items", key = "#p0")
+    @Modifying
+    @Query(value = "update Item i set i.commentCount = i.commentCount + 1, i.version = i.version + 1 where i.id = :itemId")
+    int incrementCommentCount(long itemId);
 
-    @Query(value = "select * from items where item_request_id = :requestId", nativeQuery = true)
-    List<Item> findItemsByRequests(long requestId);
+    @CacheEvict(value = "items", allEntries = true)
+    @Modifying
+    @Query(value = "update Item i set i.commentCount = i.commentCount - " +
+            "(select count(c) from Comment c where c.item = i and c.author.id = :authorId), i.version = i.version + 1 " +
+            "where i.id in (select c.item.id from Comment c where c.author.id = :authorId)")
+    int decrementCommentCountsForAuthor(long authorId);
 }
@@ -0,0 +1,88 @@
+package ru.practicum.shareit.item;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ItemRepositoryCustomImpl implements ItemRepositoryCustom {
+    static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    static final String SEARCH_VECTOR = "(setweight(to_tsvector('simple', name), 'A') || " +
+            "setweight(to_tsvector('simple', description), 'B'))";
+    static final String FULL_TEXT_SEARCH_SQL = "select id from items " +
+            "where available = true and " + SEARCH_VECTOR + " @@ to_tsquery('simple', ?) " +
+            "order by ts_rank(" + SEARCH_VECTOR + ", to_tsquery('simple', ?)) desc, id " +
+            "limit ? offset ?";
+
+    final JdbcTemplate jdbcTemplate;
+    volatile Boolean fullTextSearch;
+
+    public ItemRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> searchAvailableItemIds(String text, int from, int size) {
+        List<String> terms = tokenize(text);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (isFullTextSearch()) {
+            String query = toPrefixQuery(terms);
+            return jdbcTemplate.queryForList(FULL_TEXT_SEARCH_SQL, Long.class, query, query, size, from);
+        }
+        StringBuilder sql = new StringBuilder("select id from items where available = true");
+        List<Object> args = new ArrayList<>();
+        for (String term : terms) {
+            sql.append(" and (regexp_like(lower(name), ?) or regexp_like(lower(description), ?))");
+            args.add(toWordPrefixPattern(term));
+            args.add(toWordPrefixPattern(term));
+        }
+        sql.append(" order by id limit ? offset ?");
+        args.add(size);
+        args.add(from);
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+
+    private boolean isFullTextSearch() {
+        if (fullTextSearch == null) {
+            fullTextSearch = "PostgreSQL".equals(jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName()));
+        }
+        return fullTextSearch;
+    }
+
+    static String toPrefixQuery(List<String> terms) {
+        List<String> prefixes = new ArrayList<>();
+        for (String term : terms) {
+            prefixes.add(term + ":*");
+        }
+        return String.join(" & ", prefixes);
+    }
+
+    /**
+     * Matches the term at the start of a word, like the {@code term:*} prefix query, so that the fallback
+     * used on databases without full-text search finds the same items as PostgreSQL.
+     */
+    static String toWordPrefixPattern(String term) {
+        return "(^|[^\\p{L}\\p{N}])" + Pattern.quote(term);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String term : TOKEN_SEPARATOR.split(text.toLowerCase())) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+}
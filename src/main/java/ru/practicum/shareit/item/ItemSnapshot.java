@@ -0,0 +1,13 @@
+package ru.practicum.shareit.item;
+
+import lombok.Value;
+
+@Value
+public class ItemSnapshot {
+    long id;
+    String name;
+    String description;
+    Boolean available;
+    Long ownerId;
+    long version;
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.item;
+
+public interface ItemVersionView {
+    long getVersion();
+
+    long getOwnerId();
+
+    int getCommentCount();
+
+    long getPreviewAuthorVersionSum();
+}
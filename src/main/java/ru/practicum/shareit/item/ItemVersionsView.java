@@ -0,0 +1,9 @@
+package ru.practicum.shareit.item;
+
+public interface ItemVersionsView {
+    long getItemCount();
+
+    long getMaxItemId();
+
+    long getVersionSum();
+}
@@ -1,19 +1,39 @@
 package ru.practicum.shareit.item.controller;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.practicum.shareit.config.AsyncRequests;
+import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.CommentDto;
 import ru.practicum.shareit.item.ItemDto;
 import ru.practicum.shareit.item.RequestBodyItemDto;
 import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.service.ItemImportService;
 import ru.practicum.shareit.item.service.ItemService;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @Slf4j
@@ -21,13 +41,29 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class ItemController {
     final ItemService itemService;
+    final ItemImportService itemImportService;
+    final AsyncRequests asyncRequests;
+    final ObjectMapper objectMapper;
+    final ObjectReader csvItemReader;
 
     final String pathIdItem = "/{itemId}";
+    final String pathBatch = "/batch";
     final String headerUserValue = "X-Sharer-User-Id";
+    final String ndjsonContentType = "application/x-ndjson";
 
     @Autowired
-    public ItemController(@Qualifier("ItemServiceImpl") ItemService itemService) {
+    public ItemController(@Qualifier("ItemServiceImpl") ItemService itemService,
+                          ItemImportService itemImportService,
+                          AsyncRequests asyncRequests,
+                          ObjectMapper objectMapper) {
         this.itemService = itemService;
+        this.itemImportService = itemImportService;
+        this.asyncRequests = asyncRequests;
+        this.objectMapper = objectMapper;
+        CsvMapper csvMapper = new CsvMapper();
+        csvMapper.enable(CsvParser.Feature.EMPTY_STRING_AS_NULL);
+        csvMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.csvItemReader = csvMapper.readerFor(RequestBodyItemDto.class).with(CsvSchema.emptySchema().withHeader());
     }
 
     @PostMapping
@@ -36,6 +72,20 @@ public class ItemController {
         return itemService.addNewItem(requestBodyItemDto, userId);
     }
 
+    @PostMapping(path = pathBatch, consumes = ndjsonContentType)
+    public void importItemsNdjson(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info(String.format("%s %d", "Запрос на загрузку вещей в формате NDJSON пользователя id =", userId));
+        importItems(objectMapper.readerFor(RequestBodyItemDto.class), userId, request, response);
+    }
+
+    @PostMapping(path = pathBatch, consumes = "text/csv")
+    public void importItemsCsv(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info(String.format("%s %d", "Запрос на загрузку вещей в формате CSV пользователя id =", userId));
+        importItems(csvItemReader, userId, request, response);
+    }
+
     @PostMapping(pathIdItem + "/comment")
     public CommentDto addNewComment(@RequestHeader(value = headerUserValue, required = false) Long userId, @RequestBody Comment comment, @PathVariable long itemId) {
         log.info("Запрос на добавление нового комментария");
@@ -51,25 +101,67 @@ public class ItemController {
 
 
     @GetMapping
-    public List<ItemDto> getAllItems(@RequestHeader(value = headerUserValue, required = false) Long userId,
-                                     @RequestParam(defaultValue = "0") Integer from,
-                                     @RequestParam(defaultValue = "10") Integer size) {
+    public Object getAllItems(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                              @RequestParam(defaultValue = "0") Integer from,
+                              @RequestParam(defaultValue = "10") Integer size) {
         log.info("Запрос на вывод всех товаров");
-        return itemService.getAllItems(userId, from, size);
+        return asyncRequests.handle(() -> itemService.getAllItems(userId, from, size));
     }
 
     @GetMapping(pathIdItem)
-    public ItemDto getItemById(@RequestHeader(value = headerUserValue, required = false) Long userId, @PathVariable long itemId) {
+    public ItemDto getItemById(@RequestHeader(value = headerUserValue, required = false) Long userId, @PathVariable long itemId,
+                               WebRequest webRequest) {
         log.info(String.format("%s %d", "Запрос на вывод товара с id =", itemId));
-        return itemService.getItemById(itemId, userId);
+        return itemService.getItemById(itemId, userId, webRequest::checkNotModified);
+    }
+
+    @GetMapping(pathIdItem + "/comments")
+    public List<CommentDto> getItemComments(@PathVariable long itemId,
+                                            @RequestParam(defaultValue = "0") Integer from,
+                                            @RequestParam(defaultValue = "10") Integer size) {
+        log.info(String.format("%s %d", "Запрос на вывод комментариев к товару с id =", itemId));
+        return itemService.getItemComments(itemId, from, size);
     }
 
     @GetMapping("/search")
-    public List<ItemDto> getItemByNameOrDescription(@RequestHeader(value = headerUserValue, required = false) Long userId,
-                                                    @RequestParam String text,
-                                                    @RequestParam(defaultValue = "0") Integer from,
-                                                    @RequestParam(defaultValue = "10") Integer size) {
+    public Object getItemByNameOrDescription(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                             @RequestParam String text,
+                                             @RequestParam(defaultValue = "0") Integer from,
+                                             @RequestParam(defaultValue = "10") Integer size) {
         log.info("Запрос на вывод товара по имени или описанию");
-        return itemService.getItemByNameOrDescription(text, userId, from, size);
+        return asyncRequests.handle(() -> itemService.getItemByNameOrDescription(text, userId, from, size));
+    }
+
+    private void importItems(ObjectReader reader, Long userId, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        try (MappingIterator<RequestBodyItemDto> items = reader.readValues(request.getInputStream())) {
+            itemImportService.importItems(items, userId, progress -> {
+                try {
+                    writeImportLine(response, objectMapper.writeValueAsString(progress));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (!(e instanceof RuntimeJsonMappingException) && !(e.getCause() instanceof JsonProcessingException)) {
+                throw e;
+            }
+            String message = "Некорректная строка в загрузке вещей";
+            log.info(message);
+            if (!response.isCommitted()) {
+                throw new ValidationException(message);
+            }
+            writeImportLine(response, objectMapper.writeValueAsString(Map.of("error", message)));
+        }
+    }
+
+    private void writeImportLine(HttpServletResponse response, String line) throws IOException {
+        if (!response.isCommitted()) {
+            response.setContentType(ndjsonContentType);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+        PrintWriter writer = response.getWriter();
+        writer.println(line);
+        writer.flush();
     }
-}
\ No newline at end of file
+}
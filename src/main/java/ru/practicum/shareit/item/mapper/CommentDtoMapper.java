@@ -1,16 +1,41 @@
 package ru.practicum.shareit.item.mapper;
 
 import ru.practicum.shareit.item.CommentDto;
+import ru.practicum.shareit.item.CommentItemDto;
+import ru.practicum.shareit.item.CommentPreviewView;
 import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
 
 public class CommentDtoMapper {
     public static CommentDto mapRow(Comment comment) {
         return CommentDto.builder()
                 .id(comment.getId())
-                .item(comment.getItem())
+                .item(itemToCommentItemDto(comment.getItem()))
                 .authorName(comment.getAuthor().getName())
                 .created(comment.getCreateDate())
                 .text(comment.getText())
                 .build();
     }
-}
\ No newline at end of file
+
+    public static CommentDto mapPreview(CommentPreviewView comment, Item item) {
+        return CommentDto.builder()
+                .id(comment.getId())
+                .item(itemToCommentItemDto(item))
+                .authorName(comment.getAuthorName())
+                .created(comment.getCreated())
+                .text(comment.getText())
+                .build();
+    }
+
+    private static CommentItemDto itemToCommentItemDto(Item item) {
+        if (item == null) {
+            return null;
+        }
+        return CommentItemDto.builder()
+                .id(item.getId())
+                .name(item.getName())
+                .description(item.getDescription())
+                .available(item.getAvailable())
+                .build();
+    }
+}
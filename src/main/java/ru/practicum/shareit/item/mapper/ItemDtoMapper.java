@@ -11,6 +11,7 @@ public class ItemDtoMapper {
                 .name(item.getName())
                 .description(item.getDescription())
                 .available(item.getAvailable())
+                .commentCount(item.getCommentCount())
                 .build();
         if (item.getItemRequest() != null) {
             itemDto.setRequestId(item.getItemRequest().getId());
@@ -19,7 +19,8 @@ import javax.persistence.*;
 public class Item {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @SequenceGenerator(name = "items_seq", sequenceName = "items_seq", allocationSize = 50)
     long id;
     @Column(name = "name", nullable = false)
     String name;
@@ -27,10 +28,15 @@ public class Item {
     String description;
     @Column(name = "available", nullable = false)
     Boolean available;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", referencedColumnName = "id")
     User owner;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_request_id", referencedColumnName = "id")
     ItemRequest itemRequest;
+    @Column(name = "comment_count", insertable = false, updatable = false)
+    int commentCount;
+    @Version
+    @Column(name = "version", nullable = false)
+    long version;
 }
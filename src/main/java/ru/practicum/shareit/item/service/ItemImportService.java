@@ -0,0 +1,140 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.service.ItemBookingSummaryService;
+import ru.practicum.shareit.common.EntityResolver;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.ItemImportErrorDto;
+import ru.practicum.shareit.item.ItemImportProgressDto;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.RequestBodyItemDto;
+import ru.practicum.shareit.item.mapper.RequestBodyItemDtoMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.User;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Slf4j
+@Service
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ItemImportService {
+    static final int IMPORT_CHUNK_SIZE = 1000;
+
+    final ItemRepository itemRepository;
+    final ItemRequestRepository itemRequestRepository;
+    final ItemBookingSummaryService itemBookingSummaryService;
+    final EntityResolver entityResolver;
+    final EntityManager entityManager;
+    final TransactionTemplate transactionTemplate;
+    final ItemValidation itemValidation = new ItemValidation();
+
+    public ItemImportService(ItemRepository itemRepository,
+                             ItemRequestRepository itemRequestRepository,
+                             ItemBookingSummaryService itemBookingSummaryService,
+                             EntityResolver entityResolver,
+                             EntityManager entityManager,
+                             TransactionTemplate transactionTemplate) {
+        this.itemRepository = itemRepository;
+        this.itemRequestRepository = itemRequestRepository;
+        this.itemBookingSummaryService = itemBookingSummaryService;
+        this.entityResolver = entityResolver;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public ItemImportProgressDto importItems(Iterator<RequestBodyItemDto> items, Long userId,
+                                             Consumer<ItemImportProgressDto> progressConsumer) {
+        if (userId == null) {
+            String message = "Не указан id владельца";
+            log.info(message);
+            throw new ValidationException(message);
+        }
+        entityResolver.getUserReference(userId);
+        Map<Long, Boolean> knownRequests = new HashMap<>();
+        ItemImportProgressDto progress = ItemImportProgressDto.builder().errors(new ArrayList<>()).build();
+        List<RequestBodyItemDto> chunk = new ArrayList<>();
+        do {
+            chunk.clear();
+            while (items.hasNext() && chunk.size() < IMPORT_CHUNK_SIZE) {
+                chunk.add(items.next());
+            }
+            int firstIndex = progress.getProcessed();
+            List<ItemImportErrorDto> errors = new ArrayList<>();
+            List<Item> savedItems = transactionTemplate.execute(status ->
+                    saveChunk(chunk, firstIndex, userId, knownRequests, errors));
+            progress = ItemImportProgressDto.builder()
+                    .processed(firstIndex + chunk.size())
+                    .imported(progress.getImported() + savedItems.size())
+                    .errors(errors)
+                    .build();
+            progressConsumer.accept(progress);
+            log.info(String.format("%s %d %s %d %s %d", "Загрузка вещей пользователя с id =", userId,
+                    "обработано строк:", progress.getProcessed(), "сохранено:", progress.getImported()));
+        } while (items.hasNext());
+        return progress;
+    }
+
+    private List<Item> saveChunk(List<RequestBodyItemDto> chunk, int firstIndex, long userId,
+                                 Map<Long, Boolean> knownRequests, List<ItemImportErrorDto> errors) {
+        resolveRequests(chunk, knownRequests);
+        User owner = entityManager.getReference(User.class, userId);
+        List<Item> newItems = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            RequestBodyItemDto requestBodyItemDto = chunk.get(i);
+            try {
+                itemValidation.itemValidation(requestBodyItemDto, userId);
+            } catch (ValidationException e) {
+                errors.add(new ItemImportErrorDto(firstIndex + i, e.getMessage()));
+                continue;
+            }
+            Item item = RequestBodyItemDtoMapper.mapRow(requestBodyItemDto);
+            item.setOwner(owner);
+            Long itemRequestId = requestBodyItemDto.getRequestId();
+            if (itemRequestId != null && knownRequests.get(itemRequestId)) {
+                item.setItemRequest(entityManager.getReference(ItemRequest.class, itemRequestId));
+            }
+            newItems.add(item);
+        }
+        itemRepository.saveAll(newItems);
+        entityManager.flush();
+        List<Long> itemIds = new ArrayList<>();
+        for (Item item : newItems) {
+            itemIds.add(item.getId());
+        }
+        itemBookingSummaryService.createEmpty(itemIds);
+        return newItems;
+    }
+
+    private void resolveRequests(List<RequestBodyItemDto> chunk, Map<Long, Boolean> knownRequests) {
+        Set<Long> unknownRequestIds = new HashSet<>();
+        for (RequestBodyItemDto requestBodyItemDto : chunk) {
+            Long itemRequestId = requestBodyItemDto.getRequestId();
+            if (itemRequestId != null && !knownRequests.containsKey(itemRequestId)) {
+                unknownRequestIds.add(itemRequestId);
+            }
+        }
+        if (unknownRequestIds.isEmpty()) {
+            return;
+        }
+        for (Long itemRequestId : unknownRequestIds) {
+            knownRequests.put(itemRequestId, false);
+        }
+        for (ItemRequest itemRequest : itemRequestRepository.findAllById(unknownRequestIds)) {
+            knownRequests.put(itemRequest.getId(), true);
+        }
+    }
+}
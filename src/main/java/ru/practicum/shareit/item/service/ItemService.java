@@ -7,6 +7,7 @@ import ru.practicum.shareit.item.RequestBodyItemDto;
 import ru.practicum.shareit.item.model.Comment;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface ItemService {
     ItemDto addNewItem(RequestBodyItemDto requestBodyItemDto, Long userId);
@@ -17,7 +18,9 @@ public interface ItemService {
 
     List<ItemDto> getAllItems(Long userId, Integer from, Integer size);
 
-    ItemDto getItemById(long itemId, Long userId);
+    ItemDto getItemById(long itemId, Long userId, Predicate<String> notModified);
+
+    List<CommentDto> getItemComments(long itemId, Integer from, Integer size);
 
     List<ItemDto> getItemByNameOrDescription(String text, Long userId, Integer from, Integer size);
 
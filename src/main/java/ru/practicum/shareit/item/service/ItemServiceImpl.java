@@ -5,11 +5,15 @@ import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.mapper.LastAndNextBookingDtoMapper;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.ItemBookingSummary;
 import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.service.ItemBookingSummaryService;
+import ru.practicum.shareit.common.EntityResolver;
+import ru.practicum.shareit.config.routing.ReplicaRoutingDataSource;
 import ru.practicum.shareit.exception.ForbiddenException;
 import ru.practicum.shareit.exception.InternalServerException;
 import ru.practicum.shareit.exception.NotFoundException;
@@ -22,46 +26,62 @@ import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.CommentRepository;
 import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PaginationProperties;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 @Slf4j
 @Service
 @Qualifier("ItemServiceImpl")
 @FieldDefaults(level = AccessLevel.PRIVATE)
+@Transactional(readOnly = true)
 public class ItemServiceImpl implements ItemService {
+    static final int COMMENT_PREVIEW_SIZE = 10;
+
     final ItemRepository itemRepository;
-    final UserRepository userRepository;
     final BookingRepository bookingRepository;
     final CommentRepository commentRepository;
     final ItemRequestRepository itemRequestRepository;
+    final ItemBookingSummaryService itemBookingSummaryService;
+    final EntityResolver entityResolver;
+    final PaginationProperties paginationProperties;
     final ItemValidation itemValidation = new ItemValidation();
     final CommentValidation commentValidation = new CommentValidation();
 
     @Autowired
     public ItemServiceImpl(ItemRepository itemRepository,
-                           UserRepository userRepository,
                            BookingRepository bookingRepository,
                            CommentRepository commentRepository,
-                           ItemRequestRepository itemRequestRepository) {
+                           ItemRequestRepository itemRequestRepository,
+                           ItemBookingSummaryService itemBookingSummaryService,
+                           EntityResolver entityResolver,
+                           PaginationProperties paginationProperties) {
         this.itemRepository = itemRepository;
-        this.userRepository = userRepository;
         this.bookingRepository = bookingRepository;
         this.commentRepository = commentRepository;
         this.itemRequestRepository = itemRequestRepository;
+        this.itemBookingSummaryService = itemBookingSummaryService;
+        this.entityResolver = entityResolver;
+        this.paginationProperties = paginationProperties;
     }
 
     @Override
+    @Transactional
     public ItemDto addNewItem(RequestBodyItemDto requestBodyItemDto, Long userId) {
         itemValidation.itemValidation(requestBodyItemDto, userId);
         Item item = RequestBodyItemDtoMapper.mapRow(requestBodyItemDto);
-        User owner = getUserById(userId);
+        User owner = entityResolver.getUserReference(userId);
         Long itemRequestId = requestBodyItemDto.getRequestId();
         if (itemRequestId != null) {
             ItemRequest itemRequest = getRequestById(requestBodyItemDto.getRequestId());
@@ -69,25 +89,17 @@ public class ItemServiceImpl implements ItemService {
         }
         item.setOwner(owner);
         Item savedItem = itemRepository.save(item);
+        itemBookingSummaryService.createEmpty(savedItem.getId());
         return itemToItemDto(savedItem, userId);
     }
 
     @Override
+    @Transactional
     public CommentDto addNewComment(Comment comment, Long userId, long itemId) {
         commentValidation.commentValidation(comment);
         LocalDateTime currentDate = LocalDateTime.now();
-        if (itemRepository.findById(itemId).isEmpty()) {
-            String message = String.format("%s %d %s", "Вещь с id =", itemId, "не найдена");
-            log.info(message);
-            throw new NotFoundException(message);
-        }
-        Item item = itemRepository.findById(itemId).get();
-        if (userRepository.findById(userId).isEmpty()) {
-            String message = String.format("%s %d %s", "Пользователь с id =", userId, "не найден");
-            log.info(message);
-            throw new NotFoundException(message);
-        }
-        User user = userRepository.findById(userId).get();
+        Item item = entityResolver.getItem(itemId);
+        User user = entityResolver.getUser(userId);
         if (bookingRepository.findPastBookingsForUserAndItem(item, user, BookingStatus.APPROVED, currentDate).isEmpty()) {
             String message = String.format("%s %d %s %d", "У пользователя с id =", userId, "нет бронирований для вещи с id=", itemId);
             log.info(message);
@@ -96,38 +108,60 @@ public class ItemServiceImpl implements ItemService {
         comment.setItem(item);
         comment.setCreateDate(currentDate);
         comment.setAuthor(user);
-        return CommentDtoMapper.mapRow(commentRepository.save(comment));
+        CommentDto commentDto = CommentDtoMapper.mapRow(commentRepository.save(comment));
+        itemRepository.incrementCommentCount(itemId);
+        return commentDto;
     }
 
     @Override
+    @Transactional
     public ItemDto updateItem(long itemId, RequestBodyItemDto requestBodyItemDto, Long userId) {
-        Item item = RequestBodyItemDtoMapper.mapRow(requestBodyItemDto);
-        Item checkedItem = checkFieldsForUpdate(item, itemId, userId);
+        Item item = checkFieldsForUpdate(requestBodyItemDto, itemId, userId);
         if (requestBodyItemDto.getRequestId() != null) {
             ItemRequest itemRequest = getRequestById(requestBodyItemDto.getRequestId());
-            checkedItem.setItemRequest(itemRequest);
+            item.setItemRequest(itemRequest);
         }
-        User owner = getUserById(userId);
-        checkedItem.setOwner(owner);
-        checkedItem.setId(itemId);
-        return itemToItemDto(itemRepository.save(checkedItem), userId);
+        Item savedItem = itemRepository.save(item);
+        return itemToItemDto(savedItem, userId);
     }
 
     @Override
     public List<ItemDto> getAllItems(Long userId, Integer from, Integer size) {
         checkFormAndSize(from, size);
-        User user = getUserById(userId);
-        return itemsToItemsDto(itemRepository.findItemsForUserWithPage(user, PageRequest.of(from / size, size)), userId);
+        User user = entityResolver.getUserReference(userId);
+        return itemsToItemsDto(itemRepository.findItemsForUserWithPage(user,
+                OffsetPageRequest.of(from, paginationProperties.limit(size))), userId);
     }
 
     @Override
-    public ItemDto getItemById(long itemId, Long userId) {
-        if (itemRepository.findById(itemId).isEmpty()) {
+    public ItemDto getItemById(long itemId, Long userId, Predicate<String> notModified) {
+        ReplicaRoutingDataSource.requirePrimary();
+        ItemVersionView itemVersion = itemRepository.findItemVersionById(itemId, COMMENT_PREVIEW_SIZE).orElseThrow(() -> {
             String message = String.format("%s %d %s", "Вещь с id =", itemId, "не найдена");
             log.info(message);
-            throw new NotFoundException(message);
+            return new NotFoundException(message);
+        });
+        Map<Long, ItemBookingSummary> bookingSummaries = new HashMap<>();
+        if (Long.valueOf(itemVersion.getOwnerId()).equals(userId)) {
+            bookingSummaries = itemBookingSummaryService.getSummaries(List.of(itemId), LocalDateTime.now());
+        }
+        if (notModified.test(getItemETag(itemId, itemVersion, bookingSummaries.get(itemId)))) {
+            return null;
+        }
+        List<Item> items = List.of(entityResolver.getItem(itemId));
+        return itemsToItemsDto(items, userId, bookingSummaries, findCommentPreviews(items)).get(0);
+    }
+
+    @Override
+    public List<CommentDto> getItemComments(long itemId, Integer from, Integer size) {
+        checkFormAndSize(from, size);
+        entityResolver.getItemSnapshot(itemId);
+        List<CommentDto> commentsDto = new ArrayList<>();
+        for (Comment comment : commentRepository.findCommentsByItem(itemId,
+                OffsetPageRequest.of(from, paginationProperties.limit(size)))) {
+            commentsDto.add(CommentDtoMapper.mapRow(comment));
         }
-        return itemToItemDto(itemRepository.findById(itemId).get(), userId);
+        return commentsDto;
     }
 
     @Override
@@ -136,13 +170,40 @@ public class ItemServiceImpl implements ItemService {
         if (text.equals("")) {
             return new ArrayList<>();
         }
-        return itemsToItemsDto(itemRepository.findAvailableItemsByNameOrDescription(text, text, PageRequest.of(from / size, size)), userId);
+        List<Long> pageItemIds = itemRepository.searchAvailableItemIds(text, from, paginationProperties.limit(size));
+        Map<Long, Item> itemsById = entityResolver.findItems(pageItemIds);
+        List<Item> items = new ArrayList<>();
+        for (Long itemId : pageItemIds) {
+            Item item = itemsById.get(itemId);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return itemsToItemsDto(items, userId);
     }
 
     private List<ItemDto> itemsToItemsDto(List<Item> items, Long userId) {
+        if (items.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return itemsToItemsDto(items, userId, getOwnBookingSummaries(items, userId, LocalDateTime.now()),
+                findCommentPreviews(items));
+    }
+
+    private List<ItemDto> itemsToItemsDto(List<Item> items, Long userId, Map<Long, ItemBookingSummary> bookingSummaries,
+                                          List<CommentPreviewView> commentPreviews) {
         List<ItemDto> itemsDto = new ArrayList<>();
+        Map<Long, List<CommentDto>> commentsByItem = getLatestCommentsByItems(items, commentPreviews);
         for (Item item : items) {
-            itemsDto.add(itemToItemDto(item, userId));
+            ItemDto itemDto = ItemDtoMapper.itemToItemDTO(item);
+            ItemBookingSummary bookingSummary = bookingSummaries.get(item.getId());
+            if (bookingSummary != null) {
+                itemDto.setLastBooking(LastAndNextBookingDtoMapper.mapLast(bookingSummary));
+                itemDto.setNextBooking(LastAndNextBookingDtoMapper.mapNext(bookingSummary));
+                itemDto.setActiveBookingCount(bookingSummary.getActiveBookingCount());
+            }
+            itemDto.setComments(commentsByItem.getOrDefault(item.getId(), new ArrayList<>()));
+            itemsDto.add(itemDto);
         }
         return itemsDto;
     }
@@ -151,86 +212,89 @@ public class ItemServiceImpl implements ItemService {
         if (item == null) {
             return null;
         }
-        ItemDto itemDto = ItemDtoMapper.itemToItemDTO(item);
-        setNextAndLastBookings(item, userId, itemDto);
-        setComments(item, itemDto);
-        return itemDto;
+        return itemsToItemsDto(List.of(item), userId).get(0);
     }
 
-    private List<CommentDto> commentsToCommentsDto(List<Comment> comments) {
-        List<CommentDto> commentsDto = new ArrayList<>();
-        for (Comment comment : comments) {
-            commentsDto.add(CommentDtoMapper.mapRow(comment));
+    private Map<Long, ItemBookingSummary> getOwnBookingSummaries(List<Item> items, Long userId,
+                                                                 LocalDateTime currentDate) {
+        List<Long> ownItemIds = new ArrayList<>();
+        for (Item item : items) {
+            if (userId.equals(item.getOwner().getId())) {
+                ownItemIds.add(item.getId());
+            }
         }
-        return commentsDto;
+        if (ownItemIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return itemBookingSummaryService.getSummaries(ownItemIds, currentDate);
     }
 
+    private String getItemETag(long itemId, ItemVersionView itemVersion, ItemBookingSummary summary) {
+        String eTag = String.format("%d-%d-%d-%d", itemId, itemVersion.getVersion(), itemVersion.getCommentCount(),
+                itemVersion.getPreviewAuthorVersionSum());
+        if (summary == null) {
+            return eTag;
+        }
+        return String.format("%s-%s-%s-%d", eTag,
+                summary.getLastBookingId(), summary.getNextBookingId(), summary.getActiveBookingCount());
+    }
 
-    private void setNextAndLastBookings(Item item, Long userId, ItemDto itemDto) {
-        LocalDateTime currentDate = LocalDateTime.now();
-        if (userId.equals(item.getOwner().getId())) {
-            if (bookingRepository.findLastBooking(item.getId(), currentDate, BookingStatus.APPROVED.toString()) != null) {
-                itemDto.setLastBooking(LastAndNextBookingDtoMapper
-                        .mapRow(bookingRepository.findLastBooking(item.getId(), currentDate, BookingStatus.APPROVED.toString())));
-            }
-            if (bookingRepository.findNextBooking(item.getId(), currentDate, BookingStatus.APPROVED.toString()) != null) {
-                itemDto.setNextBooking(LastAndNextBookingDtoMapper
-                        .mapRow(bookingRepository.findNextBooking(item.getId(), currentDate, BookingStatus.APPROVED.toString())));
+    private List<CommentPreviewView> findCommentPreviews(List<Item> items) {
+        Set<Long> commentedItemIds = new HashSet<>();
+        for (Item item : items) {
+            if (item.getCommentCount() > 0) {
+                commentedItemIds.add(item.getId());
             }
         }
+        if (commentedItemIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return commentRepository.findLatestCommentsByItems(commentedItemIds, COMMENT_PREVIEW_SIZE);
     }
 
-    private void setComments(Item item, ItemDto itemDto) {
-        if (!commentRepository.findCommentsByItem(item).isEmpty()) {
-            itemDto.setComments(commentsToCommentsDto(commentRepository.findCommentsByItem(item)));
-        } else {
-            itemDto.setComments(new ArrayList<>());
+    private Map<Long, List<CommentDto>> getLatestCommentsByItems(List<Item> items,
+                                                                 List<CommentPreviewView> commentPreviews) {
+        Map<Long, List<CommentDto>> commentsByItem = new HashMap<>();
+        if (commentPreviews.isEmpty()) {
+            return commentsByItem;
+        }
+        Map<Long, Item> itemsById = new HashMap<>();
+        for (Item item : items) {
+            itemsById.put(item.getId(), item);
         }
+        for (CommentPreviewView comment : commentPreviews) {
+            commentsByItem.computeIfAbsent(comment.getItemId(), id -> new ArrayList<>())
+                    .add(CommentDtoMapper.mapPreview(comment, itemsById.get(comment.getItemId())));
+        }
+        return commentsByItem;
     }
 
-    private Item checkFieldsForUpdate(Item item, long itemId, Long userId) {
+    private Item checkFieldsForUpdate(RequestBodyItemDto requestBodyItemDto, long itemId, Long userId) {
         if (userId == null) {
             String message = "Не указан id пользователя";
             log.info(message);
             throw new InternalServerException(message);
         }
-        if (itemRepository.findById(itemId).isEmpty()) {
-            String message = String.format("%s %d %s", "Вещь с id =", itemId, "не найдена");
-            log.info(message);
-            throw new NotFoundException(message);
-        }
-        Item itemFromDb = itemRepository.findById(itemId).get();
-        if (!userId.equals(itemFromDb.getOwner().getId())) {
+        Item item = entityResolver.getItem(itemId);
+        if (!userId.equals(item.getOwner().getId())) {
             String message = "Изменять вещь может только владелец";
             log.info(message);
             throw new ForbiddenException(message);
         }
-        if (item.getName() == null) {
-            item.setName(itemFromDb.getName());
+        if (requestBodyItemDto.getName() != null) {
+            item.setName(requestBodyItemDto.getName());
         }
-        if (item.getDescription() == null) {
-            item.setDescription(itemFromDb.getDescription());
+        if (requestBodyItemDto.getDescription() != null) {
+            item.setDescription(requestBodyItemDto.getDescription());
         }
-        if (item.getAvailable() == null) {
-            item.setAvailable(itemFromDb.getAvailable());
+        if (requestBodyItemDto.getAvailable() != null) {
+            item.setAvailable(requestBodyItemDto.getAvailable());
         }
         return item;
     }
 
-    private User getUserById(long userId) {
-        if (userRepository.findById(userId).isEmpty()) {
-            String message = String.format("%s %d %s", "Пользватель с id =", userId, "не найден");
-            log.info(message);
-            throw new NotFoundException(message);
-        }
-        return userRepository.findById(userId).get();
-    }
-
     private ItemRequest getRequestById(Long requestId) {
-        if (itemRequestRepository.findById(requestId).isPresent()) {
-            return itemRequestRepository.findById(requestId).get();
-        }
-        return null;
+        return itemRequestRepository.findById(requestId).orElse(null);
     }
 
     private void checkFormAndSize(Integer from, Integer size) {
@@ -0,0 +1,36 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.AccessLevel;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import ru.practicum.shareit.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Value
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class IdCursor {
+    public static final IdCursor FIRST = new IdCursor(0);
+
+    long id;
+
+    public static IdCursor of(long id) {
+        return new IdCursor(id);
+    }
+
+    public static IdCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            return new IdCursor(Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)));
+        } catch (java.lang.IllegalArgumentException e) {
+            throw new ValidationException("Некорректное значение курсора");
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+}
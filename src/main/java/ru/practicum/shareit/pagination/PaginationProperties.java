@@ -0,0 +1,22 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "shareit.pagination")
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PaginationProperties {
+    int maxPageSize = 100;
+
+    public int limit(Integer size) {
+        if (size == null || size > maxPageSize) {
+            return maxPageSize;
+        }
+        return size;
+    }
+}
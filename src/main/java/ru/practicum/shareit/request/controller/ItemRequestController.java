@@ -6,10 +6,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.practicum.shareit.config.AsyncRequests;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.RequestBodyItemRequestDto;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.List;
 
 @Slf4j
@@ -18,11 +23,18 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class ItemRequestController {
     final ItemRequestService itemRequestService;
+    final PaginationProperties paginationProperties;
+    final AsyncRequests asyncRequests;
     static final String headerUserValue = "X-Sharer-User-Id";
+    static final String headerNextCursor = "X-Next-Cursor";
 
     @Autowired
-    public ItemRequestController(@Qualifier("ItemRequestServiceImpl") ItemRequestService itemRequestService) {
+    public ItemRequestController(@Qualifier("ItemRequestServiceImpl") ItemRequestService itemRequestService,
+                                 PaginationProperties paginationProperties,
+                                 AsyncRequests asyncRequests) {
         this.itemRequestService = itemRequestService;
+        this.paginationProperties = paginationProperties;
+        this.asyncRequests = asyncRequests;
     }
 
     @PostMapping
@@ -33,23 +45,35 @@ public class ItemRequestController {
     }
 
     @GetMapping
-    public List<ItemRequestDto> getOwnItemRequests(@RequestHeader(value = headerUserValue, required = false) Long userId) {
+    public List<ItemRequestDto> getOwnItemRequests(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                                   @RequestParam(required = false) Integer from,
+                                                   @RequestParam(required = false) Integer size,
+                                                   @RequestParam(required = false) String cursor,
+                                                   HttpServletResponse response) {
         log.info("Запрос на получение своих заявок");
-        return itemRequestService.getOwnItemRequests(userId);
+        List<ItemRequestDto> itemRequests = cursor == null
+                ? itemRequestService.getOwnItemRequests(userId, from, size)
+                : itemRequestService.getOwnItemRequestsByCursor(userId, cursor, size);
+        if (!itemRequests.isEmpty() && itemRequests.size() == paginationProperties.limit(size)) {
+            ItemRequestDto lastItemRequest = itemRequests.get(itemRequests.size() - 1);
+            response.setHeader(headerNextCursor, PageCursor.of(lastItemRequest.getCreated(), lastItemRequest.getId()).encode());
+        }
+        return itemRequests;
     }
 
     @GetMapping("/all")
-    public List<ItemRequestDto> getAllItemRequests(@RequestHeader(value = headerUserValue, required = false) Long userId,
-                                                   @RequestParam(defaultValue = "0") Integer from,
-                                                   @RequestParam(defaultValue = "10") Integer size) {
+    public Object getAllItemRequests(@RequestHeader(value = headerUserValue, required = false) Long userId,
+                                     @RequestParam(defaultValue = "0") Integer from,
+                                     @RequestParam(defaultValue = "10") Integer size) {
         log.info("Запрос на получение всех заявок");
-        return itemRequestService.getAllItemRequests(from, size, userId);
+        return asyncRequests.handle(() -> itemRequestService.getAllItemRequests(from, size, userId));
     }
 
     @GetMapping("/{requestId}")
     public ItemRequestDto getRequestById(@RequestHeader(value = headerUserValue, required = false) Long userId,
-                                         @PathVariable long requestId) {
+                                         @PathVariable long requestId,
+                                         WebRequest webRequest) {
         log.info(String.format("%s %d", "Запрос на получение заявки с id =", requestId));
-        return itemRequestService.getRequestById(userId, requestId);
+        return itemRequestService.getRequestById(userId, requestId, webRequest::checkNotModified);
     }
 }
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.request.dto;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+public class ItemRequestSnapshot {
+    long id;
+    String description;
+    LocalDateTime created;
+    Long authorId;
+    long version;
+}
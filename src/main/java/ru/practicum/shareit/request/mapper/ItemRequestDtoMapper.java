@@ -1,6 +1,7 @@
 package ru.practicum.shareit.request.mapper;
 
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestSnapshot;
 import ru.practicum.shareit.request.model.ItemRequest;
 
 public class ItemRequestDtoMapper {
@@ -11,4 +12,12 @@ public class ItemRequestDtoMapper {
                 .created(itemRequest.getCreated())
                 .build();
     }
+
+    public static ItemRequestDto mapSnapshot(ItemRequestSnapshot itemRequest) {
+        return ItemRequestDto.builder()
+                .id(itemRequest.getId())
+                .description(itemRequest.getDescription())
+                .created(itemRequest.getCreated())
+                .build();
+    }
 }
\ No newline at end of file
@@ -20,11 +20,14 @@ public class ItemRequest {
     @Column(name = "id")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     long id;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "author_id", referencedColumnName = "id")
     User author;
     @Column(name = "create_date")
     LocalDateTime created;
     @Column(name = "description")
     String description;
+    @Version
+    @Column(name = "version", nullable = false)
+    long version;
 }
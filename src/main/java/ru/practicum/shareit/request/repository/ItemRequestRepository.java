@@ -1,17 +1,37 @@
 package ru.practicum.shareit.request.repository;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.request.dto.ItemRequestSnapshot;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.User;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
-    @Query(value = "select ir from ItemRequest ir where ir.author = :author order by ir.created desc")
-    List<ItemRequest> findItemRequestsByAuthor(User author);
+    @Cacheable(value = "itemRequests", key = "#p0", unless = "#result == null")
+    @Query(value = "select new ru.practicum.shareit.request.dto.ItemRequestSnapshot(ir.id, ir.description, ir.created, " +
+            "ir.author.id, ir.version) from ItemRequest ir where ir.id = :id")
+    Optional<ItemRequestSnapshot> findSnapshotById(long id);
 
-    @Query(value = "select ir from ItemRequest ir where ir.author <> :user order by ir.created desc")
+    @Query(value = "select new ru.practicum.shareit.request.dto.ItemRequestSnapshot(ir.id, ir.description, ir.created, " +
+            "ir.author.id, ir.version) from ItemRequest ir where ir.id = :id")
+    Optional<ItemRequestSnapshot> findFreshSnapshotById(long id);
+
+    @Override
+    @CacheEvict(value = "itemRequests", key = "#p0.id")
+    <S extends ItemRequest> S save(S itemRequest);
+
+    @Query(value = "select ir from ItemRequest ir where ir.author = :author " +
+            "and (ir.created < :cursorCreated or (ir.created = :cursorCreated and ir.id < :cursorId)) " +
+            "order by ir.created desc, ir.id desc")
+    List<ItemRequest> findItemRequestsByAuthor(User author, LocalDateTime cursorCreated, long cursorId, Pageable pageable);
+
+    @Query(value = "select ir from ItemRequest ir where ir.author <> :user order by ir.created desc, ir.id desc")
     List<ItemRequest> findAllItemRequests(User user, Pageable pageable);
 }
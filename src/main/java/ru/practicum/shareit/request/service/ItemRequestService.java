@@ -4,13 +4,16 @@ import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.dto.RequestBodyItemRequestDto;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface ItemRequestService {
     ItemRequestDto addNewItemRequest(Long userId, RequestBodyItemRequestDto requestBodyRequestDto);
 
-    List<ItemRequestDto> getOwnItemRequests(Long userId);
+    List<ItemRequestDto> getOwnItemRequests(Long userId, Integer from, Integer size);
+
+    List<ItemRequestDto> getOwnItemRequestsByCursor(Long userId, String cursor, Integer size);
 
     List<ItemRequestDto> getAllItemRequests(Integer from, Integer size, Long userId);
 
-    ItemRequestDto getRequestById(Long userId, long requestId);
+    ItemRequestDto getRequestById(Long userId, long requestId, Predicate<String> notModified);
 }
@@ -5,102 +5,126 @@ import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import ru.practicum.shareit.exception.NotFoundException;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.common.EntityResolver;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.ItemDto;
 import ru.practicum.shareit.item.mapper.ItemDtoMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemVersionsView;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.ItemRequestSnapshot;
 import ru.practicum.shareit.request.dto.RequestBodyItemRequestDto;
 import ru.practicum.shareit.request.mapper.ItemRequestDtoMapper;
 import ru.practicum.shareit.request.mapper.RequestBodyItemRequestDtoMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
-import ru.practicum.shareit.user.UserRepository;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 @Service
 @Slf4j
 @Qualifier("ItemRequestServiceImpl")
 @FieldDefaults(level = AccessLevel.PRIVATE)
+@Transactional(readOnly = true)
 public class ItemRequestServiceImpl implements ItemRequestService {
     final ItemRequestRepository itemRequestRepository;
     final ItemRepository itemRepository;
-    final UserRepository userRepository;
+    final EntityResolver entityResolver;
+    final PaginationProperties paginationProperties;
 
     final ItemRequestValidation itemRequestValidation;
 
     @Autowired
     public ItemRequestServiceImpl(ItemRequestRepository itemRequestRepository,
                                   ItemRepository itemRepository,
-                                  UserRepository userRepository,
+                                  EntityResolver entityResolver,
+                                  PaginationProperties paginationProperties,
                                   ItemRequestValidation itemRequestValidation) {
         this.itemRequestRepository = itemRequestRepository;
         this.itemRepository = itemRepository;
-        this.userRepository = userRepository;
+        this.entityResolver = entityResolver;
+        this.paginationProperties = paginationProperties;
 
         this.itemRequestValidation = itemRequestValidation;
     }
 
     @Override
+    @Transactional
     public ItemRequestDto addNewItemRequest(Long userId, RequestBodyItemRequestDto requestBodyItemRequestDto) {
-        ItemRequest itemRequest = createItemRequest(requestBodyItemRequestDto, userId);
         itemRequestValidation.itemRequestValidation(requestBodyItemRequestDto);
+        ItemRequest itemRequest = createItemRequest(requestBodyItemRequestDto, userId);
         return itemRequestToItemRequestDto(itemRequestRepository.save(itemRequest));
     }
 
     @Override
-    public List<ItemRequestDto> getOwnItemRequests(Long userId) {
-        User author = getUserById(userId);
-        return itemRequestsToItemRequestsDto(itemRequestRepository.findItemRequestsByAuthor(author));
+    public List<ItemRequestDto> getOwnItemRequests(Long userId, Integer from, Integer size) {
+        User author = entityResolver.getUserReference(userId);
+        checkFromAndSize(from, size);
+        return itemRequestsToItemRequestsDto(itemRequestRepository.findItemRequestsByAuthor(author,
+                PageCursor.FIRST.getPosition(), PageCursor.FIRST.getId(),
+                OffsetPageRequest.of(from == null ? 0 : from, paginationProperties.limit(size))));
+    }
+
+    @Override
+    public List<ItemRequestDto> getOwnItemRequestsByCursor(Long userId, String cursor, Integer size) {
+        User author = entityResolver.getUserReference(userId);
+        checkFromAndSize(0, size);
+        PageCursor pageCursor = PageCursor.decode(cursor);
+        return itemRequestsToItemRequestsDto(itemRequestRepository.findItemRequestsByAuthor(author,
+                pageCursor.getPosition(), pageCursor.getId(), OffsetPageRequest.of(0, paginationProperties.limit(size))));
     }
 
     @Override
     public List<ItemRequestDto> getAllItemRequests(Integer from, Integer size, Long userId) {
-        User user = getUserById(userId);
-        if (from < 0 || size < 1) {
-            String message = "Номер страницы или количество элементов недопустимо";
-            log.info(message);
-            throw new ValidationException(message);
-        }
-        return itemRequestsToItemRequestsDto(itemRequestRepository.findAllItemRequests(user, PageRequest.of(from / size, size)));
+        User user = entityResolver.getUserReference(userId);
+        checkFromAndSize(from, size);
+        return itemRequestsToItemRequestsDto(itemRequestRepository.findAllItemRequests(user,
+                OffsetPageRequest.of(from, paginationProperties.limit(size))));
     }
 
     @Override
-    public ItemRequestDto getRequestById(Long userId, long requestId) {
-        getUserById(userId);
-        if (itemRequestRepository.findById(requestId).isEmpty()) {
-            String message = String.format("%s %d %s", "Заявка с id =", userId, "не найдена");
-            log.info(message);
-            throw new NotFoundException(message);
+    public ItemRequestDto getRequestById(Long userId, long requestId, Predicate<String> notModified) {
+        ItemRequestSnapshot itemRequest = entityResolver.getFreshItemRequestSnapshot(requestId);
+        entityResolver.getUserSnapshot(userId);
+        ItemVersionsView itemVersions = itemRepository.findItemVersionsByRequestId(requestId);
+        String eTag = String.format("%d-%d-%d-%d-%d", requestId, itemRequest.getVersion(),
+                itemVersions.getItemCount(), itemVersions.getMaxItemId(), itemVersions.getVersionSum());
+        if (notModified.test(eTag)) {
+            return null;
         }
-        return itemRequestToItemRequestDto(itemRequestRepository.findById(requestId).get());
+        ItemRequestDto itemRequestDto = ItemRequestDtoMapper.mapSnapshot(itemRequest);
+        itemRequestDto.setItems(itemsToItemsDto(itemRepository.findItemsByRequestIdIn(List.of(requestId))));
+        return itemRequestDto;
     }
 
     private ItemRequest createItemRequest(RequestBodyItemRequestDto requestBodyItemRequestDto, Long userId) {
         LocalDateTime currentDate = LocalDateTime.now();
         ItemRequest itemRequest = RequestBodyItemRequestDtoMapper.mapRow(requestBodyItemRequestDto);
-        User author = getUserById(userId);
+        User author = entityResolver.getUserReference(userId);
         itemRequest.setCreated(currentDate);
         itemRequest.setAuthor(author);
         return itemRequest;
     }
 
 
-    private User getUserById(Long userId) {
-        if (userRepository.findById(userId).isEmpty()) {
-            String message = String.format("%s %d %s", "Пользователь с id =", userId, "не найден");
+    private void checkFromAndSize(Integer from, Integer size) {
+        if ((from != null && from < 0) || (size != null && size < 1)) {
+            String message = "Номер страницы или количество элементов недопустимо";
             log.info(message);
-            throw new NotFoundException(message);
+            throw new ValidationException(message);
         }
-        return userRepository.findById(userId).get();
     }
 
     private List<ItemDto> itemsToItemsDto(List<Item> items) {
@@ -112,19 +136,26 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     }
 
     public ItemRequestDto itemRequestToItemRequestDto(ItemRequest itemRequest) {
-        ItemRequestDto itemRequestDto = ItemRequestDtoMapper.mapRow(itemRequest);
-        List<Item> items = new ArrayList<>();
-        if (!itemRepository.findItemsByRequests(itemRequest.getId()).isEmpty()) {
-            items = itemRepository.findItemsByRequests(itemRequest.getId());
-        }
-        itemRequestDto.setItems(itemsToItemsDto(items));
-        return itemRequestDto;
+        return itemRequestsToItemRequestsDto(List.of(itemRequest)).get(0);
     }
 
     public List<ItemRequestDto> itemRequestsToItemRequestsDto(List<ItemRequest> itemRequests) {
         List<ItemRequestDto> itemRequestsDto = new ArrayList<>();
+        if (itemRequests.isEmpty()) {
+            return itemRequestsDto;
+        }
+        List<Long> requestIds = new ArrayList<>();
+        for (ItemRequest itemRequest : itemRequests) {
+            requestIds.add(itemRequest.getId());
+        }
+        Map<Long, List<Item>> itemsByRequest = new HashMap<>();
+        for (Item item : itemRepository.findItemsByRequestIdIn(requestIds)) {
+            itemsByRequest.computeIfAbsent(item.getItemRequest().getId(), requestId -> new ArrayList<>()).add(item);
+        }
         for (ItemRequest itemRequest : itemRequests) {
-            itemRequestsDto.add(itemRequestToItemRequestDto(itemRequest));
+            ItemRequestDto itemRequestDto = ItemRequestDtoMapper.mapRow(itemRequest);
+            itemRequestDto.setItems(itemsToItemsDto(itemsByRequest.getOrDefault(itemRequest.getId(), List.of())));
+            itemRequestsDto.add(itemRequestDto);
         }
         return itemRequestsDto;
     }
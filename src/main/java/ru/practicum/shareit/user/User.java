@@ -1,9 +1,11 @@
 package ru.practicum.shareit.user;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
 
 import javax.persistence.*;
+import java.util.Locale;
 
 
 @Data
@@ -16,10 +18,27 @@ import javax.persistence.*;
 public class User {
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     long id;
     @Column(name = "name", nullable = false)
     String name;
     @Column(name = "email", nullable = false, unique = true)
     String email;
-}
\ No newline at end of file
+    @JsonIgnore
+    @Column(name = "email_normalized", nullable = false, unique = true)
+    String emailNormalized;
+    @Version
+    @Column(name = "version", nullable = false)
+    long version;
+
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateEmailNormalized() {
+        emailNormalized = normalizeEmail(email);
+    }
+}
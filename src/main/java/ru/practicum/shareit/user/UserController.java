@@ -1,14 +1,32 @@
 package ru.practicum.shareit.user;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.pagination.IdCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserImportResultDto;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserService;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -17,12 +35,17 @@ import java.util.List;
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class UserController {
     final UserService userService;
+    final ObjectMapper objectMapper;
+    final PaginationProperties paginationProperties;
 
     final String pathUserId = "/{userId}";
+    final String headerNextCursor = "X-Next-Cursor";
 
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper, PaginationProperties paginationProperties) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.paginationProperties = paginationProperties;
     }
 
     @PostMapping
@@ -32,6 +55,27 @@ public class UserController {
     }
 
 
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<UserImportResultDto> importUsers(@RequestBody List<User> users) {
+        log.info(String.format("%s %d", "Поступил запрос на загрузку пользователей, количество:", users.size()));
+        return userService.importUsers(users.iterator());
+    }
+
+    @PostMapping(path = "/batch", consumes = "application/x-ndjson")
+    public List<UserImportResultDto> importUsersStream(HttpServletRequest request) throws IOException {
+        log.info("Поступил запрос на потоковую загрузку пользователей");
+        try (MappingIterator<User> users = objectMapper.readerFor(User.class).readValues(request.getInputStream())) {
+            return userService.importUsers(users);
+        } catch (RuntimeException e) {
+            if (!(e instanceof RuntimeJsonMappingException) && !(e.getCause() instanceof JsonProcessingException)) {
+                throw e;
+            }
+            String message = "Некорректная строка в загрузке пользователей";
+            log.info(message);
+            throw new ValidationException(message);
+        }
+    }
+
     @PatchMapping(pathUserId)
     public UserDto updateUser(@PathVariable long userId, @RequestBody User user) {
         log.info(String.format("%s %d", "Поступил запрос на изменение пользователя с id =", userId));
@@ -40,15 +84,38 @@ public class UserController {
 
 
     @GetMapping
-    public List<UserDto> getAllUsers() {
+    public List<UserDto> getAllUsers(@RequestParam(required = false) String cursor,
+                                     @RequestParam(required = false) Integer size,
+                                     HttpServletResponse response) {
         log.info("Поступил запрос на вывод всех пользователей");
-        return userService.getAllUsers();
+        List<UserDto> users = userService.getAllUsers(cursor, size);
+        if (!users.isEmpty() && users.size() == paginationProperties.limit(size)) {
+            response.setHeader(headerNextCursor, IdCursor.of(users.get(users.size() - 1).getId()).encode());
+        }
+        return users;
+    }
+
+    @GetMapping("/export")
+    public void exportUsers(HttpServletResponse response) throws IOException {
+        log.info("Поступил запрос на выгрузку всех пользователей");
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        userService.exportUsers(user -> {
+            try {
+                writer.write(objectMapper.writeValueAsString(user));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
     }
 
     @GetMapping(pathUserId)
-    public UserDto getUserById(@PathVariable long userId) {
+    public UserDto getUserById(@PathVariable long userId, WebRequest webRequest) {
         log.info(String.format("%s %d", "Поступил запрос на вывод пользователя с id =", userId));
-        return userService.getUserById(userId);
+        return userService.getUserById(userId, webRequest::checkNotModified);
     }
 
 
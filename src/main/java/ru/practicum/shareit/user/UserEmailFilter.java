@@ -0,0 +1,115 @@
+package ru.practicum.shareit.user;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserEmailFilter {
+    static final int LOAD_PAGE_SIZE = 1000;
+    static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    static final long FNV_PRIME = 0x100000001b3L;
+
+    final UserRepository userRepository;
+    final AtomicLongArray bits;
+    final long bitCount;
+    final int hashCount;
+    volatile boolean loaded;
+
+    public UserEmailFilter(UserRepository userRepository, UserProperties userProperties) {
+        this.userRepository = userRepository;
+        long expectedEmails = Math.max(1, userProperties.getExpectedEmails());
+        double falsePositiveRate = userProperties.getEmailFalsePositiveRate();
+        long words = Math.max(1, (long) Math.ceil(-expectedEmails * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2)) / Long.SIZE));
+        this.bits = new AtomicLongArray((int) Math.min(words, Integer.MAX_VALUE));
+        this.bitCount = (long) bits.length() * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEmails * Math.log(2)));
+    }
+
+    /**
+     * Builds the filter off the request path; until it is loaded every email is treated as possibly present.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread loader = new Thread(this::load, "user-email-filter-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public synchronized void load() {
+        if (loaded) {
+            return;
+        }
+        int count = 0;
+        String afterEmail = "";
+        List<String> emails;
+        try {
+            do {
+                emails = userRepository.findEmailsAfter(afterEmail, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (String email : emails) {
+                    put(email);
+                }
+                count += emails.size();
+                if (!emails.isEmpty()) {
+                    afterEmail = emails.get(emails.size() - 1);
+                }
+            } while (emails.size() == LOAD_PAGE_SIZE);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось построить фильтр email пользователей, email проверяются в базе данных", e);
+            return;
+        }
+        loaded = true;
+        log.info(String.format("%s %d", "Фильтр email пользователей построен, количество email:", count));
+    }
+
+    public boolean mightContain(String emailNormalized) {
+        if (!loaded) {
+            return true;
+        }
+        long hash = hash(emailNormalized);
+        long step = mix(hash) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash + i * step, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(String emailNormalized) {
+        long hash = hash(emailNormalized);
+        long step = mix(hash) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash + i * step, bitCount);
+            long mask = 1L << bit;
+            bits.getAndAccumulate((int) (bit >>> 6), mask, (word, value) -> word | value);
+        }
+    }
+
+    private long hash(String emailNormalized) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : emailNormalized.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.user;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "shareit.users")
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserProperties {
+    boolean insertOnConflict;
+    int expectedEmails = 1_000_000;
+    double emailFalsePositiveRate = 0.01;
+}
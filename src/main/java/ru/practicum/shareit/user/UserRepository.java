@@ -1,13 +1,76 @@
 package ru.practicum.shareit.user;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import ru.practicum.shareit.user.User;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    @Query(value = "select u from User u where u.email = :email")
-    List<User> findUsersByEmail(String email);
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    boolean existsByEmailNormalized(String emailNormalized);
+
+    @Query(value = "select u.emailNormalized from User u where u.emailNormalized in :emailsNormalized")
+    List<String> findExistingEmails(Collection<String> emailsNormalized);
+
+    @Query(value = "select u.emailNormalized from User u where u.emailNormalized > :afterEmail order by u.emailNormalized asc")
+    List<String> findEmailsAfter(String afterEmail, Pageable pageable);
+
+    @Modifying
+    @Query(value = "insert into users (id, name, email, email_normalized) values (:id, :name, :email, :emailNormalized) " +
+            "on conflict do nothing", nativeQuery = true)
+    int insertIfAbsent(long id, String name, String email, String emailNormalized);
+
+    @Query(value = "select id from users where id = :userId for update", nativeQuery = true)
+    Optional<Long> lockUser(long userId);
+
+    @Query(value = "select u from User u where u.id > :afterId order by u.id asc")
+    List<User> findUsersAfter(long afterId, Pageable pageable);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(value = "select u from User u order by u.id asc")
+    Stream<User> streamAllUsers();
+
+    @Cacheable(value = "users", key = "#p0", unless = "#result == null")
+    @Query(value = "select new ru.practicum.shareit.user.UserSnapshot(u.id, u.name, u.email, u.version) " +
+            "from User u where u.id = :id")
+    Optional<UserSnapshot> findSnapshotById(long id);
+
+    @Query(value = "select new ru.practicum.shareit.user.UserSnapshot(u.id, u.name, u.email, u.version) " +
+            "from User u where u.id = :id")
+    Optional<UserSnapshot> findFreshSnapshotById(long id);
+
+    @Override
+    @CacheEvict(value = "users", key = "#p0.id")
+    <S extends User> S save(S user);
+
+    @Override
+    @CacheEvict(value = "users", key = "#p0.id")
+    <S extends User> S saveAndFlush(S user);
+
+    @Override
+    @CacheEvict(value = "users", allEntries = true)
+    <S extends User> List<S> saveAll(Iterable<S> users);
+
+    @Override
+    @CacheEvict(value = "users", allEntries = true)
+    <S extends User> List<S> saveAllAndFlush(Iterable<S> users);
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(value = "users", key = "#p0"),
+            @CacheEvict(value = {"items", "itemRequests"}, allEntries = true)
+    })
+    void deleteById(Long id);
 }
\ No newline at end of file
@@ -0,0 +1,5 @@
+package ru.practicum.shareit.user;
+
+public interface UserRepositoryCustom {
+    long nextUserId();
+}
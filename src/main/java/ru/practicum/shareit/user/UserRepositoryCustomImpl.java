@@ -0,0 +1,25 @@
+package ru.practicum.shareit.user;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * Draws the id from User's own pooled generator, so native inserts share its allocated blocks of users_seq.
+     */
+    @Override
+    public long nextUserId() {
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        User user = new User();
+        return (Long) session.getEntityPersister(User.class.getName(), user).getIdentifierGenerator()
+                .generate(session, user);
+    }
+}
@@ -1,18 +1,26 @@
 package ru.practicum.shareit.user;
 
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserImportResultDto;
 import ru.practicum.shareit.user.User;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public interface UserService {
     UserDto addUser(User user);
 
+    List<UserImportResultDto> importUsers(Iterator<User> users);
+
     UserDto updateUser(User user, long userId);
 
-    List<UserDto> getAllUsers();
+    List<UserDto> getAllUsers(String cursor, Integer size);
+
+    void exportUsers(Consumer<UserDto> consumer);
 
-    UserDto getUserById(long userId);
+    UserDto getUserById(long userId, Predicate<String> notModified);
 
     void deleteUser(long userId);
 }
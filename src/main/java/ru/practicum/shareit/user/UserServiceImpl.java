@@ -5,82 +5,294 @@ import lombok.AccessLevel;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.service.ItemBookingSummaryService;
+import ru.practicum.shareit.common.EntityResolver;
 import ru.practicum.shareit.exception.IsAlreadyExistsException;
-import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.pagination.IdCursor;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PaginationProperties;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserImportResultDto;
 import ru.practicum.shareit.user.mapper.UserDtoMapper;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 
+import javax.persistence.EntityManager;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @Qualifier("UserServiceImpl")
 @FieldDefaults(level = AccessLevel.PRIVATE)
+@Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
+    static final int EXPORT_CLEAR_INTERVAL = 500;
+    static final int IMPORT_BATCH_SIZE = 500;
+
     final UserRepository userRepository;
+    final ItemRepository itemRepository;
+    final PaginationProperties paginationProperties;
+    final EntityResolver entityResolver;
+    final ItemBookingSummaryService itemBookingSummaryService;
+    final EntityManager entityManager;
+    final UserEmailFilter userEmailFilter;
+    final UserProperties userProperties;
+    final TransactionTemplate transactionTemplate;
     final UserValidation userValidation = new UserValidation();
 
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository,
+                           ItemRepository itemRepository,
+                           PaginationProperties paginationProperties,
+                           EntityResolver entityResolver,
+                           ItemBookingSummaryService itemBookingSummaryService,
+                           EntityManager entityManager,
+                           UserEmailFilter userEmailFilter,
+                           UserProperties userProperties,
+                           TransactionTemplate transactionTemplate) {
         this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.paginationProperties = paginationProperties;
+        this.entityResolver = entityResolver;
+        this.itemBookingSummaryService = itemBookingSummaryService;
+        this.entityManager = entityManager;
+        this.userEmailFilter = userEmailFilter;
+        this.userProperties = userProperties;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Override
+    @Transactional
     public UserDto addUser(User user) {
         if (!userValidation.userValidation(user)) {
             String message = "Поля заполнены неверно";
             log.info(message);
             throw new ValidationException(message);
         }
-        try {
-            return UserDtoMapper.userToUserDto(userRepository.save(user));
-        } catch (Exception e) {
-            throw new IsAlreadyExistsException("Пользователь с таким email уже существует");
+        String emailNormalized = User.normalizeEmail(user.getEmail());
+        checkEmailIsFree(emailNormalized);
+        user.setId(0);
+        user.setVersion(0);
+        User savedUser;
+        if (userProperties.isInsertOnConflict()) {
+            savedUser = insertIfAbsent(user, emailNormalized);
+        } else {
+            try {
+                savedUser = userRepository.saveAndFlush(user);
+            } catch (DataIntegrityViolationException e) {
+                throw emailAlreadyExists();
+            }
         }
+        userEmailFilter.put(emailNormalized);
+        return UserDtoMapper.userToUserDto(savedUser);
+    }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<UserImportResultDto> importUsers(Iterator<User> users) {
+        List<UserImportResultDto> results = new ArrayList<>();
+        Set<String> emails = new HashSet<>();
+        List<User> batch = new ArrayList<>();
+        List<UserImportResultDto> batchResults = new ArrayList<>();
+        int index = 0;
+        while (users.hasNext()) {
+            User user = users.next();
+            UserImportResultDto result = UserImportResultDto.builder().index(index++).email(user.getEmail()).build();
+            results.add(result);
+            if (!userValidation.userValidation(user)) {
+                result.setError("Поля заполнены неверно");
+            } else if (!emails.add(User.normalizeEmail(user.getEmail()))) {
+                result.setError("Email повторяется в загрузке");
+            } else {
+                user.setId(0);
+                user.setVersion(0);
+                batch.add(user);
+                batchResults.add(result);
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    saveImportBatch(batch, batchResults);
+                }
+            }
+        }
+        saveImportBatch(batch, batchResults);
+        long imported = results.stream().filter(result -> result.getId() != null).count();
+        log.info(String.format("%s %d %s %d", "Загружено пользователей:", imported, "из", results.size()));
+        return results;
     }
 
     @Override
+    @Transactional
     public UserDto updateUser(User user, long userId) {
-        User checkedUser = checkFieldsForUpdate(user, userId);
+        User oldUser = entityResolver.getUser(userId);
+        User checkedUser = checkFieldsForUpdate(user, oldUser);
         if (!userValidation.userValidation(checkedUser)) {
             String message = "Поля заполнены неверно";
             log.info(message);
             throw new ValidationException(message);
         }
+        String emailNormalized = User.normalizeEmail(checkedUser.getEmail());
+        boolean emailChanged = !emailNormalized.equals(User.normalizeEmail(oldUser.getEmail()));
+        if (emailChanged) {
+            checkEmailIsFree(emailNormalized);
+        }
         checkedUser.setId(userId);
-        return UserDtoMapper.userToUserDto(userRepository.save(checkedUser));
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(checkedUser);
+        } catch (DataIntegrityViolationException e) {
+            throw emailAlreadyExists();
+        }
+        if (emailChanged) {
+            userEmailFilter.put(emailNormalized);
+        }
+        return UserDtoMapper.userToUserDto(savedUser);
+    }
+
+    @Override
+    public List<UserDto> getAllUsers(String cursor, Integer size) {
+        if (size != null && size < 1) {
+            String message = "Недопустимое количество элементов";
+            log.info(message);
+            throw new ValidationException(message);
+        }
+        return usersToUsersDto(userRepository.findUsersAfter(IdCursor.decode(cursor).getId(),
+                OffsetPageRequest.of(0, paginationProperties.limit(size))));
     }
 
     @Override
-    public List<UserDto> getAllUsers() {
-        return usersToUsersDto(userRepository.findAll());
+    public void exportUsers(Consumer<UserDto> consumer) {
+        int count = 0;
+        try (Stream<User> users = userRepository.streamAllUsers()) {
+            for (Iterator<User> iterator = users.iterator(); iterator.hasNext(); ) {
+                consumer.accept(UserDtoMapper.userToUserDto(iterator.next()));
+                if (++count % EXPORT_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        log.info(String.format("%s %d", "Выгружено пользователей:", count));
     }
 
     @Override
-    public UserDto getUserById(long userId) {
-        return UserDtoMapper.userToUserDto(getUser(userId));
+    public UserDto getUserById(long userId, Predicate<String> notModified) {
+        UserSnapshot user = entityResolver.getFreshUserSnapshot(userId);
+        if (notModified.test(String.format("%d-%d", user.getId(), user.getVersion()))) {
+            return null;
+        }
+        return UserDtoMapper.snapshotToUserDto(user);
     }
 
     @Override
+    @Transactional
     public void deleteUser(long userId) {
-        getUser(userId);
+        entityResolver.getUserSnapshot(userId);
+        itemBookingSummaryService.markStaleForBooker(userId);
+        itemRepository.decrementCommentCountsForAuthor(userId);
         userRepository.deleteById(userId);
         log.info(String.format("%s %d %s", "Пользователь с id =", userId, "удалён"));
     }
 
-    private User checkFieldsForUpdate(User user, long userId) {
-        User oldUser = getUser(userId);
+    private void saveImportBatch(List<User> batch, List<UserImportResultDto> batchResults) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            Set<String> existingEmails = transactionTemplate.execute(status -> saveImportChunk(batch));
+            for (int i = 0; i < batch.size(); i++) {
+                String emailNormalized = User.normalizeEmail(batch.get(i).getEmail());
+                if (existingEmails.contains(emailNormalized)) {
+                    batchResults.get(i).setError("Пользователь с таким email уже существует");
+                } else {
+                    batchResults.get(i).setId(batch.get(i).getId());
+                    userEmailFilter.put(emailNormalized);
+                }
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.info(String.format("%s %d %s", "Пакет из", batch.size(),
+                    "пользователей не сохранён, пользователи сохраняются по одному"));
+            for (int i = 0; i < batch.size(); i++) {
+                saveImportRow(batch.get(i), batchResults.get(i));
+            }
+        }
+        batch.clear();
+        batchResults.clear();
+    }
+
+    private Set<String> saveImportChunk(List<User> batch) {
+        List<String> knownEmails = new ArrayList<>();
+        for (User user : batch) {
+            String emailNormalized = User.normalizeEmail(user.getEmail());
+            if (userEmailFilter.mightContain(emailNormalized)) {
+                knownEmails.add(emailNormalized);
+            }
+        }
+        Set<String> existingEmails = knownEmails.isEmpty()
+                ? new HashSet<>() : new HashSet<>(userRepository.findExistingEmails(knownEmails));
+        List<User> newUsers = new ArrayList<>();
+        for (User user : batch) {
+            if (!existingEmails.contains(User.normalizeEmail(user.getEmail()))) {
+                newUsers.add(user);
+            }
+        }
+        userRepository.saveAllAndFlush(newUsers);
+        return existingEmails;
+    }
+
+    private void saveImportRow(User user, UserImportResultDto result) {
+        user.setId(0);
+        user.setVersion(0);
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.saveAndFlush(user));
+        } catch (DataIntegrityViolationException e) {
+            result.setError("Пользователь с таким email уже существует");
+            return;
+        }
+        result.setId(user.getId());
+        userEmailFilter.put(User.normalizeEmail(user.getEmail()));
+    }
+
+    private void checkEmailIsFree(String emailNormalized) {
+        if (userEmailFilter.mightContain(emailNormalized) && userRepository.existsByEmailNormalized(emailNormalized)) {
+            throw emailAlreadyExists();
+        }
+    }
+
+    private User insertIfAbsent(User user, String emailNormalized) {
+        long userId = userRepository.nextUserId();
+        if (userRepository.insertIfAbsent(userId, user.getName(), user.getEmail(), emailNormalized) == 0) {
+            throw emailAlreadyExists();
+        }
+        user.setId(userId);
+        user.setEmailNormalized(emailNormalized);
+        return user;
+    }
+
+    private IsAlreadyExistsException emailAlreadyExists() {
+        String message = "Пользователь с таким email уже существует";
+        log.info(message);
+        return new IsAlreadyExistsException(message);
+    }
+
+    private User checkFieldsForUpdate(User user, User oldUser) {
         if (user.getName() == null) {
             user.setName(oldUser.getName());
         }
         if (user.getEmail() == null) {
             user.setEmail(oldUser.getEmail());
         }
+        user.setVersion(oldUser.getVersion());
         return user;
     }
 
@@ -91,13 +303,4 @@ public class UserServiceImpl implements UserService {
         }
         return usersDto;
     }
-
-    private User getUser(long userId) {
-        if (userRepository.findById(userId).isEmpty()) {
-            String message = String.format("%s %d %s", "Пользователь с id =", userId, "не найден");
-            log.info(message);
-            throw new NotFoundException(message);
-        }
-        return userRepository.findById(userId).get();
-    }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.user;
+
+import lombok.Value;
+
+@Value
+public class UserSnapshot {
+    long id;
+    String name;
+    String email;
+    long version;
+}
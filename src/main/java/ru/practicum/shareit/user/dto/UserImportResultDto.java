@@ -0,0 +1,16 @@
+package ru.practicum.shareit.user.dto;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserImportResultDto {
+    int index;
+    Long id;
+    String email;
+    String error;
+}
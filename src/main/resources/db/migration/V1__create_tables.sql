@@ -0,0 +1,56 @@
+-- Databases created by the former schema.sql already have users, items, bookings and comments.
+-- They are baselined at version 0, so this script runs on them too and adds what schema.sql lacked.
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(70) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS item_requests (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    author_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
+    create_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    description VARCHAR(500) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS items (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    description VARCHAR(300) NOT NULL,
+    available BOOLEAN,
+    owner_id BIGINT REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS bookings (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    item_id BIGINT REFERENCES items(id) ON DELETE CASCADE,
+    booker_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
+    start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    booking_status VARCHAR(40) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS comments (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    item_id BIGINT REFERENCES items(id) ON DELETE CASCADE,
+    author_id BIGINT REFERENCES users(id) ON DELETE CASCADE,
+    create_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    text VARCHAR(500) NOT NULL
+);
+
+ALTER TABLE items ADD COLUMN item_request_id BIGINT REFERENCES item_requests(id) ON DELETE SET NULL;
+
+ALTER TABLE bookings ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE bookings ADD COLUMN idempotency_key VARCHAR(64);
+
+-- schema.sql declared the foreign keys as INTEGER
+ALTER TABLE items ALTER COLUMN owner_id SET DATA TYPE BIGINT;
+
+ALTER TABLE bookings ALTER COLUMN item_id SET DATA TYPE BIGINT;
+
+ALTER TABLE bookings ALTER COLUMN booker_id SET DATA TYPE BIGINT;
+
+ALTER TABLE comments ALTER COLUMN item_id SET DATA TYPE BIGINT;
+
+ALTER TABLE comments ALTER COLUMN author_id SET DATA TYPE BIGINT;
@@ -0,0 +1,24 @@
+-- BookingRepository: booker listings, keyset order (start_date desc, id desc)
+CREATE INDEX bookings_booker_start_idx ON bookings (booker_id, start_date, id);
+
+-- BookingRepository: owner listings through items.owner_id, keyset order per item
+CREATE INDEX bookings_item_start_idx ON bookings (item_id, start_date, id);
+
+-- BookingRepository: last/next booking per item, active bookings of an item, past bookings of a booker for an item
+CREATE INDEX bookings_item_status_start_idx ON bookings (item_id, booking_status, start_date);
+
+-- BookingRepository: POST /bookings retries with an Idempotency-Key
+CREATE UNIQUE INDEX bookings_booker_idempotency_key_uidx ON bookings (booker_id, idempotency_key);
+
+-- ItemRepository: items of an owner ordered by id, owner booking listings
+CREATE INDEX items_owner_idx ON items (owner_id, id);
+
+-- ItemRepository: items created in response to a request
+CREATE INDEX items_item_request_idx ON items (item_request_id);
+
+-- CommentRepository: comments of items ordered by creation date
+CREATE INDEX comments_item_create_date_idx ON comments (item_id, create_date);
+
+-- ItemRequestRepository: own requests and other users' requests ordered by creation date
+CREATE INDEX item_requests_author_create_date_idx ON item_requests (author_id, create_date);
+CREATE INDEX item_requests_create_date_idx ON item_requests (create_date);
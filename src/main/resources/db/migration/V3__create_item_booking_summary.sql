@@ -0,0 +1,14 @@
+CREATE TABLE item_booking_summary (
+    item_id BIGINT PRIMARY KEY REFERENCES items(id) ON DELETE CASCADE,
+    last_booking_id BIGINT,
+    last_booker_id BIGINT,
+    next_booking_id BIGINT,
+    next_booker_id BIGINT,
+    active_booking_count INTEGER NOT NULL DEFAULT 0,
+    refresh_at TIMESTAMP WITHOUT TIME ZONE
+);
+
+CREATE INDEX item_booking_summary_refresh_at_idx ON item_booking_summary (refresh_at);
+
+INSERT INTO item_booking_summary (item_id, refresh_at)
+SELECT id, TIMESTAMP '1970-01-01 00:00:00' FROM items;
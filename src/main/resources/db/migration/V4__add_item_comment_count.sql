@@ -0,0 +1,3 @@
+ALTER TABLE items ADD COLUMN comment_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE items SET comment_count = (SELECT COUNT(*) FROM comments c WHERE c.item_id = items.id);
@@ -0,0 +1,8 @@
+ALTER TABLE users ADD COLUMN email_normalized VARCHAR(70);
+
+UPDATE users SET email_normalized = LOWER(TRIM(email));
+
+ALTER TABLE users ALTER COLUMN email_normalized SET NOT NULL;
+
+-- UserRepository: case-insensitive email uniqueness and existence probe
+CREATE UNIQUE INDEX users_email_normalized_uidx ON users (email_normalized);
@@ -0,0 +1,111 @@
+package ru.practicum.shareit;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "shareit.server.async-requests.enabled=true")
+@AutoConfigureMockMvc
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AsyncRequestTest {
+    static final String headerUserValue = "X-Sharer-User-Id";
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    BookingRepository bookingRepository;
+    @Autowired
+    CacheManager cacheManager;
+    User owner;
+    User booker;
+    Item item;
+    Booking booking;
+
+    @BeforeEach
+    void beforeEach() {
+        owner = userRepository.save(User.builder().name("asyncOwner").email("asyncOwner@mail.ru").build());
+        booker = userRepository.save(User.builder().name("asyncBooker").email("asyncBooker@mail.ru").build());
+        item = itemRepository.save(Item.builder().name("asyncItem").description("asyncItemDescription")
+                .available(true).owner(owner).build());
+        LocalDateTime currentDate = LocalDateTime.now();
+        booking = bookingRepository.save(Booking.builder().start(currentDate.plusDays(1)).end(currentDate.plusDays(2))
+                .item(item).booker(booker).status(BookingStatus.WAITING).build());
+    }
+
+    @AfterEach
+    void afterEach() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void getAllItemsTest_whenAsyncEnabled_thenHandledOnRequestPool() throws Exception {
+        MvcResult result = mockMvc.perform(get("/items").header(headerUserValue, owner.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(item.getId()))
+                .andExpect(jsonPath("$[0].name").value(item.getName()));
+    }
+
+    @Test
+    void getOwnerBookingsTest_whenAsyncEnabled_thenBookings() throws Exception {
+        MvcResult result = mockMvc.perform(get("/bookings/owner").header(headerUserValue, owner.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(booking.getId()));
+    }
+
+    @Test
+    void getOwnerBookingsTest_whenAsyncHandlerThrows_thenErrorHandlerResponse() throws Exception {
+        MvcResult result = mockMvc.perform(get("/bookings/owner").header(headerUserValue, owner.getId())
+                        .param("size", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void getItemByIdTest_whenAsyncEnabled_thenHandledOnTomcatThread() throws Exception {
+        mockMvc.perform(get("/items/{itemId}", item.getId()).header(headerUserValue, owner.getId()))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk());
+    }
+}
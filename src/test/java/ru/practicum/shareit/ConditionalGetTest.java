@@ -0,0 +1,162 @@
+package ru.practicum.shareit;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ConditionalGetTest {
+    static final String headerUserValue = "X-Sharer-User-Id";
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    ItemRequestRepository itemRequestRepository;
+    @Autowired
+    BookingRepository bookingRepository;
+    @Autowired
+    CacheManager cacheManager;
+    User owner;
+    User booker;
+    Item item;
+    ItemRequest itemRequest;
+    Booking booking;
+
+    @BeforeEach
+    void beforeEach() {
+        owner = userRepository.save(User.builder().name("etagOwner").email("etagOwner@mail.ru").build());
+        booker = userRepository.save(User.builder().name("etagBooker").email("etagBooker@mail.ru").build());
+        itemRequest = itemRequestRepository.save(ItemRequest.builder().author(booker).created(LocalDateTime.now())
+                .description("etagRequest").build());
+        item = itemRepository.save(Item.builder().name("etagItem").description("etagItemDescription")
+                .available(true).owner(owner).itemRequest(itemRequest).build());
+        LocalDateTime currentDate = LocalDateTime.now();
+        booking = bookingRepository.save(Booking.builder().start(currentDate.plusDays(1)).end(currentDate.plusDays(2))
+                .item(item).booker(booker).status(BookingStatus.WAITING).build());
+    }
+
+    @AfterEach
+    void afterEach() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        itemRequestRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void getItemByIdTest_whenETagMatches_thenNotModifiedUntilItemUpdated() throws Exception {
+        String eTag = getETag("/items/" + item.getId(), booker.getId());
+
+        mockMvc.perform(get("/items/{itemId}", item.getId()).header(headerUserValue, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(patch("/items/{itemId}", item.getId()).header(headerUserValue, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"renamedItem\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/items/{itemId}", item.getId()).header(headerUserValue, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        assertNotEquals(eTag, getETag("/items/" + item.getId(), booker.getId()));
+    }
+
+    @Test
+    void getUserByIdTest_whenETagMatches_thenNotModifiedUntilUserUpdated() throws Exception {
+        String eTag = getETag("/users/" + owner.getId(), owner.getId());
+
+        mockMvc.perform(get("/users/{userId}", owner.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch("/users/{userId}", owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"renamedOwner\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/{userId}", owner.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getBookingByIdTest_whenETagMatches_thenNotModifiedUntilBookingApproved() throws Exception {
+        String eTag = getETag("/bookings/" + booking.getId(), booker.getId());
+
+        mockMvc.perform(get("/bookings/{bookingId}", booking.getId()).header(headerUserValue, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch("/bookings/{bookingId}", booking.getId()).header(headerUserValue, owner.getId())
+                        .param("approved", "true"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/bookings/{bookingId}", booking.getId()).header(headerUserValue, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void getRequestByIdTest_whenETagMatches_thenNotModifiedUntilItemAdded() throws Exception {
+        String eTag = getETag("/requests/" + itemRequest.getId(), booker.getId());
+
+        mockMvc.perform(get("/requests/{requestId}", itemRequest.getId()).header(headerUserValue, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/items").header(headerUserValue, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"answer\",\"description\":\"answerDescription\",\"available\":true," +
+                                "\"requestId\":" + itemRequest.getId() + "}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/requests/{requestId}", itemRequest.getId()).header(headerUserValue, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    private String getETag(String path, long userId) throws Exception {
+        String eTag = mockMvc.perform(get(path).header(headerUserValue, userId))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertEquals('"', eTag.charAt(0));
+        return eTag;
+    }
+}
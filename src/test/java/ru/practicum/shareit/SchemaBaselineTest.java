@@ -0,0 +1,54 @@
+package ru.practicum.shareit;
+
+import lombok.SneakyThrows;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SchemaBaselineTest {
+
+    @SneakyThrows
+    @Test
+    void migrateTest_whenDatabaseCreatedBySchemaSql_thenBaselineAndMigrate() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:schema-initial;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/legacy/schema-initial.sql"));
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("insert into users (name, email) values ('owner', 'Owner@mail.ru')");
+        jdbcTemplate.update("insert into items (name, description, available, owner_id) values ('drill', 'drill', true, 1)");
+        Properties properties = PropertiesLoaderUtils.loadAllProperties("application.properties");
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations(properties.getProperty("spring.flyway.locations"))
+                .baselineOnMigrate(Boolean.parseBoolean(properties.getProperty("spring.flyway.baseline-on-migrate")))
+                .baselineVersion(properties.getProperty("spring.flyway.baseline-version"))
+                .load();
+        flyway.migrate();
+
+        MigrationInfo[] applied = flyway.info().applied();
+        assertEquals("0", applied[0].getVersion().getVersion());
+        assertEquals("1", applied[1].getVersion().getVersion());
+        assertEquals(flyway.info().all()[flyway.info().all().length - 1].getVersion(), flyway.info().current().getVersion());
+        assertEquals("owner@mail.ru", jdbcTemplate.queryForObject("select email_normalized from users", String.class));
+        assertEquals(1, jdbcTemplate.queryForObject("select comment_count + 1 from items", Integer.class));
+        jdbcTemplate.update("insert into item_requests (author_id, create_date, description) values (1, current_timestamp, 'drill')");
+        jdbcTemplate.update("insert into users (name, email, email_normalized) values ('booker', 'booker@mail.ru', 'booker@mail.ru')");
+        assertThat(jdbcTemplate.queryForObject("select max(id) from users", Long.class)).isGreaterThan(1L);
+        assertThat(jdbcTemplate.queryForList("select lower(index_name) from information_schema.indexes", String.class))
+                .contains("bookings_booker_start_idx", "items_owner_idx", "bookings_booker_idempotency_key_uidx");
+    }
+}
@@ -0,0 +1,77 @@
+package ru.practicum.shareit;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SchemaIndexTest {
+    static final String TABLE_SCAN = "tableScan";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migrationsTest_whenApplied_thenQueryIndexesCreated() {
+        assertThat(jdbcTemplate.queryForList("select lower(index_name) from information_schema.indexes", String.class))
+                .contains("bookings_booker_start_idx", "bookings_item_start_idx", "bookings_item_status_start_idx",
+                        "bookings_booker_idempotency_key_uidx", "items_owner_idx", "items_item_request_idx",
+                        "comments_item_create_date_idx", "item_requests_author_create_date_idx",
+                        "item_requests_create_date_idx", "item_booking_summary_refresh_at_idx");
+    }
+
+    @Test
+    void bookerBookingsTest_whenListed_thenUseBookerStartIndex() {
+        assertThat(explain("select * from bookings where booker_id = 1 and start_date < current_timestamp " +
+                "order by start_date desc, id desc limit 10"))
+                .containsIgnoringCase("bookings_booker_start_idx");
+    }
+
+    @Test
+    void lastBookingsTest_whenSearched_thenUseItemStatusStartIndex() {
+        assertThat(explain("select max(start_date) from bookings " +
+                "where item_id = 1 and booking_status = 'APPROVED' and start_date < current_timestamp"))
+                .containsIgnoringCase("bookings_item_status_start_idx");
+    }
+
+    @Test
+    void ownerBookingsTest_whenListed_thenNoTableScan() {
+        assertThat(explain("select b.* from bookings b join items i on b.item_id = i.id where i.owner_id = 1 " +
+                "order by b.start_date desc, b.id desc limit 10"))
+                .doesNotContain(TABLE_SCAN);
+    }
+
+    @Test
+    void ownerItemsTest_whenListed_thenNoTableScan() {
+        assertThat(explain("select * from items where owner_id = 1 order by id limit 10"))
+                .doesNotContain(TABLE_SCAN);
+    }
+
+    @Test
+    void requestItemsTest_whenSearched_thenNoTableScan() {
+        assertThat(explain("select * from items where item_request_id = 1"))
+                .doesNotContain(TABLE_SCAN);
+    }
+
+    @Test
+    void itemCommentsTest_whenListed_thenNoTableScan() {
+        assertThat(explain("select * from comments where item_id in (1, 2) order by create_date"))
+                .doesNotContain(TABLE_SCAN);
+    }
+
+    @Test
+    void authorRequestsTest_whenListed_thenNoTableScan() {
+        assertThat(explain("select * from item_requests where author_id = 1 order by create_date desc"))
+                .doesNotContain(TABLE_SCAN);
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+}
@@ -0,0 +1,217 @@
+package ru.practicum.shareit;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.CommentRepository;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class StatementCountTest {
+    static final String headerUserValue = "X-Sharer-User-Id";
+    static final int itemCount = 4;
+    static final int bookingCount = 20;
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    ItemRequestRepository itemRequestRepository;
+    @Autowired
+    BookingRepository bookingRepository;
+    @Autowired
+    CommentRepository commentRepository;
+    @Autowired
+    CacheManager cacheManager;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    Statistics statistics;
+    User owner;
+    User booker;
+    List<Item> items;
+    List<Booking> bookings;
+
+    @BeforeEach
+    void beforeEach() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        owner = userRepository.save(User.builder().name("statOwner").email("statOwner@mail.ru").build());
+        booker = userRepository.save(User.builder().name("statBooker").email("statBooker@mail.ru").build());
+        items = new ArrayList<>();
+        bookings = new ArrayList<>();
+        LocalDateTime currentDate = LocalDateTime.now();
+        for (int i = 0; i < itemCount; i++) {
+            User requester = userRepository.save(User.builder().name("statRequester" + i)
+                    .email("statRequester" + i + "@mail.ru").build());
+            ItemRequest itemRequest = itemRequestRepository.save(ItemRequest.builder().author(requester)
+                    .created(currentDate.minusDays(10 - i)).description("statRequest" + i).build());
+            items.add(itemRepository.save(Item.builder().name("statItem" + i).description("statItemDescription" + i)
+                    .available(true).owner(owner).itemRequest(itemRequest).build()));
+        }
+        for (int i = 0; i < bookingCount; i++) {
+            Item item = items.get(i % itemCount);
+            LocalDateTime start = currentDate.plusDays(i - bookingCount / 2);
+            bookings.add(bookingRepository.save(Booking.builder().start(start).end(start.plusHours(12))
+                    .item(item).booker(booker).status(BookingStatus.APPROVED).build()));
+        }
+        for (Item item : items) {
+            commentRepository.save(Comment.builder().item(item).author(booker).text("statComment")
+                    .createDate(currentDate.minusDays(1)).build());
+        }
+        jdbcTemplate.update("update items set comment_count = 1 where owner_id = ?", owner.getId());
+    }
+
+    @AfterEach
+    void afterEach() {
+        commentRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        itemRequestRepository.deleteAll();
+        userRepository.deleteAll();
+        clearCaches();
+    }
+
+    @Test
+    void getBookingsTest_whenExpandedPageOfTwenty_thenThreeStatements() throws Exception {
+        assertStatements(3, get("/bookings").header(headerUserValue, booker.getId())
+                .param("from", "0").param("size", String.valueOf(bookingCount)).param("expand", "true"));
+    }
+
+    @Test
+    void getOwnerBookingsTest_whenExpandedPageOfTwenty_thenThreeStatements() throws Exception {
+        assertStatements(3, get("/bookings/owner").header(headerUserValue, owner.getId())
+                .param("from", "0").param("size", String.valueOf(bookingCount)).param("expand", "true"));
+    }
+
+    @Test
+    void getBookingByIdTest_whenBooker_thenTwoStatements() throws Exception {
+        assertStatements(2, get("/bookings/{bookingId}", bookings.get(0).getId()).header(headerUserValue, booker.getId()));
+    }
+
+    @Test
+    void getItemByIdTest_whenNotOwner_thenThreeStatements() throws Exception {
+        assertStatements(3, get("/items/{itemId}", items.get(0).getId()).header(headerUserValue, booker.getId()));
+    }
+
+    @Test
+    void getItemByIdTest_whenNotModified_thenOneStatement() throws Exception {
+        String eTag = mockMvc.perform(get("/items/{itemId}", items.get(0).getId()).header(headerUserValue, booker.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        clearCaches();
+        statistics.clear();
+
+        mockMvc.perform(get("/items/{itemId}", items.get(0).getId()).header(headerUserValue, booker.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getItemCommentsTest_whenCommentsPage_thenItemAndAuthorFetchedWithComments() throws Exception {
+        assertStatements(2, get("/items/{itemId}/comments", items.get(0).getId()));
+    }
+
+    @Test
+    void addCommentTest_whenPastBooking_thenItemSerializedWithoutLazyAssociations() throws Exception {
+        assertStatements(5, post("/items/{itemId}/comment", items.get(0).getId()).header(headerUserValue, booker.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"text\":\"newStatComment\"}"));
+
+        mockMvc.perform(get("/items/{itemId}/comments", items.get(0).getId()))
+                .andExpect(jsonPath("$[0].item.name").value(items.get(0).getName()))
+                .andExpect(jsonPath("$[0].item.owner").doesNotExist());
+    }
+
+    @Test
+    void getAllItemsTest_whenOwnerWithBookings_thenSevenStatements() throws Exception {
+        assertStatements(7, get("/items").header(headerUserValue, owner.getId()));
+    }
+
+    @Test
+    void getAllItemRequestsTest_whenRequestFeed_thenThreeStatements() throws Exception {
+        assertStatements(3, get("/requests/all").header(headerUserValue, owner.getId())
+                .param("from", "0").param("size", "10"));
+    }
+
+    @Test
+    void importUsersTest_whenHundredTwentyUsers_thenInsertsBatched() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            content.append(String.format("{\"name\":\"statImported%d\",\"email\":\"statImported%d@mail.ru\"}\n", i, i));
+        }
+
+        assertStatements(3, post("/users/batch").contentType("application/x-ndjson").content(content.toString()));
+
+        assertEquals(120, statistics.getEntityInsertCount());
+        assertEquals(2, userRepository.findExistingEmails(List.of("statimported0@mail.ru", "statimported119@mail.ru")).size());
+    }
+
+    @Test
+    void importItemsTest_whenHundredTwentyItems_thenInsertsBatchedAndSummariesCreated() throws Exception {
+        StringBuilder content = new StringBuilder("name,description,available,requestId\n");
+        for (int i = 0; i < 120; i++) {
+            content.append(String.format("statImported%d,statImportedDescription%d,true,%d%n", i, i,
+                    items.get(0).getItemRequest().getId()));
+        }
+
+        assertStatements(6, post("/items/batch").header(headerUserValue, owner.getId())
+                .contentType("text/csv").content(content.toString()));
+
+        assertEquals(120, statistics.getEntityInsertCount());
+        assertEquals(120, jdbcTemplate.queryForObject("select count(*) from item_booking_summary s " +
+                "join items i on i.id = s.item_id where i.owner_id = ?", Long.class, owner.getId()));
+    }
+
+    private void assertStatements(long expected, RequestBuilder request) throws Exception {
+        clearCaches();
+        statistics.clear();
+
+        mockMvc.perform(request).andExpect(status().isOk()).andExpect(jsonPath("$").exists());
+
+        assertEquals(expected, statistics.getPrepareStatementCount());
+    }
+
+    private void clearCaches() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+}
@@ -6,10 +6,13 @@ import lombok.Data;
 import lombok.experimental.FieldDefaults;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.ItemSnapshot;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.dto.ItemRequestSnapshot;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserSnapshot;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
@@ -27,4 +30,18 @@ public class TestHelper {
     Comment comment = Comment.builder().id(1L).text("commentText").createDate(LocalDateTime.now()).build();
     Booking booking = Booking.builder().id(1L).status(BookingStatus.APPROVED)
             .start(LocalDateTime.now().minus(10, ChronoUnit.DAYS)).end(LocalDateTime.now().minus(3, ChronoUnit.DAYS)).build();
-}
\ No newline at end of file
+
+    public static UserSnapshot snapshotOf(User user) {
+        return new UserSnapshot(user.getId(), user.getName(), user.getEmail(), user.getVersion());
+    }
+
+    public static ItemSnapshot snapshotOf(Item item) {
+        return new ItemSnapshot(item.getId(), item.getName(), item.getDescription(), item.getAvailable(),
+                item.getOwner() == null ? null : item.getOwner().getId(), item.getVersion());
+    }
+
+    public static ItemRequestSnapshot snapshotOf(ItemRequest itemRequest) {
+        return new ItemRequestSnapshot(itemRequest.getId(), itemRequest.getDescription(), itemRequest.getCreated(),
+                itemRequest.getAuthor() == null ? null : itemRequest.getAuthor().getId(), itemRequest.getVersion());
+    }
+}
@@ -0,0 +1,136 @@
+package ru.practicum.shareit;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class TransactionConnectionTest {
+    static final AtomicInteger connectionCount = new AtomicInteger();
+    static final String headerUserValue = "X-Sharer-User-Id";
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    BookingRepository bookingRepository;
+    @Autowired
+    CacheManager cacheManager;
+    User owner;
+    User booker;
+    Item item;
+
+    @TestConfiguration
+    static class ConnectionCountingConfig {
+        @Bean
+        static BeanPostProcessor connectionCountingPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource)) {
+                        return bean;
+                    }
+                    return new DelegatingDataSource((DataSource) bean) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            connectionCount.incrementAndGet();
+                            return super.getConnection();
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        owner = userRepository.save(User.builder().name("txOwner").email("txOwner@mail.ru").build());
+        booker = userRepository.save(User.builder().name("txBooker").email("txBooker@mail.ru").build());
+        item = itemRepository.save(Item.builder().name("txItem").description("txItemDescription")
+                .available(true).owner(owner).build());
+        LocalDateTime currentDate = LocalDateTime.now();
+        bookingRepository.save(Booking.builder().start(currentDate.minusDays(2)).end(currentDate.minusDays(1))
+                .item(item).booker(booker).status(BookingStatus.APPROVED).build());
+        bookingRepository.save(Booking.builder().start(currentDate.plusDays(1)).end(currentDate.plusDays(2))
+                .item(item).booker(booker).status(BookingStatus.APPROVED).build());
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        connectionCount.set(0);
+    }
+
+    @AfterEach
+    void afterEach() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void getItemByIdTest_whenOwnerRequests_thenOneConnection() throws Exception {
+        mockMvc.perform(get("/items/{itemId}", item.getId()).header(headerUserValue, owner.getId()))
+                .andExpect(status().isOk());
+
+        assertEquals(1, connectionCount.get());
+    }
+
+    @Test
+    void getAllItemsTest_whenOwnerRequests_thenOneConnection() throws Exception {
+        mockMvc.perform(get("/items").header(headerUserValue, owner.getId()))
+                .andExpect(status().isOk());
+
+        assertEquals(1, connectionCount.get());
+    }
+
+    @Test
+    void getBookingsTest_whenBookerRequests_thenOneConnection() throws Exception {
+        mockMvc.perform(get("/bookings").header(headerUserValue, booker.getId()).param("expand", "true"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, connectionCount.get());
+    }
+
+    @Test
+    void addNewItemTest_whenItemCorrect_thenOneConnection() throws Exception {
+        mockMvc.perform(post("/items").header(headerUserValue, owner.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"newItem\",\"description\":\"newItemDescription\",\"available\":true}"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, connectionCount.get());
+    }
+}
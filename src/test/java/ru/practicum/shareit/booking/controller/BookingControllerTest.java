@@ -12,22 +12,43 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.util.LinkedMultiValueMap;
 import ru.practicum.shareit.booking.BookingController;
+import ru.practicum.shareit.booking.BookingExportFormat;
+import ru.practicum.shareit.booking.BookingExportWriter;
+import ru.practicum.shareit.booking.dto.BookingApprovalResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingItemDto;
+import ru.practicum.shareit.booking.dto.BookingUserDto;
+import ru.practicum.shareit.booking.dto.RequestBodyBookingApprovalDto;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.exception.IsAlreadyDoneException;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -35,6 +56,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(controllers = BookingController.class)
 @AutoConfigureMockMvc
+@Import(PaginationProperties.class)
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class BookingControllerTest {
     @Autowired
@@ -42,6 +64,9 @@ public class BookingControllerTest {
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    PaginationProperties paginationProperties;
+
     @MockBean
     @Qualifier("BookingServiceImpl")
     BookingService bookingService;
@@ -67,7 +92,7 @@ public class BookingControllerTest {
     @SneakyThrows
     @Test
     void addBookingTest_whenBookingCorrect_thenReturnOK() {
-        when(bookingService.addNewBooking(any(), anyLong())).thenReturn(bookingDtoCorrect);
+        when(bookingService.addNewBooking(any(), anyLong(), any())).thenReturn(bookingDtoCorrect);
 
         String result = mockMvc.perform(post(pathBookings)
                         .content(objectMapper.writeValueAsString(bookingDtoCorrect))
@@ -77,14 +102,14 @@ public class BookingControllerTest {
                 .andReturn()
                 .getResponse()
                 .getContentAsString();
-        verify(bookingService).addNewBooking(any(), anyLong());
+        verify(bookingService).addNewBooking(any(), anyLong(), any());
         assertEquals(objectMapper.writeValueAsString(bookingDtoCorrect), result);
     }
 
     @SneakyThrows
     @Test
     void addBookingTest_whenBookingEndEmpty_thenThrow() {
-        when(bookingService.addNewBooking(any(), anyLong())).thenThrow(new ValidationException("Start date and end date must not be null"));
+        when(bookingService.addNewBooking(any(), anyLong(), any())).thenThrow(new ValidationException("Start date and end date must not be null"));
 
         String result = mockMvc.perform(post(pathBookings)
                         .content(objectMapper.writeValueAsString(bookingDtoEmptyEnd))
@@ -95,7 +120,7 @@ public class BookingControllerTest {
                 .getResponse()
                 .getContentAsString();
 
-        verify(bookingService).addNewBooking(any(), anyLong());
+        verify(bookingService).addNewBooking(any(), anyLong(), any());
         assertEquals("{\"error\":\"Start date and end date must not be null\"}", result);
     }
 
@@ -146,14 +171,14 @@ public class BookingControllerTest {
         requestParams.add("size", "10");
         requestParams.add("state", "ALL");
 
-        when(bookingService.getBookingCurrentUser(anyLong(), anyString(), anyInt(), anyInt())).thenReturn(List.of(bookingDtoCorrect));
+        when(bookingService.getBookingCurrentUser(anyLong(), anyString(), anyInt(), anyInt(), anyBoolean())).thenReturn(List.of(bookingDtoCorrect));
 
         mockMvc.perform(get(pathBookings)
                         .header(headerUserValue, 1)
                         .params(requestParams))
                 .andExpect(status().is2xxSuccessful());
 
-        verify(bookingService).getBookingCurrentUser(anyLong(), anyString(), anyInt(), anyInt());
+        verify(bookingService).getBookingCurrentUser(anyLong(), anyString(), anyInt(), anyInt(), anyBoolean());
     }
 
     @SneakyThrows
@@ -164,23 +189,166 @@ public class BookingControllerTest {
         requestParams.add("size", "10");
         requestParams.add("state", "ALL");
 
-        when(bookingService.getBookingForItemsCurrentUser(anyLong(), anyString(), anyInt(), anyInt())).thenReturn(List.of(bookingDtoCorrect));
+        when(bookingService.getBookingForItemsCurrentUser(anyLong(), anyString(), anyInt(), anyInt(), anyBoolean())).thenReturn(List.of(bookingDtoCorrect));
 
         mockMvc.perform(get(pathBookings + "/owner")
                         .header(headerUserValue, 1)
                         .params(requestParams))
                 .andExpect(status().is2xxSuccessful());
 
-        verify(bookingService).getBookingForItemsCurrentUser(anyLong(), anyString(), anyInt(), anyInt());
+        verify(bookingService).getBookingForItemsCurrentUser(anyLong(), anyString(), anyInt(), anyInt(), anyBoolean());
+    }
+
+    @SneakyThrows
+    @Test
+    void getBookingsForCurrentUserTest_whenCursorPresent_thenReturnNextCursor() {
+        LinkedMultiValueMap<String, String> requestParams = new LinkedMultiValueMap<>();
+        requestParams.add("size", "1");
+        requestParams.add("cursor", "");
+
+        when(bookingService.getBookingCurrentUserByCursor(anyLong(), anyString(), anyString(), anyInt(), anyBoolean())).thenReturn(List.of(bookingDtoCorrect));
+
+        String nextCursor = mockMvc.perform(get(pathBookings)
+                        .header(headerUserValue, 1)
+                        .params(requestParams))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+
+        verify(bookingService, never()).getBookingCurrentUser(anyLong(), anyString(), anyInt(), anyInt(), anyBoolean());
+        assertEquals(PageCursor.of(bookingDtoCorrect.getStart(), bookingDtoCorrect.getId()).encode(), nextCursor);
+    }
+
+    @SneakyThrows
+    @Test
+    void getBookingsForCurrentUserTest_whenSizeAboveMaxAndPageFull_thenReturnNextCursor() {
+        LinkedMultiValueMap<String, String> requestParams = new LinkedMultiValueMap<>();
+        requestParams.add("size", "1000");
+        requestParams.add("cursor", "");
+
+        when(bookingService.getBookingForItemsCurrentUserByCursor(anyLong(), anyString(), anyString(), anyInt(), anyBoolean()))
+                .thenReturn(Collections.nCopies(paginationProperties.getMaxPageSize(), bookingDtoCorrect));
+
+        String nextCursor = mockMvc.perform(get(pathBookings + "/owner")
+                        .header(headerUserValue, 1)
+                        .params(requestParams))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+
+        assertEquals(PageCursor.of(bookingDtoCorrect.getStart(), bookingDtoCorrect.getId()).encode(), nextCursor);
+    }
+
+    @SneakyThrows
+    @Test
+    void addBookingTest_whenIdempotencyKeyPresent_thenPassKey() {
+        when(bookingService.addNewBooking(any(), anyLong(), eq("key-1"))).thenReturn(bookingDtoCorrect);
+
+        mockMvc.perform(post(pathBookings)
+                        .content(objectMapper.writeValueAsString(bookingDtoCorrect))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(headerUserValue, 1)
+                        .header("Idempotency-Key", "key-1"))
+                .andExpect(status().is2xxSuccessful());
+
+        verify(bookingService).addNewBooking(any(), anyLong(), eq("key-1"));
+    }
+
+    @SneakyThrows
+    @Test
+    void approveOrRejectBookingsTest_whenBatch_thenResultPerBooking() {
+        List<RequestBodyBookingApprovalDto> approvals = List.of(new RequestBodyBookingApprovalDto(1L, true),
+                new RequestBodyBookingApprovalDto(2L, false));
+        when(bookingService.approveOrRejectBookings(anyLong(), anyList())).thenReturn(List.of(
+                BookingApprovalResultDto.builder().bookingId(1L).status(BookingStatus.APPROVED).build(),
+                BookingApprovalResultDto.builder().bookingId(2L).status(BookingStatus.REJECTED).build()));
+
+        mockMvc.perform(patch(pathBookings + "/batch")
+                        .content(objectMapper.writeValueAsString(approvals))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(headerUserValue, 1))
+                .andExpect(status().is2xxSuccessful());
+
+        verify(bookingService).approveOrRejectBookings(eq(1L), eq(approvals));
+        verify(bookingService, never()).approveOrRejectBooking(anyLong(), anyLong(), anyBoolean());
+    }
+
+    @SneakyThrows
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportBookingsTest_whenCsv_thenLinePerBooking() {
+        bookingDtoCorrect.setItem(BookingItemDto.builder().id(1L).name("Дрель, \"Bosch\"").build());
+        bookingDtoCorrect.setBooker(BookingUserDto.builder().id(2L).build());
+        doAnswer(invocation -> {
+            Consumer<BookingDto> consumer = invocation.getArgument(1);
+            consumer.accept(bookingDtoCorrect);
+            consumer.accept(bookingDtoCorrect);
+            return null;
+        }).when(bookingService).exportBookingsCurrentUser(anyLong(), any(Consumer.class));
+
+        String content = mockMvc.perform(get(pathBookings + "/export")
+                        .param("format", "csv")
+                        .header(headerUserValue, 1))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = content.split("\\R");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].startsWith("1,1,\"Дрель, \"\"Bosch\"\"\",2,"));
+    }
+
+    @SneakyThrows
+    @Test
+    void exportBookingsTest_whenClientDisconnected_thenStopWriting() {
+        bookingDtoCorrect.setItem(BookingItemDto.builder().id(1L).name("Дрель").build());
+        bookingDtoCorrect.setBooker(BookingUserDto.builder().id(2L).build());
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        });
+        BookingExportWriter writer = new BookingExportWriter(response, objectMapper, BookingExportFormat.NDJSON);
+
+        assertThrows(UncheckedIOException.class, () -> {
+            for (int i = 0; i < 10_000; i++) {
+                writer.accept(bookingDtoCorrect);
+            }
+        });
+    }
+
+    @SneakyThrows
+    @Test
+    void exportBookingsTest_whenFormatIllegal_thenBadRequest() {
+        mockMvc.perform(get(pathBookings + "/owner/export")
+                        .param("format", "xml")
+                        .header(headerUserValue, 1))
+                .andExpect(status().isBadRequest());
+
+        verify(bookingService, never()).exportBookingsForItemsCurrentUser(anyLong(), any());
     }
 
     @SneakyThrows
     @Test
     void getBookingByIdTest() {
-        when(bookingService.getBookingById(anyLong(), anyLong())).thenReturn(bookingDtoCorrect);
+        when(bookingService.getBookingById(anyLong(), anyLong(), any())).thenReturn(bookingDtoCorrect);
 
         mockMvc.perform(get(pathBookings + pathBookingId, 1).header(headerUserValue, 1)).andExpect(status().is2xxSuccessful());
 
-        verify(bookingService).getBookingById(anyLong(), anyLong());
+        verify(bookingService).getBookingById(anyLong(), anyLong(), any());
     }
 }
@@ -9,7 +9,12 @@ import org.springframework.boot.test.autoconfigure.json.JsonTest;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.json.JsonContent;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.mapper.BookingDtoMapper;
+import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.User;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -39,4 +44,34 @@ public class BookingDtoTest {
         assertThat(result).extractingJsonPathStringValue("$.booker").isBlank();
         assertThat(result).extractingJsonPathStringValue("$.status").isEqualTo(bookingDto.getStatus().toString());
     }
+
+    @Test
+    void bookingDtoJsonTest_whenFullView_thenNestedOwnerAndItemRequest() throws IOException {
+        User owner = User.builder().id(1L).name("owner").email("owner@mail.ru").build();
+        User author = User.builder().id(2L).name("author").email("author@mail.ru").build();
+        User booker = User.builder().id(3L).name("booker").email("booker@mail.ru").build();
+        ItemRequest itemRequest = ItemRequest.builder().id(4L).author(author).description("нужна дрель")
+                .created(LocalDateTime.now()).build();
+        Item item = Item.builder().id(5L).name("дрель").description("ударная").available(true)
+                .owner(owner).itemRequest(itemRequest).build();
+        Booking booking = Booking.builder().id(6L).item(item).booker(booker).start(LocalDateTime.now())
+                .end(LocalDateTime.now().plus(1, ChronoUnit.DAYS)).status(BookingStatus.WAITING).build();
+
+        JsonContent<BookingDto> result = jacksonTester.write(BookingDtoMapper.mapRow(booking));
+
+        assertThat(result).extractingJsonPathNumberValue("$.item.id").isEqualTo(5);
+        assertThat(result).extractingJsonPathStringValue("$.item.description").isEqualTo("ударная");
+        assertThat(result).extractingJsonPathBooleanValue("$.item.available").isTrue();
+        assertThat(result).extractingJsonPathNumberValue("$.item.owner.id").isEqualTo(1);
+        assertThat(result).extractingJsonPathStringValue("$.item.owner.name").isEqualTo("owner");
+        assertThat(result).extractingJsonPathStringValue("$.item.owner.email").isEqualTo("owner@mail.ru");
+        assertThat(result).extractingJsonPathNumberValue("$.item.itemRequest.id").isEqualTo(4);
+        assertThat(result).extractingJsonPathStringValue("$.item.itemRequest.description").isEqualTo("нужна дрель");
+        assertThat(result).extractingJsonPathStringValue("$.item.itemRequest.created").isNotBlank();
+        assertThat(result).extractingJsonPathNumberValue("$.item.itemRequest.author.id").isEqualTo(2);
+        assertThat(result).extractingJsonPathStringValue("$.item.itemRequest.author.email").isEqualTo("author@mail.ru");
+        assertThat(result).extractingJsonPathStringValue("$.booker.name").isEqualTo("booker");
+        assertThat(result).doesNotHaveJsonPath("$.item.ownerId");
+        assertThat(result).doesNotHaveJsonPath("$.item.requestId");
+    }
 }
@@ -0,0 +1,217 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BookingCalendarTest {
+    @Mock
+    BookingRepository bookingRepository;
+    @Mock
+    ItemRepository itemRepository;
+    BookingCalendar bookingCalendar;
+    final Item item = Item.builder().id(1L).build();
+    final LocalDateTime start = LocalDateTime.now().plusDays(10);
+    Booking approvedBooking;
+
+    @BeforeEach
+    void beforeEach() {
+        bookingCalendar = new BookingCalendar(bookingRepository, itemRepository);
+        approvedBooking = Booking.builder().id(1L).item(item).status(BookingStatus.APPROVED)
+                .start(start).end(start.plusDays(2)).build();
+        when(bookingRepository.findActiveBookingsForItem(anyLong(), any(), any())).thenReturn(List.of(approvedBooking));
+    }
+
+    @AfterEach
+    void afterEach() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void checkFreeTest_whenOverlapsApproved_thenThrowException() {
+        assertThrows(ValidationException.class,
+                () -> bookingCalendar.checkFree(item.getId(), start.plusDays(1), start.plusDays(5)));
+        assertThrows(ValidationException.class,
+                () -> bookingCalendar.checkFree(item.getId(), start.minusDays(1), start.plusHours(1)));
+    }
+
+    @Test
+    void checkFreeTest_whenAdjacent_thenFree() {
+        assertDoesNotThrow(() -> bookingCalendar.checkFree(item.getId(), start.plusDays(2), start.plusDays(3)));
+        assertDoesNotThrow(() -> bookingCalendar.checkFree(item.getId(), start.minusDays(1), start));
+    }
+
+    @Test
+    void checkFreeTest_whenApprovedRowsShareStart_thenCheckEveryRow() {
+        Booking shortBooking = Booking.builder().id(2L).item(item).status(BookingStatus.APPROVED)
+                .start(start).end(start.plusHours(1)).build();
+        Booking longBooking = Booking.builder().id(3L).item(item).status(BookingStatus.APPROVED)
+                .start(start).end(start.plusDays(5)).build();
+        when(bookingRepository.findActiveBookingsForItem(anyLong(), any(), any()))
+                .thenReturn(List.of(shortBooking, longBooking));
+
+        assertThrows(ValidationException.class,
+                () -> bookingCalendar.checkFree(item.getId(), start.plusDays(3), start.plusDays(4)));
+        bookingCalendar.release(shortBooking);
+        assertThrows(ValidationException.class,
+                () -> bookingCalendar.checkFree(item.getId(), start.plusDays(3), start.plusDays(4)));
+    }
+
+    @Test
+    void checkFreeTest_whenLongRowStartsBeforeOverlappingShortRow_thenFindLongRow() {
+        Booking longBooking = Booking.builder().id(2L).item(item).status(BookingStatus.APPROVED)
+                .start(start).end(start.plusDays(10)).build();
+        Booking shortBooking = Booking.builder().id(3L).item(item).status(BookingStatus.APPROVED)
+                .start(start.plusDays(1)).end(start.plusDays(2)).build();
+        when(bookingRepository.findActiveBookingsForItem(anyLong(), any(), any()))
+                .thenReturn(List.of(longBooking, shortBooking));
+
+        assertThrows(ValidationException.class,
+                () -> bookingCalendar.checkFree(item.getId(), start.plusDays(5), start.plusDays(6)));
+        assertDoesNotThrow(() -> bookingCalendar.checkFree(item.getId(), start.plusDays(10), start.plusDays(11)));
+    }
+
+    @Test
+    void reserveTest_whenOverlapsReserved_thenThrowException() {
+        Booking booking = Booking.builder().id(2L).item(item).start(start.plusDays(3)).end(start.plusDays(5)).build();
+        Booking overlapping = Booking.builder().id(3L).item(item).start(start.plusDays(4)).end(start.plusDays(6)).build();
+
+        bookingCalendar.reserve(booking);
+
+        when(bookingRepository.findActiveBookingsForItem(anyLong(), any(), any())).thenReturn(List.of(approvedBooking, booking));
+        assertThrows(ValidationException.class, () -> bookingCalendar.reserve(overlapping));
+    }
+
+    @Test
+    void reserveTest_whenConflictIsStale_thenReloadAndReserve() {
+        Booking booking = Booking.builder().id(2L).item(item).start(start.plusDays(1)).end(start.plusDays(5)).build();
+        bookingCalendar.checkFree(item.getId(), start.plusDays(10), start.plusDays(11));
+        when(bookingRepository.findActiveBookingsForItem(anyLong(), any(), any())).thenReturn(new ArrayList<>());
+
+        assertDoesNotThrow(() -> bookingCalendar.reserve(booking));
+        verify(bookingRepository, times(2)).findActiveBookingsForItem(anyLong(), any(), any());
+    }
+
+    @Test
+    void reserveTest_whenReloading_thenCalendarNotLockedDuringQuery() {
+        Booking booking = Booking.builder().id(2L).item(item).start(start.plusDays(1)).end(start.plusDays(5)).build();
+        bookingCalendar.checkFree(item.getId(), start.plusDays(10), start.plusDays(11));
+        List<Boolean> calendarFreeDuringQuery = new ArrayList<>();
+        when(bookingRepository.findActiveBookingsForItem(anyLong(), any(), any())).thenAnswer(invocation -> {
+            CompletableFuture<Void> release = CompletableFuture.runAsync(() -> bookingCalendar.release(approvedBooking));
+            try {
+                release.get(1, TimeUnit.SECONDS);
+                calendarFreeDuringQuery.add(true);
+            } catch (TimeoutException e) {
+                calendarFreeDuringQuery.add(false);
+            }
+            return new ArrayList<>();
+        });
+
+        bookingCalendar.reserve(booking);
+
+        assertEquals(List.of(true), calendarFreeDuringQuery);
+    }
+
+    @Test
+    void releaseTest_whenReleased_thenFree() {
+        bookingCalendar.checkFree(item.getId(), start.plusDays(10), start.plusDays(11));
+
+        bookingCalendar.release(approvedBooking);
+
+        assertDoesNotThrow(() -> bookingCalendar.checkFree(item.getId(), start, start.plusDays(1)));
+    }
+
+    @Test
+    void reserveTest_whenPendingReservationAndReload_thenKeepPending() {
+        TransactionSynchronizationManager.initSynchronization();
+        Booking booking = Booking.builder().id(2L).item(item).start(start.plusDays(3)).end(start.plusDays(5)).build();
+        Booking overlapping = Booking.builder().id(3L).item(item).start(start.plusDays(4)).end(start.plusDays(6)).build();
+
+        bookingCalendar.reserve(booking);
+
+        assertThrows(ValidationException.class, () -> bookingCalendar.reserve(overlapping));
+        verify(bookingRepository, times(2)).findActiveBookingsForItem(anyLong(), any(), any());
+    }
+
+    @Test
+    void reserveTest_whenTransactionRolledBack_thenRelease() {
+        TransactionSynchronizationManager.initSynchronization();
+        Booking booking = Booking.builder().id(2L).item(item).start(start.plusDays(3)).end(start.plusDays(5)).build();
+        bookingCalendar.reserve(booking);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertDoesNotThrow(() -> bookingCalendar.checkFree(item.getId(), start.plusDays(4), start.plusDays(6)));
+    }
+
+    @Test
+    void releaseAfterCommitTest_whenTransactionActive_thenReleaseOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        bookingCalendar.checkFree(item.getId(), start.plusDays(10), start.plusDays(11));
+
+        bookingCalendar.releaseAfterCommit(approvedBooking);
+
+        assertThrows(ValidationException.class, () -> bookingCalendar.checkFree(item.getId(), start, start.plusDays(1)));
+        when(bookingRepository.findActiveBookingsForItem(anyLong(), any(), any())).thenReturn(new ArrayList<>());
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertDoesNotThrow(() -> bookingCalendar.checkFree(item.getId(), start, start.plusDays(1)));
+    }
+
+    @Test
+    void lockTest_whenItemsLocked_thenCalendarsReloadedFromDatabase() {
+        Item secondItem = Item.builder().id(2L).build();
+        Booking secondItemBooking = Booking.builder().id(5L).item(secondItem).status(BookingStatus.APPROVED)
+                .start(start).end(start.plusDays(2)).build();
+        when(itemRepository.lockItems(any())).thenReturn(List.of(item.getId(), secondItem.getId()));
+        when(bookingRepository.findActiveBookingsForItems(any(), any(), any())).thenReturn(List.of(secondItemBooking));
+
+        bookingCalendar.lock(Set.of(secondItem.getId(), item.getId()));
+
+        assertDoesNotThrow(() -> bookingCalendar.reserve(Booking.builder().id(6L).item(item)
+                .start(start).end(start.plusDays(1)).build()));
+        assertDoesNotThrow(() -> bookingCalendar.checkFree(secondItem.getId(), start.plusDays(2), start.plusDays(3)));
+        verify(itemRepository).lockItems(Set.of(item.getId(), secondItem.getId()));
+        verify(bookingRepository, never()).findActiveBookingsForItem(anyLong(), any(), any());
+        assertThrows(ValidationException.class, () -> bookingCalendar.checkFree(secondItem.getId(), start, start.plusDays(1)));
+    }
+}
@@ -6,18 +6,26 @@ import lombok.experimental.FieldDefaults;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.practicum.shareit.common.EntityResolver;
 import ru.practicum.shareit.TestHelper;
 import ru.practicum.shareit.booking.BookingState;
+import ru.practicum.shareit.booking.dto.BookingApprovalResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingVersionView;
+import ru.practicum.shareit.booking.dto.BookingView;
+import ru.practicum.shareit.booking.dto.RequestBodyBookingApprovalDto;
 import ru.practicum.shareit.booking.mapper.BookingDtoMapper;
 import ru.practicum.shareit.booking.dto.RequestBodyBookingDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.BookingStatusUpdate;
 import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.exception.IllegalArgumentException;
 import ru.practicum.shareit.exception.IsAlreadyDoneException;
@@ -25,20 +33,30 @@ import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 
+import javax.persistence.EntityManager;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -54,7 +72,12 @@ public class BookingServiceTest {
     ItemRepository itemRepository;
     @Mock
     BookingRepository bookingRepository;
-    @InjectMocks
+    @Mock
+    BookingCalendar bookingCalendar;
+    @Mock
+    ItemBookingSummaryService itemBookingSummaryService;
+    @Mock
+    EntityManager entityManager;
     BookingServiceImpl bookingServiceImpl;
     User booker;
     User owner;
@@ -62,6 +85,7 @@ public class BookingServiceTest {
     Booking booking;
     RequestBodyBookingDto requestBodyBookingDto;
     BookingDto bookingDto;
+    final PaginationProperties paginationProperties = new PaginationProperties();
     final TestHelper testHelper = new TestHelper();
     final long userId = 1L;
     final long bookingId = 1L;
@@ -70,6 +94,9 @@ public class BookingServiceTest {
 
     @BeforeEach
     void beforeEach() {
+        bookingServiceImpl = new BookingServiceImpl(bookingRepository, bookingCalendar, itemBookingSummaryService,
+                new EntityResolver(userRepository, itemRepository, itemRequestRepository, bookingRepository), entityManager,
+                paginationProperties);
         booker = testHelper.getBooker();
         owner = testHelper.getOwner();
         item = testHelper.getItem();
@@ -81,15 +108,19 @@ public class BookingServiceTest {
         bookingDto = BookingDtoMapper.mapRow(booking);
 
         when(itemRequestRepository.save(any())).thenAnswer(input -> input.getArguments()[0]);
+        when(bookingRepository.updateBookingStatus(anyLong(), any(), any())).thenReturn(1);
+        when(userRepository.lockUser(anyLong())).thenAnswer(input -> Optional.of(input.getArguments()[0]));
     }
 
     @Test
     void addBookingTest_whenCorrect_thenSave() {
 
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
 
-        bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId);
+        bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null);
 
         verify(bookingRepository).save(any());
     }
@@ -97,94 +128,113 @@ public class BookingServiceTest {
     @Test
     void addBookingTest_whenItemIsNotAvailable_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
         item.setAvailable(false);
 
         assertThrows(ValidationException.class,
-                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId));
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null));
     }
 
     @Test
     void addBookingTest_whenStartIsNull_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
         requestBodyBookingDto.setStart(null);
 
         assertThrows(ValidationException.class,
-                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId));
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null));
     }
 
     @Test
     void addBookingTest_whenEndIsNull_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
         requestBodyBookingDto.setEnd(null);
 
         assertThrows(ValidationException.class,
-                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId));
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null));
     }
 
     @Test
     void addBookingTest_whenStartMoreEnd_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
         requestBodyBookingDto.setStart(LocalDateTime.now().plus(100, ChronoUnit.DAYS));
 
         assertThrows(ValidationException.class,
-                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId));
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null));
     }
 
     @Test
     void addBookingTest_whenStartEqualsEnd_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
         requestBodyBookingDto.setStart(requestBodyBookingDto.getEnd());
 
         assertThrows(ValidationException.class,
-                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId));
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null));
     }
 
     @Test
     void addBookingTest_whenStartLessNow_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
         requestBodyBookingDto.setStart(LocalDateTime.now().minus(100, ChronoUnit.DAYS));
 
         assertThrows(ValidationException.class,
-                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId));
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null));
     }
 
     @Test
     void addBookingTest_whenBookerIsOwner_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
 
 
         assertThrows(NotFoundException.class,
-                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, 2L));
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, 2L, null));
     }
 
     @Test
     void addBookingTest_whenItemNotFound_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.empty());
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
 
         assertThrows(NotFoundException.class,
-                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId));
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null));
     }
 
     @Test
     void addBookingTest_whenBookerNotFound_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,
-                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId));
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null));
     }
 
     @Test
     void approvedBookingTest_whenIsAlreadyApproved_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
         booking.setItem(item);
 
@@ -195,33 +245,40 @@ public class BookingServiceTest {
     @Test
     void approvedBookingTest_whenWaiting_thenApprove() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         booking.setItem(item);
         booking.setStatus(BookingStatus.WAITING);
 
         bookingServiceImpl.approveOrRejectBooking(owner.getId(), bookingId, true);
 
-        verify(bookingRepository).save(any());
+        verify(bookingRepository).updateBookingStatus(bookingId, BookingStatus.WAITING, BookingStatus.APPROVED);
+        verify(bookingRepository, never()).save(any());
+        verify(itemBookingSummaryService).refresh(List.of(item.getId()));
     }
 
     @Test
     void rejectedBookingTest_whenWaiting_thenReject() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
         booking.setStatus(BookingStatus.WAITING);
 
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         booking.setItem(item);
         booking.setStatus(BookingStatus.WAITING);
 
         bookingServiceImpl.approveOrRejectBooking(owner.getId(), bookingId, false);
-        verify(bookingRepository).save(any());
+        verify(bookingRepository).updateBookingStatus(bookingId, BookingStatus.WAITING, BookingStatus.REJECTED);
     }
 
     @Test
     void approvedBookingTest_whenIsAlreadyRejected_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
         booking.setStatus(BookingStatus.REJECTED);
         booking.setItem(item);
@@ -233,6 +290,7 @@ public class BookingServiceTest {
     @Test
     void approvedBookingTest_whenBooingIsNotFound_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
         assertThrows(NotFoundException.class,
                 () -> bookingServiceImpl.approveOrRejectBooking(userId, bookingId, false));
@@ -241,6 +299,7 @@ public class BookingServiceTest {
     @Test
     void approvedBookingTest_whenNotOwner_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
         booking.setStatus(BookingStatus.REJECTED);
         booking.setItem(item);
@@ -252,175 +311,572 @@ public class BookingServiceTest {
     @Test
     void getBookingByIdTest_whenBookingPresent_thenBooking() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
         when(bookingRepository.findById(1L)).thenReturn(Optional.of(booking));
+        stubBookingVersion(booker.getId(), owner.getId());
 
-        BookingDto result = bookingServiceImpl.getBookingById(booker.getId(), bookingId);
+        BookingDto result = bookingServiceImpl.getBookingById(booker.getId(), bookingId, eTag -> false);
 
-        verify(bookingRepository, times(2)).findById(anyLong());
+        verify(bookingRepository).findById(anyLong());
         assertEquals(bookingDto, result);
     }
 
     @Test
     void getBookingByIdTest_whenBookingNotFound_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.empty());
 
         verify(bookingRepository, never()).findById(anyLong());
-        assertThrows(NotFoundException.class, () -> bookingServiceImpl.getBookingById(userId, bookingId));
+        assertThrows(NotFoundException.class, () -> bookingServiceImpl.getBookingById(userId, bookingId, eTag -> false));
     }
 
     @Test
     void getBookingByIdTest_whenUserNotBookerOrNotOwner_thenThrowException() {
+        stubBookingVersion(booker.getId(), owner.getId());
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         booking.setItem(item);
 
         verify(bookingRepository, never()).findById(anyLong());
-        assertThrows(NotFoundException.class, () -> bookingServiceImpl.getBookingById(10L, bookingId));
+        assertThrows(NotFoundException.class, () -> bookingServiceImpl.getBookingById(10L, bookingId, eTag -> false));
+    }
+
+    @Test
+    void getBookingByIdTest_whenNotModified_thenBookingNotLoaded() {
+        stubBookingVersion(booker.getId(), owner.getId());
+        List<String> eTags = new ArrayList<>();
+
+        BookingDto result = bookingServiceImpl.getBookingById(owner.getId(), bookingId, eTag -> eTags.add(eTag));
+
+        assertNull(result);
+        assertEquals(List.of(bookingId + "-3-7"), eTags);
+        verify(bookingRepository, never()).findById(anyLong());
     }
 
     @Test
     void getBookingCurrentUserTest_whenStateIllegal_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
         assertThrows(IllegalArgumentException.class,
-                () -> bookingServiceImpl.getBookingCurrentUser(userId, "State", from, size));
+                () -> bookingServiceImpl.getBookingCurrentUser(userId, "State", from, size, false));
     }
 
     @Test
     void getBookingCurrentUserTest_whenSizeIllegal_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
         assertThrows(ValidationException.class,
-                () -> bookingServiceImpl.getBookingCurrentUser(userId, "ALL", from, -1));
+                () -> bookingServiceImpl.getBookingCurrentUser(userId, "ALL", from, -1, false));
     }
 
     @Test
     void getBookingCurrentUserTest_whenStateAll_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.ALL.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.ALL.toString(), from, size, false);
 
-        verify(bookingRepository).findAllBookingsForUser(any(), any());
+        verify(bookingRepository).findAllBookingsForUser(any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingCurrentUserTest_whenStateCurrent_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.CURRENT.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.CURRENT.toString(), from, size, false);
 
-        verify(bookingRepository).findCurrentBookingsForUser(any(), any(), any(), any());
+        verify(bookingRepository).findCurrentBookingsForUser(any(), any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingCurrentUserTest_whenStatePast_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.PAST.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.PAST.toString(), from, size, false);
 
-        verify(bookingRepository).findPastBookingsForUser(any(), any(), any());
+        verify(bookingRepository).findPastBookingsForUser(any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingCurrentUserTest_whenStateFuture_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.FUTURE.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.FUTURE.toString(), from, size, false);
 
-        verify(bookingRepository).findFutureBookingsForUser(any(), any(), any());
+        verify(bookingRepository).findFutureBookingsForUser(any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingCurrentUserTest_whenStateWaiting_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.WAITING.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.WAITING.toString(), from, size, false);
 
-        verify(bookingRepository).findWaitingOrRejectedBookingsForUser(any(), any(), any());
+        verify(bookingRepository).findWaitingOrRejectedBookingsForUser(any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingCurrentUserTest_whenStateRejected_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.REJECTED.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.REJECTED.toString(), from, size, false);
 
-        verify(bookingRepository).findWaitingOrRejectedBookingsForUser(any(), any(), any());
+        verify(bookingRepository).findWaitingOrRejectedBookingsForUser(any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingItemsCurrentUserTest_whenStateIllegal_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
         assertThrows(IllegalArgumentException.class,
-                () -> bookingServiceImpl.getBookingForItemsCurrentUser(2L, "State", from, size));
+                () -> bookingServiceImpl.getBookingForItemsCurrentUser(2L, "State", from, size, false));
     }
 
     @Test
     void getBookingItemsCurrentUserTest_whenStateAll_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.ALL.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.ALL.toString(), from, size, false);
 
-        verify(bookingRepository).findAllBookingsForItems(any(), any());
+        verify(bookingRepository).findAllBookingsForOwner(any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingItemsCurrentUserTest_whenStateCurrent_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.CURRENT.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.CURRENT.toString(), from, size, false);
 
-        verify(bookingRepository).findCurrentBookingsForItems(any(), any(), any(), any());
+        verify(bookingRepository).findCurrentBookingsForOwner(any(), any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingItemsCurrentUserTest_whenStatePast_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.PAST.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.PAST.toString(), from, size, false);
 
-        verify(bookingRepository).findPastBookingsForItems(any(), any(), any());
+        verify(bookingRepository).findPastBookingsForOwner(any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingItemsCurrentUserTest_whenStateFuture_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.FUTURE.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.FUTURE.toString(), from, size, false);
 
-        verify(bookingRepository).findFutureBookingsForItems(any(), any(), any());
+        verify(bookingRepository).findFutureBookingsForOwner(any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingItemsCurrentUserTest_whenStateWaiting_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.WAITING.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.WAITING.toString(), from, size, false);
 
-        verify(bookingRepository).findWaitingOrRejectedBookingsForItems(any(), any(), any());
+        verify(bookingRepository).findWaitingOrRejectedBookingsForOwner(any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
 
     @Test
     void getBookingItemsCurrentUserTest_whenStateRejected_thenBookings() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.REJECTED.toString(), from, size);
+        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.REJECTED.toString(), from, size, false);
 
-        verify(bookingRepository).findWaitingOrRejectedBookingsForItems(any(), any(), any());
+        verify(bookingRepository).findWaitingOrRejectedBookingsForOwner(any(), any(), any(), anyLong(), any());
         assertEquals(new ArrayList<>(), result);
     }
-}
 
+    @Test
+    void getBookingCurrentUserTest_whenFromNotMultipleOfSize_thenUseExactOffset() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+
+        bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.ALL.toString(), 3, 2, false);
+
+        verify(bookingRepository).findAllBookingsForUser(any(), eq(PageCursor.FIRST.getPosition()),
+                eq(PageCursor.FIRST.getId()), eq(OffsetPageRequest.of(3, 2)));
+    }
+
+    @Test
+    void getBookingCurrentUserByCursorTest_whenCursorPresent_thenSeekAfterCursor() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        PageCursor cursor = PageCursor.of(booking.getStart(), booking.getId());
+
+        bookingServiceImpl.getBookingCurrentUserByCursor(owner.getId(), BookingState.ALL.toString(), cursor.encode(), size, false);
+
+        verify(bookingRepository).findAllBookingsForUser(any(), eq(booking.getStart()), eq(booking.getId()),
+                eq(OffsetPageRequest.of(0, size)));
+    }
+
+    @Test
+    void getBookingCurrentUserTest_whenSizeAboveMax_thenCapPageSize() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        paginationProperties.setMaxPageSize(2);
+        PageCursor cursor = PageCursor.of(booking.getStart(), booking.getId());
+
+        bookingServiceImpl.getBookingCurrentUser(owner.getId(), BookingState.ALL.toString(), 0, 1000, false);
+        bookingServiceImpl.getBookingCurrentUserByCursor(owner.getId(), BookingState.ALL.toString(), cursor.encode(), 1000, false);
+
+        verify(bookingRepository).findAllBookingsForUser(any(), eq(PageCursor.FIRST.getPosition()),
+                eq(PageCursor.FIRST.getId()), eq(OffsetPageRequest.of(0, 2)));
+        verify(bookingRepository).findAllBookingsForUser(any(), eq(booking.getStart()), eq(booking.getId()),
+                eq(OffsetPageRequest.of(0, 2)));
+    }
+
+    @Test
+    void getBookingForItemsCurrentUserTest_whenSizeAboveMax_thenCapPageSize() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        paginationProperties.setMaxPageSize(2);
+        PageCursor cursor = PageCursor.of(booking.getStart(), booking.getId());
+
+        bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.ALL.toString(), 4, 1000, false);
+        bookingServiceImpl.getBookingForItemsCurrentUserByCursor(owner.getId(), BookingState.ALL.toString(), cursor.encode(), 1000, false);
+
+        verify(bookingRepository).findAllBookingsForOwner(any(), eq(PageCursor.FIRST.getPosition()),
+                eq(PageCursor.FIRST.getId()), eq(OffsetPageRequest.of(4, 2)));
+        verify(bookingRepository).findAllBookingsForOwner(any(), eq(booking.getStart()), eq(booking.getId()),
+                eq(OffsetPageRequest.of(0, 2)));
+    }
+
+    @Test
+    void getBookingItemsCurrentUserByCursorTest_whenCursorIllegal_thenThrowException() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+
+        assertThrows(ValidationException.class,
+                () -> bookingServiceImpl.getBookingForItemsCurrentUserByCursor(owner.getId(), "ALL", "not-a-cursor", size, false));
+    }
+
+    @Test
+    void addBookingTest_whenItemAlreadyBooked_thenThrowException() {
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
+        doThrow(ValidationException.class).when(bookingCalendar).checkFree(anyLong(), any(), any());
+
+        assertThrows(ValidationException.class,
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null));
+        verify(bookingRepository, never()).save(any());
+    }
+
+    @Test
+    void approvedBookingTest_whenOverlapsApproved_thenThrowException() {
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+        when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
+        doThrow(ValidationException.class).when(bookingCalendar).reserve(booking);
+
+        assertThrows(ValidationException.class,
+                () -> bookingServiceImpl.approveOrRejectBooking(owner.getId(), bookingId, true));
+        verify(bookingRepository, never()).updateBookingStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    void approvedBookingTest_whenExclusionConstraintViolated_thenThrowValidation() {
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+        when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
+        when(bookingRepository.updateBookingStatus(anyLong(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("bookings_approved_no_overlap"));
+
+        assertThrows(ValidationException.class,
+                () -> bookingServiceImpl.approveOrRejectBooking(owner.getId(), bookingId, true));
+        verify(bookingCalendar).release(booking);
+    }
+
+    @Test
+    void approveBookingsTest_whenExclusionConstraintViolated_thenThrowValidation() {
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+        when(bookingRepository.findBookingsForOwnerByIds(any(), anyLong())).thenReturn(List.of(booking));
+        when(bookingRepository.updateBookingStatuses(any()))
+                .thenThrow(new DataIntegrityViolationException("bookings_approved_no_overlap"));
+
+        assertThrows(ValidationException.class, () -> bookingServiceImpl.approveOrRejectBookings(owner.getId(),
+                List.of(new RequestBodyBookingApprovalDto(booking.getId(), true))));
+    }
+
+    @Test
+    void rejectBookingTest_whenApproved_thenReleaseCalendar() {
+        booking.setItem(item);
+        when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
+
+        bookingServiceImpl.approveOrRejectBooking(owner.getId(), bookingId, false);
+
+        verify(bookingCalendar).releaseAfterCommit(booking);
+        verify(bookingCalendar, never()).lock(any());
+        assertEquals(BookingStatus.REJECTED, booking.getStatus());
+    }
+
+    @Test
+    void approvedBookingTest_whenChangedConcurrently_thenThrowException() {
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+        when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
+        when(bookingRepository.updateBookingStatus(anyLong(), any(), any())).thenReturn(0);
+
+        assertThrows(IsAlreadyDoneException.class,
+                () -> bookingServiceImpl.approveOrRejectBooking(owner.getId(), bookingId, true));
+        verify(bookingCalendar).release(booking);
+        verify(bookingRepository, times(1)).findById(anyLong());
+    }
+
+    @Test
+    void addBookingTest_whenIdempotencyKeyRepeated_thenReturnExisting() {
+        booking.setItem(item);
+        when(bookingRepository.findBookingByIdempotencyKey(userId, "key-1")).thenReturn(Optional.of(booking));
+
+        BookingDto result = bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, "key-1");
+
+        assertEquals(booking.getId(), result.getId());
+        verify(bookingRepository, never()).save(any());
+    }
+
+    @Test
+    void addBookingTest_whenIdempotencyKeyNew_thenSaveWithKey() {
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
+        when(bookingRepository.findBookingByIdempotencyKey(anyLong(), any())).thenReturn(Optional.empty());
+
+        bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, "key-2");
+
+        ArgumentCaptor<Booking> captor = ArgumentCaptor.forClass(Booking.class);
+        verify(bookingRepository).save(captor.capture());
+        assertEquals("key-2", captor.getValue().getIdempotencyKey());
+    }
+
+    @Test
+    void addBookingTest_whenIdempotencyKeyPresent_thenLockBookerBeforeLookup() {
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
+        when(bookingRepository.findBookingByIdempotencyKey(anyLong(), any())).thenReturn(Optional.empty());
+
+        bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, "key-3");
+
+        InOrder inOrder = inOrder(userRepository, bookingRepository);
+        inOrder.verify(userRepository).lockUser(userId);
+        inOrder.verify(bookingRepository).findBookingByIdempotencyKey(userId, "key-3");
+        inOrder.verify(bookingRepository).save(any());
+    }
+
+    @Test
+    void addBookingTest_whenNoIdempotencyKey_thenNoLock() {
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
+
+        bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, null);
+
+        verify(userRepository, never()).lockUser(anyLong());
+    }
+
+    @Test
+    void addBookingTest_whenIdempotencyKeyTooLong_thenThrowException() {
+        assertThrows(ValidationException.class,
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, userId, "k".repeat(65)));
+    }
+
+    @Test
+    void addBookingTest_whenIdempotencyKeyWithoutUser_thenThrowValidationBeforeLock() {
+        assertThrows(ValidationException.class,
+                () -> bookingServiceImpl.addNewBooking(requestBodyBookingDto, null, "key-4"));
+        verify(userRepository, never()).lockUser(anyLong());
+        verify(bookingRepository, never()).findBookingByIdempotencyKey(anyLong(), any());
+    }
+
+    @Test
+    void approveBookingsTest_whenOwner_thenBatchUpdate() {
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+        when(bookingRepository.findBookingsForOwnerByIds(any(), anyLong())).thenReturn(List.of(booking));
+        when(bookingRepository.updateBookingStatuses(any())).thenReturn(new int[]{1});
+
+        List<BookingApprovalResultDto> results = bookingServiceImpl.approveOrRejectBookings(owner.getId(),
+                List.of(new RequestBodyBookingApprovalDto(booking.getId(), true),
+                        new RequestBodyBookingApprovalDto(100L, true)));
+
+        assertEquals(BookingStatus.APPROVED, results.get(0).getStatus());
+        assertNull(results.get(0).getError());
+        assertNotNull(results.get(1).getError());
+        verify(bookingCalendar).lock(Set.of(item.getId()));
+        verify(bookingCalendar).reserve(booking);
+        verify(bookingRepository, times(1)).findBookingsForOwnerByIds(any(), anyLong());
+        verify(bookingRepository, times(1)).updateBookingStatuses(any());
+        verify(bookingRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void approveBookingsTest_whenTwoOverlappingInOneBatch_thenApproveOnlyFirst() {
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+        Booking overlapping = Booking.builder().id(2L).item(item).booker(booker).status(BookingStatus.WAITING)
+                .start(booking.getStart().plusDays(1)).end(booking.getEnd().plusDays(1)).build();
+        when(bookingRepository.findBookingsForOwnerByIds(any(), anyLong())).thenReturn(List.of(booking, overlapping));
+        when(bookingRepository.updateBookingStatuses(any())).thenReturn(new int[]{1});
+
+        List<BookingApprovalResultDto> results = bookingServiceImpl.approveOrRejectBookings(owner.getId(),
+                List.of(new RequestBodyBookingApprovalDto(booking.getId(), true),
+                        new RequestBodyBookingApprovalDto(overlapping.getId(), true)));
+
+        assertEquals(BookingStatus.APPROVED, results.get(0).getStatus());
+        assertEquals(BookingStatus.WAITING, results.get(1).getStatus());
+        assertNotNull(results.get(1).getError());
+        verify(bookingCalendar, never()).reserve(overlapping);
+        ArgumentCaptor<List<BookingStatusUpdate>> updates = ArgumentCaptor.forClass(List.class);
+        verify(bookingRepository).updateBookingStatuses(updates.capture());
+        assertEquals(List.of(booking.getId()), updates.getValue().stream().map(BookingStatusUpdate::getBookingId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void approveBookingsTest_whenChangedConcurrently_thenErrorAndReleaseCalendar() {
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+        when(bookingRepository.findBookingsForOwnerByIds(any(), anyLong())).thenReturn(List.of(booking));
+        when(bookingRepository.updateBookingStatuses(any())).thenReturn(new int[]{0});
+
+        List<BookingApprovalResultDto> results = bookingServiceImpl.approveOrRejectBookings(owner.getId(),
+                List.of(new RequestBodyBookingApprovalDto(booking.getId(), true)));
+
+        assertEquals(BookingStatus.WAITING, results.get(0).getStatus());
+        assertNotNull(results.get(0).getError());
+        verify(bookingCalendar).release(booking);
+    }
+
+    @Test
+    void approveBookingsTest_whenOverlapsApproved_thenErrorWithoutUpdate() {
+        booking.setItem(item);
+        booking.setStatus(BookingStatus.WAITING);
+        when(bookingRepository.findBookingsForOwnerByIds(any(), anyLong())).thenReturn(List.of(booking));
+        doThrow(ValidationException.class).when(bookingCalendar).reserve(booking);
+
+        List<BookingApprovalResultDto> results = bookingServiceImpl.approveOrRejectBookings(owner.getId(),
+                List.of(new RequestBodyBookingApprovalDto(booking.getId(), true)));
+
+        assertEquals(1, results.size());
+        verify(bookingRepository, never()).updateBookingStatuses(any());
+    }
+
+    @Test
+    void approveBookingsTest_whenEmpty_thenThrowException() {
+        assertThrows(ValidationException.class,
+                () -> bookingServiceImpl.approveOrRejectBookings(owner.getId(), List.of()));
+    }
+
+    @Test
+    void exportBookingsCurrentUserTest_whenBookingsPresent_thenPassEachToConsumer() {
+        booking.setItem(item);
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
+        when(bookingRepository.streamBookingsForUser(anyLong())).thenReturn(Stream.of(booking, booking));
+        List<BookingDto> exported = new ArrayList<>();
+
+        bookingServiceImpl.exportBookingsCurrentUser(userId, exported::add);
+
+        assertEquals(2, exported.size());
+        assertEquals(booking.getId(), exported.get(0).getId());
+    }
+
+    @Test
+    void exportBookingsForItemsCurrentUserTest_whenUserNotFound_thenThrowException() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class,
+                () -> bookingServiceImpl.exportBookingsForItemsCurrentUser(userId, bookingDto -> {
+                }));
+        verify(bookingRepository, never()).streamBookingsForOwner(anyLong());
+    }
+
+    @Test
+    void getBookingCurrentUserTest_whenNotExpanded_thenCompactBookingsFromProjection() {
+        BookingView bookingView = mock(BookingView.class);
+        when(bookingView.getId()).thenReturn(5L);
+        when(bookingView.getItemId()).thenReturn(7L);
+        when(bookingView.getItemName()).thenReturn("Дрель");
+        when(bookingView.getBookerId()).thenReturn(9L);
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(booker));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(booker)));
+        when(bookingRepository.findAllBookingsForUser(any(), any(), anyLong(), any())).thenReturn(List.of(bookingView));
+
+        List<BookingDto> result = bookingServiceImpl.getBookingCurrentUser(userId, BookingState.ALL.toString(), 0, size, false);
+
+        assertEquals(5L, result.get(0).getId());
+        assertEquals("Дрель", result.get(0).getItem().getName());
+        assertNull(result.get(0).getItem().getOwner());
+        assertEquals(9L, result.get(0).getBooker().getId());
+        verify(bookingRepository, never()).findBookingsWithDetailsByIds(any());
+    }
+
+    @Test
+    void getBookingForItemsCurrentUserTest_whenExpanded_thenFullBookingsInProjectionOrder() {
+        booking.setItem(item);
+        Booking otherBooking = testHelper.getBooking();
+        otherBooking.setId(booking.getId() + 1);
+        otherBooking.setItem(item);
+        otherBooking.setBooker(booker);
+        BookingView firstView = mock(BookingView.class);
+        when(firstView.getId()).thenReturn(otherBooking.getId());
+        BookingView secondView = mock(BookingView.class);
+        when(secondView.getId()).thenReturn(booking.getId());
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        when(bookingRepository.findAllBookingsForOwner(any(), any(), anyLong(), any())).thenReturn(List.of(firstView, secondView));
+        when(bookingRepository.findBookingsWithDetailsByIds(any())).thenReturn(List.of(booking, otherBooking));
+
+        List<BookingDto> result = bookingServiceImpl.getBookingForItemsCurrentUser(owner.getId(), BookingState.ALL.toString(), 0, size, true);
+
+        assertEquals(otherBooking.getId(), result.get(0).getId());
+        assertEquals(booking.getId(), result.get(1).getId());
+        assertEquals(owner.getId(), result.get(0).getItem().getOwner().getId());
+        assertEquals(booker.getEmail(), result.get(0).getBooker().getEmail());
+    }
+
+    private void stubBookingVersion(long bookerId, long ownerId) {
+        BookingVersionView bookingVersion = mock(BookingVersionView.class);
+        when(bookingVersion.getVersion()).thenReturn(3L);
+        when(bookingVersion.getItemVersion()).thenReturn(7L);
+        when(bookingVersion.getBookerId()).thenReturn(bookerId);
+        when(bookingVersion.getOwnerId()).thenReturn(ownerId);
+        when(bookingRepository.findBookingVersionById(bookingId)).thenReturn(Optional.of(bookingVersion));
+    }
+}
@@ -0,0 +1,157 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.ItemBookingSummaryRepository;
+import ru.practicum.shareit.booking.dto.ItemActiveBookingsView;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.ItemBookingSummary;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ItemBookingSummaryServiceTest {
+    @Mock
+    ItemBookingSummaryRepository itemBookingSummaryRepository;
+    @Mock
+    BookingRepository bookingRepository;
+    ItemBookingSummaryService itemBookingSummaryService;
+    final Item item = Item.builder().id(1L).build();
+    final User booker = User.builder().id(5L).build();
+    final LocalDateTime currentDate = LocalDateTime.now();
+    Booking lastBooking;
+    Booking nextBooking;
+
+    @BeforeEach
+    void beforeEach() {
+        itemBookingSummaryService = new ItemBookingSummaryService(itemBookingSummaryRepository, bookingRepository);
+        lastBooking = Booking.builder().id(10L).item(item).booker(booker).status(BookingStatus.APPROVED)
+                .start(currentDate.minusDays(1)).end(currentDate.plusDays(3)).build();
+        nextBooking = Booking.builder().id(11L).item(item).booker(booker).status(BookingStatus.APPROVED)
+                .start(currentDate.plusDays(5)).end(currentDate.plusDays(6)).build();
+        when(bookingRepository.findLastBookingsForItems(any(), any(), any())).thenReturn(List.of(lastBooking));
+        when(bookingRepository.findNextBookingsForItems(any(), any(), any())).thenReturn(List.of(nextBooking));
+        when(bookingRepository.countActiveBookingsForItems(any(), any(), any()))
+                .thenReturn(List.of(activeBookings(item.getId(), 2, lastBooking.getEnd())));
+    }
+
+    @Test
+    void refreshTest_whenApprovedBookings_thenSaveLastNextAndActiveCount() {
+        itemBookingSummaryService.refresh(List.of(item.getId()));
+
+        ItemBookingSummary summary = captureSaved().get(0);
+        assertEquals(lastBooking.getId(), summary.getLastBookingId());
+        assertEquals(booker.getId(), summary.getLastBookerId());
+        assertEquals(nextBooking.getId(), summary.getNextBookingId());
+        assertEquals(2, summary.getActiveBookingCount());
+        assertEquals(lastBooking.getEnd(), summary.getRefreshAt());
+    }
+
+    @Test
+    void refreshTest_whenNoBookings_thenEmptySummary() {
+        when(bookingRepository.findLastBookingsForItems(any(), any(), any())).thenReturn(new ArrayList<>());
+        when(bookingRepository.findNextBookingsForItems(any(), any(), any())).thenReturn(new ArrayList<>());
+        when(bookingRepository.countActiveBookingsForItems(any(), any(), any())).thenReturn(new ArrayList<>());
+
+        itemBookingSummaryService.refresh(List.of(item.getId()));
+
+        assertEquals(ItemBookingSummary.builder().itemId(item.getId()).build(), captureSaved().get(0));
+    }
+
+    @Test
+    void getSummariesTest_whenFresh_thenNoBookingQueries() {
+        ItemBookingSummary fresh = ItemBookingSummary.builder().itemId(item.getId()).lastBookingId(3L)
+                .refreshAt(currentDate.plusHours(1)).build();
+        when(itemBookingSummaryRepository.findAllById(any())).thenReturn(List.of(fresh));
+
+        Map<Long, ItemBookingSummary> result = itemBookingSummaryService.getSummaries(List.of(item.getId()), currentDate);
+
+        assertEquals(fresh, result.get(item.getId()));
+        verify(bookingRepository, never()).findLastBookingsForItems(any(), any(), any());
+    }
+
+    @Test
+    void getSummariesTest_whenStaleOrMissing_thenCalculateWithoutSaving() {
+        long missingItemId = 2L;
+        when(itemBookingSummaryRepository.findAllById(any())).thenReturn(List.of(ItemBookingSummary.builder()
+                .itemId(item.getId()).lastBookingId(3L).refreshAt(currentDate.minusMinutes(1)).build()));
+
+        Map<Long, ItemBookingSummary> result = itemBookingSummaryService
+                .getSummaries(List.of(item.getId(), missingItemId), currentDate);
+
+        verify(bookingRepository).findLastBookingsForItems(eq(List.of(item.getId(), missingItemId)), eq(currentDate), any());
+        verify(itemBookingSummaryRepository, never()).saveAll(any());
+        assertEquals(lastBooking.getId(), result.get(item.getId()).getLastBookingId());
+        assertNull(result.get(missingItemId).getLastBookingId());
+    }
+
+    @Test
+    void rollForwardTest_whenStaleSummaries_thenRecalculated() {
+        when(itemBookingSummaryRepository.claimStaleSummaries(any(), any())).thenReturn(List.of(ItemBookingSummary
+                .builder().itemId(item.getId()).refreshAt(currentDate.minusMinutes(1)).build()));
+
+        itemBookingSummaryService.rollForward();
+
+        verify(itemBookingSummaryRepository, times(1)).claimStaleSummaries(any(), any());
+        assertEquals(nextBooking.getId(), captureSaved().get(0).getNextBookingId());
+    }
+
+    @Test
+    void rollForwardTest_whenNothingStale_thenNothingSaved() {
+        when(itemBookingSummaryRepository.claimStaleSummaries(any(), any())).thenReturn(new ArrayList<>());
+
+        itemBookingSummaryService.rollForward();
+
+        verify(itemBookingSummaryRepository, never()).saveAll(any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ItemBookingSummary> captureSaved() {
+        ArgumentCaptor<Collection<ItemBookingSummary>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(itemBookingSummaryRepository).saveAll(captor.capture());
+        return new ArrayList<>(captor.getValue());
+    }
+
+    private ItemActiveBookingsView activeBookings(long itemId, long activeCount, LocalDateTime firstEnd) {
+        return new ItemActiveBookingsView() {
+            @Override
+            public long getItemId() {
+                return itemId;
+            }
+
+            @Override
+            public long getActiveCount() {
+                return activeCount;
+            }
+
+            @Override
+            public LocalDateTime getFirstEnd() {
+                return firstEnd;
+            }
+        };
+    }
+}
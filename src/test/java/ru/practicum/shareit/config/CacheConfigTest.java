@@ -0,0 +1,122 @@
+package ru.practicum.shareit.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+import ru.practicum.shareit.user.UserService;
+import ru.practicum.shareit.user.UserSnapshot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CacheConfigTest {
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    UserService userService;
+    @Autowired
+    CacheManager cacheManager;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    MeterRegistry meterRegistry;
+    User user;
+
+    @BeforeEach
+    void beforeEach() {
+        user = userRepository.save(User.builder().name("cachedUser").email("cachedUser@mail.ru").build());
+    }
+
+    @AfterEach
+    void afterEach() {
+        userRepository.deleteAll();
+        cacheManager.getCache("users").clear();
+    }
+
+    @Test
+    void findSnapshotByIdTest_whenCalledTwice_thenSecondCallServedFromCache() {
+        Cache users = cacheManager.getCache("users");
+
+        userRepository.findSnapshotById(user.getId());
+
+        assertInstanceOf(UserSnapshot.class, users.get(user.getId()).get());
+        assertEquals(user.getEmail(), userRepository.findSnapshotById(user.getId()).get().getEmail());
+    }
+
+    @Test
+    void findSnapshotByIdTest_whenServedFromCache_thenHitRecorded() {
+        userRepository.findSnapshotById(user.getId());
+        double hits = usersCacheGets("hit");
+        double misses = usersCacheGets("miss");
+
+        userRepository.findSnapshotById(user.getId());
+
+        assertEquals(hits + 1, usersCacheGets("hit"));
+        assertEquals(misses, usersCacheGets("miss"));
+    }
+
+    @Test
+    void saveTest_whenUserUpdated_thenEvicted() {
+        Cache users = cacheManager.getCache("users");
+        userRepository.findSnapshotById(user.getId());
+
+        user.setName("renamedUser");
+        userRepository.save(user);
+
+        assertNull(users.get(user.getId()));
+        assertEquals("renamedUser", userRepository.findSnapshotById(user.getId()).get().getName());
+    }
+
+    @Test
+    void saveTest_whenInsideTransaction_thenEvictedAfterCommit() {
+        Cache users = cacheManager.getCache("users");
+        userRepository.findSnapshotById(user.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            User storedUser = userRepository.findById(user.getId()).get();
+            storedUser.setName("renamedUser");
+            userRepository.save(storedUser);
+            assertNotNull(users.get(user.getId()));
+        });
+
+        assertNull(users.get(user.getId()));
+        assertEquals("renamedUser", userRepository.findSnapshotById(user.getId()).get().getName());
+    }
+
+    @Test
+    void updateUserTest_whenUpdatedThroughService_thenEvicted() {
+        Cache users = cacheManager.getCache("users");
+        userRepository.findSnapshotById(user.getId());
+
+        userService.updateUser(User.builder().name("renamedUser").build(), user.getId());
+
+        assertNull(users.get(user.getId()));
+        assertEquals("renamedUser", userRepository.findSnapshotById(user.getId()).get().getName());
+    }
+
+    @Test
+    void deleteByIdTest_whenUserDeleted_thenEvicted() {
+        Cache users = cacheManager.getCache("users");
+        userRepository.findSnapshotById(user.getId());
+
+        userRepository.deleteById(user.getId());
+
+        assertNull(users.get(user.getId()));
+        assertTrue(userRepository.findSnapshotById(user.getId()).isEmpty());
+    }
+
+    private double usersCacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "users").tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,228 @@
+package ru.practicum.shareit.config.routing;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ReplicaRoutingDataSourceTest {
+    JdbcTemplate primaryJdbc;
+    JdbcTemplate replicaJdbc;
+    MovableClock clock;
+    ReadYourWritesTracker readYourWritesTracker;
+    DataSource dataSource;
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void beforeEach() {
+        DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1", "test", "test");
+        DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1", "test", "test");
+        primaryJdbc = new JdbcTemplate(primary);
+        replicaJdbc = new JdbcTemplate(replica);
+        primaryJdbc.execute("create table node (name varchar(16))");
+        primaryJdbc.update("insert into node values ('primary')");
+        replicaJdbc.execute("create table node (name varchar(16))");
+        replicaJdbc.update("insert into node values ('replica')");
+        replicaJdbc.execute("create table replica_lag (seconds double)");
+        replicaJdbc.update("insert into replica_lag values (0)");
+
+        clock = new MovableClock();
+        readYourWritesTracker = new ReadYourWritesTracker(Duration.ofMinutes(1), 1000, clock);
+        ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(List.of(replica), "select seconds from replica_lag",
+                Duration.ofSeconds(5), Duration.ZERO, Clock.systemUTC());
+        dataSource = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, List.of(replica), lagMonitor, readYourWritesTracker));
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void afterEach() {
+        readYourWritesTracker.end();
+        primaryJdbc.execute("drop all objects");
+        replicaJdbc.execute("drop all objects");
+    }
+
+    @Test
+    void readOnlyTransactionTest_whenReplicaInSync_thenReplica() {
+        assertEquals("replica", readNode(true));
+    }
+
+    @Test
+    void writeTransactionTest_thenPrimary() {
+        assertEquals("primary", readNode(false));
+    }
+
+    @Test
+    void noTransactionTest_thenPrimary() {
+        assertEquals("primary", new JdbcTemplate(dataSource).queryForObject("select name from node", String.class));
+    }
+
+    @Test
+    void readOnlyTransactionTest_whenReplicaLagsBehind_thenPrimary() {
+        replicaJdbc.update("update replica_lag set seconds = 60");
+
+        assertEquals("primary", readNode(true));
+    }
+
+    @Test
+    void readOnlyTransactionTest_whenLagProbeFails_thenPrimary() {
+        replicaJdbc.execute("drop table replica_lag");
+
+        assertEquals("primary", readNode(true));
+    }
+
+    @Test
+    void readOnlyTransactionTest_whenUserJustWrote_thenPrimaryForThatUserOnly() {
+        readYourWritesTracker.begin(userRequest("1"));
+        readNode(false);
+        readYourWritesTracker.end();
+
+        readYourWritesTracker.begin(userRequest("1"));
+        assertEquals("primary", readNode(true));
+
+        readYourWritesTracker.begin(userRequest("2"));
+        assertEquals("replica", readNode(true));
+
+        readYourWritesTracker.begin(new MockHttpServletRequest());
+        assertEquals("replica", readNode(true));
+    }
+
+    @Test
+    void readOnlyTransactionTest_whenStickinessElapsed_thenReplica() {
+        readYourWritesTracker.begin(userRequest("1"));
+        readNode(false);
+
+        clock.advance(Duration.ofMinutes(1));
+
+        assertEquals("replica", readNode(true));
+    }
+
+    @Test
+    void readOnlyTransactionTest_whenUserIdMalformed_thenReplica() {
+        readYourWritesTracker.begin(userRequest("not-a-user"));
+        readNode(false);
+
+        assertEquals("replica", readNode(true));
+    }
+
+    @Test
+    void readOnlyTransactionTest_whenHandledOnRequestPool_thenStickinessFollowsUser() throws Exception {
+        ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(readYourWritesTracker);
+        ServletWebRequest request = new ServletWebRequest(userRequest("1"));
+        ExecutorService requestPool = Executors.newSingleThreadExecutor();
+        try {
+            Callable<String> write = () -> readNode(false);
+            Callable<String> read = () -> readNode(true);
+
+            assertEquals("primary", requestPool.submit(() -> handle(interceptor, request, write)).get());
+            assertEquals("primary", requestPool.submit(() -> handle(interceptor, request, read)).get());
+            assertEquals("replica", requestPool.submit(read).get());
+        } finally {
+            requestPool.shutdown();
+        }
+    }
+
+    @Test
+    void readOnlyTransactionTest_whenPrimaryRequired_thenPrimaryForThatTransactionOnly() {
+        transactionTemplate.setReadOnly(true);
+        String node = transactionTemplate.execute(status -> {
+            ReplicaRoutingDataSource.requirePrimary();
+            return new JdbcTemplate(dataSource).queryForObject("select name from node", String.class);
+        });
+
+        assertEquals("primary", node);
+        assertEquals("replica", readNode(true));
+    }
+
+    @Test
+    void cachePutTest_whenReadServedByReplica_thenNotCached() {
+        CacheManager cacheManager = new PrimaryOnlyCacheManager(new ConcurrentMapCacheManager("users"));
+        Cache cache = cacheManager.getCache("users");
+
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            cache.put(1L, new JdbcTemplate(dataSource).queryForObject("select name from node", String.class));
+            assertTrue(ReplicaRoutingDataSource.isReplicaRead());
+        });
+        assertFalse(ReplicaRoutingDataSource.isReplicaRead());
+        assertNull(cache.get(1L));
+
+        transactionTemplate.setReadOnly(false);
+        transactionTemplate.executeWithoutResult(status ->
+                cache.put(1L, new JdbcTemplate(dataSource).queryForObject("select name from node", String.class)));
+        assertEquals("primary", cache.get(1L).get());
+    }
+
+    private String handle(ReadYourWritesInterceptor interceptor, ServletWebRequest request,
+                          Callable<String> task) throws Exception {
+        interceptor.preProcess(request, task);
+        try {
+            return task.call();
+        } finally {
+            interceptor.postProcess(request, task, null);
+        }
+    }
+
+    private MockHttpServletRequest userRequest(String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ReadYourWritesTracker.USER_ID_HEADER, userId);
+        return request;
+    }
+
+    private String readNode(boolean readOnly) {
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("select name from node", String.class));
+    }
+
+    static class MovableClock extends Clock {
+        Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -17,13 +17,20 @@ import org.springframework.util.LinkedMultiValueMap;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.CommentDto;
 import ru.practicum.shareit.item.ItemDto;
+import ru.practicum.shareit.item.ItemImportProgressDto;
+import ru.practicum.shareit.item.RequestBodyItemDto;
+import ru.practicum.shareit.item.service.ItemImportService;
 import ru.practicum.shareit.item.service.ItemService;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -41,6 +48,8 @@ public class ItemControllerTest {
     @MockBean
     @Qualifier("ItemServiceImpl")
     ItemService itemService;
+    @MockBean
+    ItemImportService itemImportService;
 
     ItemDto itemDtoCorrect;
     ItemDto itemDtoEmptyName;
@@ -112,6 +121,22 @@ public class ItemControllerTest {
         assertEquals(objectMapper.writeValueAsString(commentDtoCorrect), result);
     }
 
+    @SneakyThrows
+    @Test
+    void getItemCommentsTest_whenPaged_thenReturnPage() {
+        when(itemService.getItemComments(anyLong(), anyInt(), anyInt())).thenReturn(List.of(commentDtoCorrect));
+
+        String result = mockMvc.perform(get(pathItems + pathItemId + "/comments", 1)
+                        .param("from", "20")
+                        .param("size", "5"))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+        verify(itemService).getItemComments(1L, 20, 5);
+        assertEquals(objectMapper.writeValueAsString(List.of(commentDtoCorrect)), result);
+    }
+
     @SneakyThrows
     @Test
     void addCommentTest_whenCommentTextEmpty_thenThrow() {
@@ -169,11 +194,11 @@ public class ItemControllerTest {
     @SneakyThrows
     @Test
     void getItemByIdTest() {
-        when(itemService.getItemById(anyLong(), anyLong())).thenReturn(itemDtoCorrect);
+        when(itemService.getItemById(anyLong(), anyLong(), any())).thenReturn(itemDtoCorrect);
 
         mockMvc.perform(get(pathItems + pathItemId, 1).header(headerUserValue, 1)).andExpect(status().is2xxSuccessful());
 
-        verify(itemService).getItemById(anyLong(), anyLong());
+        verify(itemService).getItemById(anyLong(), anyLong(), any());
     }
 
     @SneakyThrows
@@ -193,4 +218,52 @@ public class ItemControllerTest {
 
         verify(itemService).getItemByNameOrDescription(anyString(), anyLong(), anyInt(), anyInt());
     }
-}
\ No newline at end of file
+
+    @SneakyThrows
+    @Test
+    @SuppressWarnings("unchecked")
+    void importItemsTest_whenCsv_thenRowsParsedAndProgressWritten() {
+        List<RequestBodyItemDto> parsed = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterator<RequestBodyItemDto> items = invocation.getArgument(0);
+            items.forEachRemaining(parsed::add);
+            Consumer<ItemImportProgressDto> progressConsumer = invocation.getArgument(2);
+            ItemImportProgressDto progress = ItemImportProgressDto.builder().processed(2).imported(2)
+                    .errors(List.of()).build();
+            progressConsumer.accept(progress);
+            return progress;
+        }).when(itemImportService).importItems(any(Iterator.class), eq(1L), any(Consumer.class));
+
+        String result = mockMvc.perform(post(pathItems + "/batch")
+                        .content("name,description,available,requestId\n" +
+                                "drill,\"cordless, 18V\",true,\n" +
+                                "saw,hand saw,false,5\n")
+                        .contentType("text/csv")
+                        .header(headerUserValue, 1))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        assertEquals(List.of(new RequestBodyItemDto("drill", "cordless, 18V", true, null),
+                new RequestBodyItemDto("saw", "hand saw", false, 5L)), parsed);
+        assertEquals("{\"processed\":2,\"imported\":2,\"errors\":[]}", result.trim());
+    }
+
+    @SneakyThrows
+    @Test
+    @SuppressWarnings("unchecked")
+    void importItemsTest_whenNdjsonLineMalformed_thenBadRequest() {
+        doAnswer(invocation -> {
+            Iterator<RequestBodyItemDto> items = invocation.getArgument(0);
+            items.forEachRemaining(item -> { });
+            return null;
+        }).when(itemImportService).importItems(any(Iterator.class), any(), any(Consumer.class));
+
+        mockMvc.perform(post(pathItems + "/batch")
+                        .content("{\"name\":\"drill\",\"description\":\"drill\",\"available\":true}\n{\"name\":")
+                        .contentType("application/x-ndjson")
+                        .header(headerUserValue, 1))
+                .andExpect(status().isBadRequest());
+    }
+}
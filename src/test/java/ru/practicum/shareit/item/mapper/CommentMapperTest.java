@@ -3,8 +3,10 @@ package ru.practicum.shareit.item.mapper;
 import org.junit.jupiter.api.Test;
 import ru.practicum.shareit.TestHelper;
 import ru.practicum.shareit.item.CommentDto;
+import ru.practicum.shareit.item.CommentItemDto;
 import ru.practicum.shareit.item.mapper.CommentDtoMapper;
 import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.User;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,4 +28,19 @@ public class CommentMapperTest {
         assertNotNull(commentDto.getCreated());
         assertEquals("commentText", commentDto.getText());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void toCommentDtoTest_whenItemPresent_thenOnlyItemFieldsMapped() {
+        User owner = testHelper.getOwner();
+        Item item = testHelper.getItem();
+        item.setOwner(owner);
+        Comment comment = testHelper.getComment();
+        comment.setAuthor(testHelper.getAuthor());
+        comment.setItem(item);
+
+        CommentDto commentDto = CommentDtoMapper.mapRow(comment);
+
+        assertEquals(CommentItemDto.builder().id(item.getId()).name("itemName").description("itemDesc")
+                .available(true).build(), commentDto.getItem());
+    }
+}
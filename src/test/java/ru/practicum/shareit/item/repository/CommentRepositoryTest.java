@@ -0,0 +1,88 @@
+package ru.practicum.shareit.item.repository;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.practicum.shareit.item.CommentPreviewView;
+import ru.practicum.shareit.item.CommentRepository;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.user.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class CommentRepositoryTest {
+    @Autowired
+    CommentRepository commentRepository;
+    @Autowired
+    ItemRepository itemRepository;
+    @Autowired
+    TestEntityManager entityManager;
+    final LocalDateTime currentDate = LocalDateTime.now();
+    User author;
+    User secondAuthor;
+    Item item;
+    Item secondItem;
+
+    @BeforeEach
+    void beforeEach() {
+        author = entityManager.persist(User.builder().name("author").email("author@mail.ru").build());
+        secondAuthor = entityManager.persist(User.builder().name("secondAuthor").email("secondAuthor@mail.ru").build());
+        item = entityManager.persist(Item.builder().name("item").description("itemDesc").available(true).owner(author).build());
+        secondItem = entityManager.persist(Item.builder().name("item2").description("itemDesc2").available(true).owner(author).build());
+        for (int i = 0; i < 3; i++) {
+            addComment(item, i % 2 == 0 ? author : secondAuthor, "comment" + i, currentDate.plusMinutes(i));
+        }
+        addComment(secondItem, author, "secondItemComment", currentDate);
+    }
+
+    @Test
+    void findLatestCommentsByItemsTest_whenLimitLessThanComments_thenLatestPerItem() {
+        List<CommentPreviewView> result = commentRepository
+                .findLatestCommentsByItems(List.of(item.getId(), secondItem.getId()), 2);
+
+        assertEquals(3, result.size());
+        assertEquals("comment2", result.get(0).getText());
+        assertEquals("comment1", result.get(1).getText());
+        assertEquals("secondAuthor", result.get(1).getAuthorName());
+        assertEquals(secondItem.getId(), result.get(2).getItemId());
+    }
+
+    @Test
+    void findCommentsByItemTest_whenOffset_thenNewestFirstPage() {
+        List<Comment> result = commentRepository.findCommentsByItem(item.getId(), OffsetPageRequest.of(1, 1));
+
+        assertEquals(1, result.size());
+        assertEquals("comment1", result.get(0).getText());
+    }
+
+    @Test
+    void commentCountTest_whenIncrementedAndAuthorRemoved_thenCountsFollow() {
+        itemRepository.incrementCommentCount(item.getId());
+        itemRepository.incrementCommentCount(item.getId());
+        itemRepository.incrementCommentCount(item.getId());
+        itemRepository.incrementCommentCount(secondItem.getId());
+
+        itemRepository.decrementCommentCountsForAuthor(author.getId());
+        entityManager.clear();
+
+        assertEquals(1, entityManager.find(Item.class, item.getId()).getCommentCount());
+        assertEquals(0, entityManager.find(Item.class, secondItem.getId()).getCommentCount());
+    }
+
+    private void addComment(Item commentItem, User commentAuthor, String text, LocalDateTime createDate) {
+        entityManager.persist(Comment.builder().item(commentItem).author(commentAuthor).text(text)
+                .createDate(createDate).build());
+    }
+}
@@ -7,8 +7,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import ru.practicum.shareit.TestHelper;
 import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.User;
+
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -17,7 +22,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 public class ItemRepositoryTest {
     @Autowired
     ItemRepository itemRepository;
-     TestHelper testHelper = new TestHelper();
+    @Autowired
+    TestEntityManager entityManager;
+    TestHelper testHelper = new TestHelper();
 
     @BeforeEach
     void beforeEach() {
@@ -33,4 +40,47 @@ public class ItemRepositoryTest {
     void saveItemsTest() {
         assertEquals(itemRepository.findAll().size(), 1);
     }
-}
\ No newline at end of file
+
+    @Test
+    void searchAvailableItemIdsTest_whenUnavailableAndPartialMatches_thenSkipBeforePaging() {
+        User owner = entityManager.persist(User.builder().name("owner").email("owner@mail.ru").build());
+        Item screwdriver = entityManager.persist(Item.builder().name("Отвертка").description("Аккумуляторная отвертка")
+                .available(true).owner(owner).build());
+        entityManager.persist(Item.builder().name("Дрель").description("Аккумуляторная дрель")
+                .available(false).owner(owner).build());
+        Item battery = entityManager.persist(Item.builder().name("Аккумулятор").description("Для дрели")
+                .available(true).owner(owner).build());
+        entityManager.flush();
+
+        assertEquals(List.of(screwdriver.getId(), battery.getId()), itemRepository.searchAvailableItemIds("аккУМ", 0, 2));
+        assertEquals(List.of(battery.getId()), itemRepository.searchAvailableItemIds("аккум", 1, 2));
+        assertEquals(List.of(screwdriver.getId()), itemRepository.searchAvailableItemIds("отвертка, аккумуляторная", 0, 2));
+        assertEquals(List.of(), itemRepository.searchAvailableItemIds("отвертка дрель", 0, 2));
+        assertEquals(List.of(), itemRepository.searchAvailableItemIds(" ", 0, 2));
+    }
+
+    @Test
+    void searchAvailableItemIdsTest_whenTermInsideWord_thenNoMatch() {
+        User owner = entityManager.persist(User.builder().name("owner").email("owner@mail.ru").build());
+        Item screwdriver = entityManager.persist(Item.builder().name("Отвертка").description("Аккумуляторная отвертка")
+                .available(true).owner(owner).build());
+        Item battery = entityManager.persist(Item.builder().name("Аккумулятор").description("Для дрели, 18В")
+                .available(true).owner(owner).build());
+        entityManager.flush();
+
+        assertEquals(List.of(), itemRepository.searchAvailableItemIds("мулятор", 0, 10));
+        assertEquals(List.of(), itemRepository.searchAvailableItemIds("вертка", 0, 10));
+        assertEquals(List.of(screwdriver.getId()), itemRepository.searchAvailableItemIds("отв", 0, 10));
+        assertEquals(List.of(battery.getId()), itemRepository.searchAvailableItemIds("дрел 18", 0, 10));
+    }
+
+    @Test
+    void lockItemsTest_whenItemsExist_thenLockedInIdOrder() {
+        User owner = entityManager.persist(User.builder().name("owner").email("owner@mail.ru").build());
+        Item first = entityManager.persist(Item.builder().name("first").description("first").available(true).owner(owner).build());
+        Item second = entityManager.persist(Item.builder().name("second").description("second").available(true).owner(owner).build());
+        entityManager.flush();
+
+        assertEquals(List.of(first.getId(), second.getId()), itemRepository.lockItems(List.of(second.getId(), first.getId(), -1L)));
+    }
+}
@@ -0,0 +1,134 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.TestHelper;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.service.ItemBookingSummaryService;
+import ru.practicum.shareit.common.EntityResolver;
+import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.ItemImportErrorDto;
+import ru.practicum.shareit.item.ItemImportProgressDto;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.RequestBodyItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ItemImportServiceTest {
+    @Mock
+    ItemRepository itemRepository;
+    @Mock
+    ItemRequestRepository itemRequestRepository;
+    @Mock
+    UserRepository userRepository;
+    @Mock
+    BookingRepository bookingRepository;
+    @Mock
+    ItemBookingSummaryService itemBookingSummaryService;
+    @Mock
+    EntityManager entityManager;
+    @Mock
+    TransactionTemplate transactionTemplate;
+    ItemImportService itemImportService;
+    final User owner = User.builder().id(1L).build();
+    final ItemRequest itemRequest = ItemRequest.builder().id(5L).build();
+    final List<ItemImportProgressDto> progress = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void beforeEach() {
+        itemImportService = new ItemImportService(itemRepository, itemRequestRepository, itemBookingSummaryService,
+                new EntityResolver(userRepository, itemRepository, itemRequestRepository, bookingRepository),
+                entityManager, transactionTemplate);
+        when(userRepository.findSnapshotById(owner.getId())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        when(entityManager.getReference(User.class, owner.getId())).thenReturn(owner);
+        when(entityManager.getReference(ItemRequest.class, itemRequest.getId())).thenReturn(itemRequest);
+        when(itemRequestRepository.findAllById(any())).thenReturn(List.of(itemRequest));
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        when(itemRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Item> items = invocation.getArgument(0);
+            long id = 100;
+            for (Item item : items) {
+                item.setId(id++);
+            }
+            return items;
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importItemsTest_whenValidAndInvalidRows_thenSaveValidAndReportErrors() {
+        List<RequestBodyItemDto> rows = List.of(
+                new RequestBodyItemDto("drill", "cordless drill", true, itemRequest.getId()),
+                new RequestBodyItemDto("", "nameless", true, null),
+                new RequestBodyItemDto("saw", "hand saw", false, 77L));
+
+        ItemImportProgressDto result = itemImportService.importItems(rows.iterator(), owner.getId(), progress::add);
+
+        assertEquals(3, result.getProcessed());
+        assertEquals(2, result.getImported());
+        assertEquals(List.of(new ItemImportErrorDto(1, "Название не может быть пустым")), result.getErrors());
+        assertEquals(List.of(result), progress);
+        ArgumentCaptor<List<Item>> saved = ArgumentCaptor.forClass(List.class);
+        verify(itemRepository).saveAll(saved.capture());
+        assertEquals(owner, saved.getValue().get(0).getOwner());
+        assertEquals(itemRequest, saved.getValue().get(0).getItemRequest());
+        assertNull(saved.getValue().get(1).getItemRequest());
+        verify(itemBookingSummaryService).createEmpty(List.of(100L, 101L));
+    }
+
+    @Test
+    void importItemsTest_whenMoreRowsThanChunk_thenTransactionAndProgressPerChunk() {
+        List<RequestBodyItemDto> rows = new ArrayList<>();
+        for (int i = 0; i < ItemImportService.IMPORT_CHUNK_SIZE + 1; i++) {
+            rows.add(new RequestBodyItemDto("item" + i, "description" + i, true, itemRequest.getId()));
+        }
+
+        itemImportService.importItems(rows.iterator(), owner.getId(), progress::add);
+
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(itemRequestRepository, times(1)).findAllById(any());
+        assertEquals(2, progress.size());
+        assertEquals(ItemImportService.IMPORT_CHUNK_SIZE, progress.get(0).getProcessed());
+        assertEquals(ItemImportService.IMPORT_CHUNK_SIZE + 1, progress.get(1).getImported());
+    }
+
+    @Test
+    void importItemsTest_whenOwnerMissing_thenThrowBeforeReading() {
+        assertThrows(ValidationException.class, () -> itemImportService.importItems(List.<RequestBodyItemDto>of().iterator(),
+                null, progress::add));
+        verify(transactionTemplate, never()).execute(any());
+        verify(userRepository, never()).findSnapshotById(anyLong());
+        verify(entityManager, never()).getReference(eq(User.class), any());
+    }
+}
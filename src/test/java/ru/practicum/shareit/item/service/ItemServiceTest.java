@@ -6,14 +6,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import ru.practicum.shareit.common.EntityResolver;
 import ru.practicum.shareit.TestHelper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.ItemBookingSummaryRepository;
+import ru.practicum.shareit.booking.model.ItemBookingSummary;
+import ru.practicum.shareit.booking.service.ItemBookingSummaryService;
 import ru.practicum.shareit.exception.ForbiddenException;
 import ru.practicum.shareit.exception.InternalServerException;
 import ru.practicum.shareit.exception.NotFoundException;
@@ -24,15 +27,23 @@ import ru.practicum.shareit.item.mapper.CommentDtoMapper;
 import ru.practicum.shareit.item.mapper.ItemDtoMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PaginationProperties;
+import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -52,8 +63,10 @@ public class ItemServiceTest {
     BookingRepository bookingRepository;
     @Mock
     CommentRepository commentRepository;
+    @Mock
+    ItemBookingSummaryRepository itemBookingSummaryRepository;
 
-    @InjectMocks
+    final PaginationProperties paginationProperties = new PaginationProperties();
     ItemServiceImpl itemServiceimpl;
     final TestHelper testHelper = new TestHelper();
 
@@ -70,6 +83,11 @@ public class ItemServiceTest {
 
     @BeforeEach
     void beforeEach() {
+        itemServiceimpl = new ItemServiceImpl(itemRepository, bookingRepository, commentRepository,
+                itemRequestRepository,
+                new ItemBookingSummaryService(itemBookingSummaryRepository, bookingRepository),
+                new EntityResolver(userRepository, itemRepository, itemRequestRepository, bookingRepository),
+                paginationProperties);
         owner = testHelper.getOwner();
         author = testHelper.getAuthor();
         item = testHelper.getItem();
@@ -84,11 +102,14 @@ public class ItemServiceTest {
         requestBodyItemDto = RequestBodyItemDto.builder().name(item.getName())
                 .description(item.getDescription()).available(item.getAvailable()).build();
         when(itemRequestRepository.save(any())).thenAnswer(input -> input.getArguments()[0]);
+        when(itemRepository.save(any())).thenAnswer(input -> input.getArguments()[0]);
+        when(itemRepository.findItemVersionById(anyLong(), anyInt())).thenAnswer(input -> Optional.of(itemVersion(0)));
     }
 
     @Test
     void addItemTest_whenItemCorrect_thenSave() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        when(userRepository.getReferenceById(anyLong())).thenReturn(owner);
         itemServiceimpl.addNewItem(requestBodyItemDto, owner.getId());
         requestBodyItemDto.setRequestId(null);
 
@@ -105,7 +126,9 @@ public class ItemServiceTest {
     @Test
     void addItemTest_whenDescEmpty_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         requestBodyItemDto.setDescription("");
 
         assertThrows(
@@ -118,7 +141,9 @@ public class ItemServiceTest {
     @Test
     void addItemTest_whenDescOnlySpace_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         requestBodyItemDto.setDescription(" ");
 
         assertThrows(
@@ -131,7 +156,9 @@ public class ItemServiceTest {
     @Test
     void addItemTest_whenDescIsNull_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         requestBodyItemDto.setDescription(null);
 
         assertThrows(
@@ -144,7 +171,9 @@ public class ItemServiceTest {
     @Test
     void addItemTest_whenNameEmpty_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         requestBodyItemDto.setName("");
 
         assertThrows(
@@ -157,7 +186,9 @@ public class ItemServiceTest {
     @Test
     void addItemTest_whenNameOnlySpace_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         requestBodyItemDto.setName(" ");
 
         assertThrows(
@@ -170,7 +201,9 @@ public class ItemServiceTest {
     @Test
     void addItemTest_whenNameIsNull_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         requestBodyItemDto.setName(null);
 
         assertThrows(
@@ -183,7 +216,9 @@ public class ItemServiceTest {
     @Test
     void addItemTest_whenAvailableIsNull_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         requestBodyItemDto.setAvailable(null);
 
         assertThrows(
@@ -196,7 +231,9 @@ public class ItemServiceTest {
     @Test
     void addItemTest_whenUserIdIsNull_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
 
         assertThrows(
                 ValidationException.class,
@@ -208,7 +245,9 @@ public class ItemServiceTest {
     @Test
     void addCommentTest_whenBookingNotFound_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
 
         assertThrows(
                 ValidationException.class,
@@ -220,7 +259,9 @@ public class ItemServiceTest {
     @Test
     void addCommentTest_whenTextIsEmpty_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         comment.setText("");
 
         assertThrows(
@@ -233,7 +274,9 @@ public class ItemServiceTest {
     @Test
     void addCommentTest_whenTextIsNull_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         comment.setText(null);
 
         assertThrows(
@@ -246,7 +289,9 @@ public class ItemServiceTest {
     @Test
     void addCommentTest_whenTextIsSpace_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         comment.setText(" ");
 
         assertThrows(
@@ -259,6 +304,7 @@ public class ItemServiceTest {
     @Test
     void addCommentTest_whenItemNotFound_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
 
 
@@ -272,6 +318,7 @@ public class ItemServiceTest {
     @Test
     void addCommentTest_whenUserNotFound_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(bookingRepository.findById(anyLong())).thenReturn(Optional.of(booking));
 
 
@@ -285,19 +332,46 @@ public class ItemServiceTest {
     @Test
     void addCommentTest_whenCommentCorrect_thenSave() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         when(bookingRepository.findPastBookingsForUserAndItem(any(), any(), any(), any())).thenReturn(List.of(booking));
         when(commentRepository.save(comment)).thenReturn(comment);
         CommentDto commentDto = itemServiceimpl.addNewComment(comment, userId, itemId);
 
         verify(commentRepository).save(comment);
+        verify(itemRepository).incrementCommentCount(itemId);
         assertEquals(CommentDtoMapper.mapRow(comment), commentDto);
     }
 
+    @Test
+    void getItemCommentsTest_whenSizeOverLimit_thenPageWithMaxPageSize() {
+        paginationProperties.setMaxPageSize(2);
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
+        when(commentRepository.findCommentsByItem(anyLong(), any())).thenReturn(List.of(comment));
+
+        List<CommentDto> result = itemServiceimpl.getItemComments(itemId, 4, 1000);
+
+        verify(commentRepository).findCommentsByItem(itemId, OffsetPageRequest.of(4, 2));
+        assertEquals(List.of(CommentDtoMapper.mapRow(comment)), result);
+    }
+
+    @Test
+    void getItemCommentsTest_whenItemNotFound_thenThrowException() {
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> itemServiceimpl.getItemComments(itemId, 0, 10));
+        verify(commentRepository, never()).findCommentsByItem(anyLong(), any());
+    }
+
     @Test
     void updateItemTest_whenCorrect_thenUpdate() {
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        when(userRepository.getReferenceById(anyLong())).thenReturn(owner);
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         item.setOwner(owner);
         requestBodyItemDto.setDescription(null);
         requestBodyItemDto.setName(null);
@@ -309,10 +383,34 @@ public class ItemServiceTest {
         verify(itemRepository).save(any());
     }
 
+    @Test
+    void updateItemTest_whenPartialUpdate_thenKeepCommentCountAndRequest() {
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.save(any())).thenAnswer(input -> input.getArguments()[0]);
+        ItemRequest itemRequest = ItemRequest.builder().id(7L).build();
+        item.setOwner(owner);
+        item.setCommentCount(3);
+        item.setItemRequest(itemRequest);
+        requestBodyItemDto.setName("новое название");
+        requestBodyItemDto.setDescription(null);
+        requestBodyItemDto.setAvailable(null);
+        requestBodyItemDto.setRequestId(null);
+
+        ItemDto result = itemServiceimpl.updateItem(itemId, requestBodyItemDto, owner.getId());
+
+        ArgumentCaptor<Item> saved = ArgumentCaptor.forClass(Item.class);
+        verify(itemRepository).save(saved.capture());
+        assertSame(item, saved.getValue());
+        assertEquals("новое название", item.getName());
+        assertEquals(itemRequest, item.getItemRequest());
+        assertEquals(3, result.getCommentCount());
+    }
+
     @Test
     void updateItemTest_whenUserMissing_thenThrowException() {
         long itemId = 1L;
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         assertThrows(
                 InternalServerException.class,
                 () -> itemServiceimpl.updateItem(itemId, requestBodyItemDto, null));
@@ -332,7 +430,9 @@ public class ItemServiceTest {
     @Test
     void updateItemTest_whenUserIsNotOwner_thenThrowException() {
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
         item.setOwner(owner);
         assertThrows(
                 ForbiddenException.class,
@@ -344,28 +444,80 @@ public class ItemServiceTest {
     @Test
     void getItemByIdTest_whenItemPresent_thenItem() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
         when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
         item.setOwner(owner);
         itemDto.setComments(new ArrayList<>());
 
-        ItemDto result = itemServiceimpl.getItemById(itemId, userId);
+        ItemDto result = itemServiceimpl.getItemById(itemId, userId, eTag -> false);
 
-        verify(itemRepository, times(2)).findById(anyLong());
+        verify(itemRepository).findById(anyLong());
         assertEquals(itemDto, result);
     }
 
+    @Test
+    void getItemByIdTest_whenNotModifiedForNonOwner_thenETagFromVersionsOnly() {
+        item.setVersion(5L);
+        item.setCommentCount(1);
+        when(itemRepository.findItemVersionById(anyLong(), anyInt())).thenReturn(Optional.of(itemVersion(2)));
+        List<String> eTags = new ArrayList<>();
+
+        ItemDto result = itemServiceimpl.getItemById(itemId, author.getId() + 10, eTag -> eTags.add(eTag));
+
+        assertNull(result);
+        assertEquals(List.of(item.getId() + "-5-1-2"), eTags);
+        verify(itemRepository, never()).findById(anyLong());
+        verify(commentRepository, never()).findLatestCommentsByItems(any(), anyInt());
+    }
+
+    @Test
+    void getItemByIdTest_whenCommentAuthorRenamed_thenETagChanged() {
+        item.setCommentCount(1);
+        when(itemRepository.findItemVersionById(anyLong(), anyInt()))
+                .thenAnswer(input -> Optional.of(itemVersion(author.getVersion())));
+        List<String> eTags = new ArrayList<>();
+
+        itemServiceimpl.getItemById(itemId, author.getId() + 10, eTag -> eTags.add(eTag));
+        author.setVersion(author.getVersion() + 1);
+        itemServiceimpl.getItemById(itemId, author.getId() + 10, eTag -> eTags.add(eTag));
+
+        assertNotEquals(eTags.get(0), eTags.get(1));
+    }
+
+    @Test
+    void getItemByIdTest_whenOwnerSummaryStale_thenETagFromCalculatedSummary() {
+        item.setVersion(5L);
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
+        when(itemBookingSummaryRepository.findAllById(any())).thenReturn(List.of(ItemBookingSummary.builder()
+                .itemId(item.getId()).lastBookingId(3L).refreshAt(LocalDateTime.now().minusMinutes(1)).build()));
+        List<String> eTags = new ArrayList<>();
+
+        ItemDto result = itemServiceimpl.getItemById(itemId, owner.getId(), eTag -> eTags.add(eTag));
+
+        assertNull(result);
+        assertEquals(List.of(item.getId() + "-5-0-0-null-null-0"), eTags);
+        verify(bookingRepository, times(1)).findLastBookingsForItems(any(), any(), any());
+        verify(itemRepository, never()).findById(anyLong());
+    }
+
     @Test
     void getItemByIdTest_whenItemNotFound_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
         when(itemRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.empty());
+        when(itemRepository.findItemVersionById(anyLong(), anyInt())).thenReturn(Optional.empty());
 
+        assertThrows(NotFoundException.class, () -> itemServiceimpl.getItemById(1L, 1L, eTag -> false));
         verify(itemRepository, never()).findById(anyLong());
-        assertThrows(NotFoundException.class, () -> itemServiceimpl.getItemById(1L, 1L));
     }
 
     @Test
     void getItemsTest() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
         List<ItemDto> result = itemServiceimpl.getAllItems(owner.getId(), 1, 1);
 
@@ -373,9 +525,58 @@ public class ItemServiceTest {
         assertEquals(new ArrayList<>(), result);
     }
 
+    @Test
+    void getItemsTest_whenFromNotMultipleOfSize_thenOffsetPageCappedBySize() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+
+        itemServiceimpl.getAllItems(owner.getId(), 3, 2);
+        itemServiceimpl.getAllItems(owner.getId(), 0, 1000);
+
+        verify(itemRepository).findItemsForUserWithPage(any(), eq(OffsetPageRequest.of(3, 2)));
+        verify(itemRepository).findItemsForUserWithPage(any(), eq(OffsetPageRequest.of(0, paginationProperties.getMaxPageSize())));
+    }
+
+    @Test
+    void getItemsTest_whenSeveralItems_thenLoadBookingsAndCommentsOnce() {
+        Item secondItem = Item.builder().id(2L).name("itemName2").description("itemDesc2").available(true).owner(owner)
+                .commentCount(1).build();
+        booking.setBooker(author);
+        comment.setItem(secondItem);
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        when(itemRepository.findItemsForUserWithPage(any(), any())).thenReturn(List.of(item, secondItem));
+        when(bookingRepository.findLastBookingsForItems(any(), any(), any())).thenReturn(List.of(booking));
+        when(commentRepository.findLatestCommentsByItems(any(), anyInt())).thenReturn(List.of(commentPreview(comment)));
+
+        List<ItemDto> result = itemServiceimpl.getAllItems(owner.getId(), 0, 10);
+
+        verify(bookingRepository).findLastBookingsForItems(eq(List.of(item.getId(), secondItem.getId())), any(), any());
+        verify(bookingRepository).findNextBookingsForItems(any(), any(), any());
+        verify(commentRepository).findLatestCommentsByItems(Set.of(secondItem.getId()), ItemServiceImpl.COMMENT_PREVIEW_SIZE);
+        assertEquals(2, result.size());
+        assertEquals(1, result.get(1).getCommentCount());
+        assertEquals(booking.getId(), result.get(0).getLastBooking().getId());
+        assertEquals(new ArrayList<>(), result.get(0).getComments());
+        assertEquals(List.of(CommentDtoMapper.mapRow(comment)), result.get(1).getComments());
+    }
+
+    @Test
+    void getItemsTest_whenNoComments_thenSkipCommentQuery() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        when(itemRepository.findItemsForUserWithPage(any(), any())).thenReturn(List.of(item));
+
+        List<ItemDto> result = itemServiceimpl.getAllItems(owner.getId(), 0, 10);
+
+        verify(commentRepository, never()).findLatestCommentsByItems(any(), anyInt());
+        assertEquals(new ArrayList<>(), result.get(0).getComments());
+    }
+
     @Test
     void getItemByIdTest_whenSizeIllegal_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
         verify(itemRepository, never()).findItemsForUserWithPage(any(), any());
         assertThrows(ValidationException.class, () -> itemServiceimpl.getAllItems(2L, -1, 1));
@@ -391,11 +592,121 @@ public class ItemServiceTest {
     @Test
     void getItemsByTextTest() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
         List<ItemDto> result = itemServiceimpl.getItemByNameOrDescription("itemName1", owner.getId(), 1, 1);
 
-        verify(itemRepository).findAvailableItemsByNameOrDescription(anyString(), any(), any());
+        verify(itemRepository).searchAvailableItemIds("itemName1", 1, 1);
+        verify(itemRepository, never()).findAllById(any());
         assertEquals(new ArrayList<>(), result);
     }
 
-}
\ No newline at end of file
+    @Test
+    void getItemsByTextTest_whenSizeAboveMax_thenCapPageSize() {
+        paginationProperties.setMaxPageSize(2);
+
+        itemServiceimpl.getItemByNameOrDescription("itemName", userId, 0, 1000);
+
+        verify(itemRepository).searchAvailableItemIds("itemName", 0, 2);
+    }
+
+    @Test
+    void getItemsByTextTest_whenFound_thenPageInRankOrder() {
+        Item secondItem = Item.builder().id(2L).name("itemName2").description("itemDesc2").available(true).owner(owner).build();
+        when(itemRepository.searchAvailableItemIds("itemName", 1, 2)).thenReturn(List.of(1L, 2L));
+        when(itemRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(secondItem, item));
+
+        List<ItemDto> result = itemServiceimpl.getItemByNameOrDescription("itemName", userId, 1, 2);
+
+        verify(itemRepository).findAllById(List.of(1L, 2L));
+        assertEquals(List.of(item.getId(), secondItem.getId()), List.of(result.get(0).getId(), result.get(1).getId()));
+    }
+
+    @Test
+    void addItemTest_whenItemCorrect_thenCreateBookingSummary() {
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        when(userRepository.getReferenceById(anyLong())).thenReturn(owner);
+        when(itemRepository.save(any())).thenReturn(item);
+
+        itemServiceimpl.addNewItem(requestBodyItemDto, owner.getId());
+
+        verify(itemBookingSummaryRepository).insertEmpty(item.getId());
+    }
+
+    @Test
+    void getItemByIdTest_whenBookingSummaryFresh_thenNoBookingQueries() {
+        when(itemRepository.findById(anyLong())).thenReturn(Optional.of(item));
+        when(itemRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(item)));
+        when(itemBookingSummaryRepository.findAllById(any())).thenReturn(List.of(ItemBookingSummary.builder()
+                .itemId(item.getId()).lastBookingId(3L).lastBookerId(author.getId()).activeBookingCount(1)
+                .refreshAt(LocalDateTime.now().plusDays(1)).build()));
+
+        ItemDto result = itemServiceimpl.getItemById(item.getId(), owner.getId(), eTag -> false);
+
+        verify(bookingRepository, never()).findLastBookingsForItems(any(), any(), any());
+        verify(bookingRepository, never()).findNextBookingsForItems(any(), any(), any());
+        assertEquals(3L, result.getLastBooking().getId());
+        assertEquals(author.getId(), result.getLastBooking().getBookerId());
+        assertNull(result.getNextBooking());
+        assertEquals(1, result.getActiveBookingCount());
+    }
+
+
+    private ItemVersionView itemVersion(long previewAuthorVersionSum) {
+        return new ItemVersionView() {
+            @Override
+            public long getVersion() {
+                return item.getVersion();
+            }
+
+            @Override
+            public long getOwnerId() {
+                return item.getOwner().getId();
+            }
+
+            @Override
+            public int getCommentCount() {
+                return item.getCommentCount();
+            }
+
+            @Override
+            public long getPreviewAuthorVersionSum() {
+                return previewAuthorVersionSum;
+            }
+        };
+    }
+
+    private CommentPreviewView commentPreview(Comment comment) {
+        return new CommentPreviewView() {
+            @Override
+            public long getId() {
+                return comment.getId();
+            }
+
+            @Override
+            public long getItemId() {
+                return comment.getItem().getId();
+            }
+
+            @Override
+            public String getAuthorName() {
+                return comment.getAuthor().getName();
+            }
+
+            @Override
+            public long getAuthorVersion() {
+                return comment.getAuthor().getVersion();
+            }
+
+            @Override
+            public LocalDateTime getCreated() {
+                return comment.getCreateDate();
+            }
+
+            @Override
+            public String getText() {
+                return comment.getText();
+            }
+        };
+    }
+}
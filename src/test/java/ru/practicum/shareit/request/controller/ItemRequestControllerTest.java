@@ -11,18 +11,23 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.util.LinkedMultiValueMap;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,6 +36,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ItemRequestController.class)
+@Import(PaginationProperties.class)
 @AutoConfigureMockMvc
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class ItemRequestControllerTest {
@@ -38,6 +44,8 @@ public class ItemRequestControllerTest {
     ObjectMapper objectMapper;
     @Autowired
     MockMvc mockMvc;
+    @Autowired
+    PaginationProperties paginationProperties;
 
     @MockBean
     @Qualifier("ItemRequestServiceImpl")
@@ -108,20 +116,78 @@ public class ItemRequestControllerTest {
     @SneakyThrows
     @Test
     void getOwnItemRequestsTest() {
-        when(itemRequestService.getOwnItemRequests(anyLong())).thenReturn(List.of(itemRequestDtoCorrect));
+        when(itemRequestService.getOwnItemRequests(anyLong(), any(), any())).thenReturn(List.of(itemRequestDtoCorrect));
 
         mockMvc.perform(get(pathRequests).header(headerUserValue, 1)).andExpect(status().is2xxSuccessful());
 
-        verify(itemRequestService).getOwnItemRequests(anyLong());
+        verify(itemRequestService).getOwnItemRequests(1L, null, null);
+    }
+
+    @SneakyThrows
+    @Test
+    void getOwnItemRequestsTest_whenNoParametersAndPageFull_thenReturnNextCursor() {
+        when(itemRequestService.getOwnItemRequests(anyLong(), any(), any()))
+                .thenReturn(Collections.nCopies(paginationProperties.getMaxPageSize(), itemRequestDtoCorrect));
+
+        String nextCursor = mockMvc.perform(get(pathRequests).header(headerUserValue, 1))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+
+        assertEquals(PageCursor.of(itemRequestDtoCorrect.getCreated(), itemRequestDtoCorrect.getId()).encode(), nextCursor);
+    }
+
+    @SneakyThrows
+    @Test
+    void getOwnItemRequestsTest_whenPageRequested_thenPassFromAndSize() {
+        when(itemRequestService.getOwnItemRequests(anyLong(), any(), any())).thenReturn(List.of(itemRequestDtoCorrect));
+
+        mockMvc.perform(get(pathRequests).header(headerUserValue, 1).param("from", "5").param("size", "5"))
+                .andExpect(status().is2xxSuccessful());
+
+        verify(itemRequestService).getOwnItemRequests(1L, 5, 5);
+    }
+
+    @SneakyThrows
+    @Test
+    void getOwnItemRequestsTest_whenCursorPageFull_thenReturnNextCursor() {
+        when(itemRequestService.getOwnItemRequestsByCursor(anyLong(), any(), anyInt())).thenReturn(List.of(itemRequestDtoCorrect));
+
+        String nextCursor = mockMvc.perform(get(pathRequests).header(headerUserValue, 1)
+                        .param("cursor", PageCursor.FIRST.encode())
+                        .param("size", "1"))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+
+        assertEquals(PageCursor.of(itemRequestDtoCorrect.getCreated(), itemRequestDtoCorrect.getId()).encode(), nextCursor);
+    }
+
+    @SneakyThrows
+    @Test
+    void getOwnItemRequestsTest_whenCursorPageNotFull_thenNoNextCursor() {
+        when(itemRequestService.getOwnItemRequestsByCursor(anyLong(), any(), anyInt())).thenReturn(List.of(itemRequestDtoCorrect));
+
+        String nextCursor = mockMvc.perform(get(pathRequests).header(headerUserValue, 1)
+                        .param("cursor", PageCursor.FIRST.encode())
+                        .param("size", "2"))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+
+        assertNull(nextCursor);
     }
 
     @SneakyThrows
     @Test
     void getItemRequestByIdTest() {
-        when(itemRequestService.getRequestById(anyLong(), anyLong())).thenReturn(itemRequestDtoCorrect);
+        when(itemRequestService.getRequestById(anyLong(), anyLong(), any())).thenReturn(itemRequestDtoCorrect);
 
         mockMvc.perform(get(pathRequests + "/{requestId}", 1).header(headerUserValue, 1)).andExpect(status().is2xxSuccessful());
 
-        verify(itemRequestService).getRequestById(anyLong(), anyLong());
+        verify(itemRequestService).getRequestById(anyLong(), anyLong(), any());
     }
 }
\ No newline at end of file
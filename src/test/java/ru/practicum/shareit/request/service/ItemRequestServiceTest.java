@@ -6,17 +6,23 @@ import lombok.experimental.FieldDefaults;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import ru.practicum.shareit.TestHelper;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.common.EntityResolver;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.mapper.ItemDtoMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.ItemVersionsView;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.mapper.ItemRequestDtoMapper;
 import ru.practicum.shareit.request.dto.RequestBodyItemRequestDto;
@@ -25,6 +31,7 @@ import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -32,6 +39,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,7 +52,12 @@ public class ItemRequestServiceTest {
     UserRepository userRepository;
     @Mock
     ItemRepository itemRepository;
-    @InjectMocks
+    @Mock
+    BookingRepository bookingRepository;
+    @Spy
+    ItemRequestValidation itemRequestValidation = new ItemRequestValidation();
+    @Spy
+    PaginationProperties paginationProperties = new PaginationProperties();
     ItemRequestServiceImpl itemRequestServiceimpl;
     User author;
     User owner;
@@ -56,6 +69,8 @@ public class ItemRequestServiceTest {
 
     @BeforeEach
     void beforeEach() {
+        itemRequestServiceimpl = new ItemRequestServiceImpl(itemRequestRepository, itemRepository,
+                new EntityResolver(userRepository, itemRepository, itemRequestRepository, bookingRepository), paginationProperties, itemRequestValidation);
         author = testHelper.getAuthor();
         owner = testHelper.getOwner();
         itemRequest = testHelper.getItemRequest();
@@ -69,11 +84,13 @@ public class ItemRequestServiceTest {
     @Test
     void addItemRequestTest_whenItemRequestCorrect_thenSave() {
         itemRequestDto.setItems(new ArrayList<>());
-        when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
+        when(userRepository.getReferenceById(anyLong())).thenReturn(author);
 
         ItemRequestDto result = itemRequestServiceimpl.addNewItemRequest(2L, requestBodyItemRequestDto);
 
         verify(itemRequestRepository).save(any());
+        verify(userRepository, never()).findById(anyLong());
         assertNotNull(result);
         assertEquals(itemRequestDto.getDescription(), result.getDescription());
         assertEquals(itemRequestDto.getItems(), result.getItems());
@@ -83,6 +100,7 @@ public class ItemRequestServiceTest {
     void addItemRequestTest_whenDescIsMissing_thenThrowException() {
         itemRequestDto.setItems(new ArrayList<>());
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         requestBodyItemRequestDto.setDescription("");
 
         verify(itemRequestRepository, never()).save(any());
@@ -93,28 +111,51 @@ public class ItemRequestServiceTest {
     @Test
     void getItemRequestByIdTest_whenItemRequestPresent_thenItemRequest() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         when(itemRequestRepository.findById(any())).thenReturn(Optional.of(itemRequest));
-        when(itemRepository.findItemsByRequests(anyLong())).thenReturn(List.of(item));
+        when(itemRequestRepository.findFreshSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(itemRequest)));
+        when(itemRepository.findItemsByRequestIdIn(any())).thenReturn(List.of(item));
+        stubItemVersions();
 
-        ItemRequestDto result = itemRequestServiceimpl.getRequestById(2L, 1L);
+        ItemRequestDto result = itemRequestServiceimpl.getRequestById(2L, 1L, eTag -> false);
 
-        verify(itemRepository, times(2)).findItemsByRequests(anyLong());
+        verify(itemRepository, times(1)).findItemsByRequestIdIn(any());
+        verify(itemRequestRepository, never()).findSnapshotById(anyLong());
         itemRequestDto.setItems(List.of(ItemDtoMapper.itemToItemDTO(item)));
         assertEquals(itemRequestDto, result);
     }
 
+    @Test
+    void getItemRequestByIdTest_whenNotModified_thenItemsNotLoaded() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
+        when(itemRequestRepository.findById(any())).thenReturn(Optional.of(itemRequest));
+        when(itemRequestRepository.findFreshSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(itemRequest)));
+        stubItemVersions();
+        List<String> eTags = new ArrayList<>();
+
+        ItemRequestDto result = itemRequestServiceimpl.getRequestById(2L, 1L, eTag -> eTags.add(eTag));
+
+        assertNull(result);
+        assertEquals(List.of("1-0-1-" + item.getId() + "-4"), eTags);
+        verify(itemRepository, never()).findItemsByRequestIdIn(any());
+    }
+
     @Test
     void getItemRequestByIdTest_whenItemRequestNotFound_thenThrowException() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
         when(itemRequestRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(itemRequestRepository.findFreshSnapshotById(anyLong())).thenReturn(Optional.empty());
 
-        verify(itemRepository, never()).findItemsByRequests(anyLong());
-        assertThrows(NotFoundException.class, () -> itemRequestServiceimpl.getRequestById(2L, 2L));
+        verify(itemRepository, never()).findItemsByRequestIdIn(any());
+        assertThrows(NotFoundException.class, () -> itemRequestServiceimpl.getRequestById(2L, 2L, eTag -> false));
     }
 
     @Test
     void getItemRequestsTest() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
         List<ItemRequestDto> result = itemRequestServiceimpl.getAllItemRequests(1, 1, owner.getId());
 
@@ -125,11 +166,69 @@ public class ItemRequestServiceTest {
     @Test
     void getOwnItemRequestsTest() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
 
-        List<ItemRequestDto> result = itemRequestServiceimpl.getOwnItemRequests(owner.getId());
+        List<ItemRequestDto> result = itemRequestServiceimpl.getOwnItemRequests(owner.getId(), 0, 10);
 
-        verify(itemRequestRepository).findItemRequestsByAuthor(any());
+        verify(itemRequestRepository).findItemRequestsByAuthor(any(), eq(PageCursor.FIRST.getPosition()),
+                eq(PageCursor.FIRST.getId()), eq(OffsetPageRequest.of(0, 10)));
         assertEquals(new ArrayList<>(), result);
     }
 
+    @Test
+    void getOwnItemRequestsTest_whenNoPagingParameters_thenFirstPageOfMaxSize() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        int maxPageSize = paginationProperties.getMaxPageSize();
+
+        itemRequestServiceimpl.getOwnItemRequests(owner.getId(), null, null);
+
+        verify(itemRequestRepository).findItemRequestsByAuthor(any(), eq(PageCursor.FIRST.getPosition()),
+                eq(PageCursor.FIRST.getId()), eq(OffsetPageRequest.of(0, maxPageSize)));
+    }
+
+    @Test
+    void getItemRequestsTest_whenPageOfRequests_thenFetchItemsOnce() {
+        ItemRequest otherItemRequest = ItemRequest.builder().id(itemRequest.getId() + 1)
+                .created(LocalDateTime.now()).description("otherItemRequestDesc").build();
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+        when(itemRequestRepository.findAllItemRequests(any(), any())).thenReturn(List.of(itemRequest, otherItemRequest));
+        when(itemRepository.findItemsByRequestIdIn(any())).thenReturn(List.of(item));
+
+        List<ItemRequestDto> result = itemRequestServiceimpl.getAllItemRequests(0, 10, owner.getId());
+
+        verify(itemRepository, times(1)).findItemsByRequestIdIn(List.of(itemRequest.getId(), otherItemRequest.getId()));
+        assertEquals(1, result.get(0).getItems().size());
+        assertEquals(new ArrayList<>(), result.get(1).getItems());
+    }
+
+    @Test
+    void getOwnItemRequestsTest_whenSizeIllegal_thenThrowException() {
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(owner));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(owner)));
+
+        assertThrows(ValidationException.class, () -> itemRequestServiceimpl.getOwnItemRequests(owner.getId(), 0, 0));
+    }
+
+    @Test
+    void getOwnItemRequestsByCursorTest_whenCursorPresent_thenSeekAfterCursor() {
+        PageCursor cursor = PageCursor.of(itemRequest.getCreated(), itemRequest.getId());
+        int maxPageSize = paginationProperties.getMaxPageSize();
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(author));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(author)));
+
+        itemRequestServiceimpl.getOwnItemRequestsByCursor(author.getId(), cursor.encode(), 500);
+
+        verify(itemRequestRepository).findItemRequestsByAuthor(any(), eq(itemRequest.getCreated()), eq(itemRequest.getId()),
+                eq(OffsetPageRequest.of(0, maxPageSize)));
+    }
+
+    private void stubItemVersions() {
+        ItemVersionsView itemVersions = mock(ItemVersionsView.class);
+        when(itemVersions.getItemCount()).thenReturn(1L);
+        when(itemVersions.getMaxItemId()).thenReturn(item.getId());
+        when(itemVersions.getVersionSum()).thenReturn(4L);
+        when(itemRepository.findItemVersionsByRequestId(anyLong())).thenReturn(itemVersions);
+    }
 }
@@ -12,16 +12,36 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.exception.IsAlreadyExistsException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.pagination.IdCursor;
+import ru.practicum.shareit.pagination.PaginationProperties;
+import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserController;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserImportResultDto;
 import ru.practicum.shareit.user.UserService;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -29,6 +49,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 
 @WebMvcTest(controllers = UserController.class)
+@Import(PaginationProperties.class)
 @AutoConfigureMockMvc
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class UserControllerTest {
@@ -155,6 +176,23 @@ public class UserControllerTest {
         assertEquals(objectMapper.writeValueAsString(userDtoCorrect), result);
     }
 
+    @SneakyThrows
+    @Test
+    void updateUserTest_whenConcurrentlyUpdated_thenConflict() {
+        long userId = 1L;
+        when(userService.updateUser(any(), anyLong()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, userId));
+
+        String result = mockMvc.perform(patch(pathUsers + pathUserId, userId)
+                        .content(objectMapper.writeValueAsString(userDtoCorrect))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+        assertEquals("{\"error\":\"Данные изменены другим запросом, повторите попытку\"}", result);
+    }
+
     @SneakyThrows
     @Test
     void getUserByIdTest_whenIsPresent_thenReturnOK() {
@@ -162,24 +200,104 @@ public class UserControllerTest {
 
         mockMvc.perform(get(pathUsers + pathUserId, userId))
                 .andExpect(status().isOk());
-        verify(userService).getUserById(userId);
+        verify(userService).getUserById(eq(userId), any());
     }
 
     @SneakyThrows
     @Test
     void getUserByIdTest_whenIsNotPresent_thenThrow() {
         long userId = 1L;
-        when(userService.getUserById(userId)).thenThrow(new NotFoundException(String.format("%s %d %s", "The user with id =", userId, "not found")));
+        when(userService.getUserById(eq(userId), any())).thenThrow(new NotFoundException(String.format("%s %d %s", "The user with id =", userId, "not found")));
         mockMvc.perform(get(pathUsers + pathUserId, userId))
                 .andExpect(status().is4xxClientError());
-        verify(userService).getUserById(userId);
+        verify(userService).getUserById(eq(userId), any());
     }
 
     @SneakyThrows
     @Test
     void getAllUsersTest() {
         mockMvc.perform(get(pathUsers)).andExpect(status().isOk());
-        verify(userService).getAllUsers();
+        verify(userService).getAllUsers(null, null);
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllUsersTest_whenPageNotEmpty_thenReturnNextCursor() {
+        when(userService.getAllUsers(any(), any())).thenReturn(List.of(UserDto.builder().id(7L).name("user").email("user@mail.ru").build()));
+
+        String nextCursor = mockMvc.perform(get(pathUsers).param("size", "1"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+
+        assertEquals(IdCursor.of(7L).encode(), nextCursor);
+    }
+
+    @SneakyThrows
+    @Test
+    void getAllUsersTest_whenPageNotFull_thenNoNextCursor() {
+        when(userService.getAllUsers(any(), any())).thenReturn(List.of(UserDto.builder().id(7L).name("user").email("user@mail.ru").build()));
+
+        String nextCursor = mockMvc.perform(get(pathUsers).param("size", "2"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("X-Next-Cursor");
+
+        assertNull(nextCursor);
+    }
+
+    @SneakyThrows
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportUsersTest_whenUsersPresent_thenLinePerUser() {
+        doAnswer(invocation -> {
+            Consumer<UserDto> consumer = invocation.getArgument(0);
+            consumer.accept(UserDto.builder().id(1L).name("user").email("user@mail.ru").build());
+            consumer.accept(UserDto.builder().id(2L).name("user").email("user@mail.ru").build());
+            return null;
+        }).when(userService).exportUsers(any(Consumer.class));
+
+        String content = mockMvc.perform(get(pathUsers + "/export"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertEquals(2, content.split("\\R").length);
+    }
+
+    @SneakyThrows
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportUsersTest_whenClientDisconnected_thenStopWriting() {
+        doAnswer(invocation -> {
+            Consumer<UserDto> consumer = invocation.getArgument(0);
+            for (long id = 1; id <= 10_000; id++) {
+                consumer.accept(UserDto.builder().id(id).name("user").email("user@mail.ru").build());
+            }
+            return null;
+        }).when(userService).exportUsers(any(Consumer.class));
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        });
+        UserController userController = new UserController(userService, objectMapper, new PaginationProperties());
+
+        assertThrows(UncheckedIOException.class, () -> userController.exportUsers(response));
     }
 
     @SneakyThrows
@@ -192,4 +310,57 @@ public class UserControllerTest {
 
         verify(userService).deleteUser(userId);
     }
+
+    @SneakyThrows
+    @Test
+    void importUsersTest_whenJsonArray_thenPerRowResults() {
+        when(userService.importUsers(any())).thenReturn(List.of(UserImportResultDto.builder().index(0).id(1L)
+                .email(userDtoCorrect.getEmail()).build()));
+
+        String result = mockMvc.perform(post(pathUsers + "/batch")
+                        .content(objectMapper.writeValueAsString(List.of(userDtoCorrect)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertEquals("[{\"index\":0,\"id\":1,\"email\":\"userEmail1@mail.ru\",\"error\":null}]", result);
+    }
+
+    @SneakyThrows
+    @Test
+    @SuppressWarnings("unchecked")
+    void importUsersTest_whenNdjsonStream_thenEachLineParsed() {
+        List<String> emails = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterator<User> users = invocation.getArgument(0);
+            users.forEachRemaining(user -> emails.add(user.getEmail()));
+            return List.of();
+        }).when(userService).importUsers(any(Iterator.class));
+
+        mockMvc.perform(post(pathUsers + "/batch")
+                        .content("{\"name\":\"first\",\"email\":\"first@mail.ru\"}\n"
+                                + "{\"name\":\"second\",\"email\":\"second@mail.ru\"}\n")
+                        .contentType("application/x-ndjson"))
+                .andExpect(status().isOk());
+
+        assertEquals(List.of("first@mail.ru", "second@mail.ru"), emails);
+    }
+
+    @SneakyThrows
+    @Test
+    @SuppressWarnings("unchecked")
+    void importUsersTest_whenNdjsonLineMalformed_thenBadRequest() {
+        doAnswer(invocation -> {
+            Iterator<User> users = invocation.getArgument(0);
+            users.forEachRemaining(user -> { });
+            return List.of();
+        }).when(userService).importUsers(any(Iterator.class));
+
+        mockMvc.perform(post(pathUsers + "/batch")
+                        .content("{\"name\":\"first\",\"email\":\"first@mail.ru\"}\n{\"name\":")
+                        .contentType("application/x-ndjson"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,50 @@
+package ru.practicum.shareit.user.repository;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import ru.practicum.shareit.user.User;
+import ru.practicum.shareit.user.UserRepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:shareit-pg;MODE=PostgreSQL;" +
+        "DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserRepositoryPostgresModeTest {
+    @Autowired
+    UserRepository userRepository;
+
+    @BeforeEach
+    void beforeEach() {
+        userRepository.save(User.builder().name("userName1").email("userEmail1@mail.ru").build());
+    }
+
+    @AfterEach
+    void afterEach() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void insertIfAbsentTest_whenEmailFree_thenInserted() {
+        long userId = userRepository.nextUserId();
+
+        assertEquals(1, userRepository.insertIfAbsent(userId, "userName2", "userEmail2@mail.ru", "useremail2@mail.ru"));
+        assertEquals("userEmail2@mail.ru", userRepository.findFreshSnapshotById(userId).get().getEmail());
+    }
+
+    @Test
+    void insertIfAbsentTest_whenEmailTaken_thenNothingInserted() {
+        long userId = userRepository.nextUserId();
+
+        assertEquals(0, userRepository.insertIfAbsent(userId, "userName2", "USEREMAIL1@mail.ru", "useremail1@mail.ru"));
+        assertEquals("userEmail1@mail.ru", userRepository.findAll().get(0).getEmail());
+        assertEquals(1, userRepository.count());
+    }
+}
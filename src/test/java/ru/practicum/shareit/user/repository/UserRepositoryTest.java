@@ -8,10 +8,18 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
 
+import java.util.List;
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DataJpaTest
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -35,4 +43,36 @@ public class UserRepositoryTest {
         assertEquals(userRepository.findAll().size(), 2);
     }
 
+    @Test
+    void existsByEmailNormalizedTest_whenSavedWithMixedCase_thenFoundLowerCased() {
+        assertTrue(userRepository.existsByEmailNormalized("useremail1@mail.ru"));
+        assertFalse(userRepository.existsByEmailNormalized("userEmail1@mail.ru"));
+        assertEquals(List.of("useremail2@mail.ru"), userRepository.findEmailsAfter("useremail1@mail.ru", PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void saveUserTest_whenEmailDiffersOnlyInCase_thenThrowException() {
+        assertThrows(DataIntegrityViolationException.class, () -> userRepository.saveAndFlush(User.builder()
+                .name("userName3").email("USEREMAIL1@mail.ru").build()));
+    }
+
+    @Test
+    void nextUserIdTest_whenCalledAfterSave_thenContinuesPooledBlock() {
+        User user = userRepository.save(User.builder().name("userName3").email("userEmail3@mail.ru").build());
+
+        long firstId = userRepository.nextUserId();
+        long secondId = userRepository.nextUserId();
+
+        assertEquals(user.getId() + 1, firstId);
+        assertEquals(firstId + 1, secondId);
+    }
+
+    @Test
+    void lockUserTest_whenUserExists_thenReturnId() {
+        User user = userRepository.findAll().get(0);
+
+        assertEquals(Optional.of(user.getId()), userRepository.lockUser(user.getId()));
+        assertEquals(Optional.empty(), userRepository.lockUser(-1L));
+    }
+
 }
@@ -0,0 +1,96 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.user.UserEmailFilter;
+import ru.practicum.shareit.user.UserProperties;
+import ru.practicum.shareit.user.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserEmailFilterTest {
+    @Mock
+    UserRepository userRepository;
+    final UserProperties userProperties = new UserProperties();
+    UserEmailFilter userEmailFilter;
+
+    @BeforeEach
+    void beforeEach() {
+        userProperties.setExpectedEmails(1000);
+        userEmailFilter = new UserEmailFilter(userRepository, userProperties);
+        when(userRepository.findEmailsAfter(eq(""), any())).thenReturn(List.of("first@mail.ru", "second@mail.ru"));
+    }
+
+    @Test
+    void mightContainTest_whenNotLoaded_thenTrueWithoutQuery() {
+        assertTrue(userEmailFilter.mightContain("third@mail.ru"));
+        verify(userRepository, never()).findEmailsAfter(any(), any());
+    }
+
+    @Test
+    void mightContainTest_whenLoadFailed_thenTrue() {
+        when(userRepository.findEmailsAfter(eq(""), any())).thenThrow(new IllegalStateException("database is down"));
+
+        userEmailFilter.load();
+
+        assertTrue(userEmailFilter.mightContain("third@mail.ru"));
+    }
+
+    @Test
+    void mightContainTest_whenLoadedEmail_thenTrue() {
+        userEmailFilter.load();
+        userEmailFilter.load();
+
+        assertTrue(userEmailFilter.mightContain("first@mail.ru"));
+        assertTrue(userEmailFilter.mightContain("second@mail.ru"));
+        verify(userRepository, times(1)).findEmailsAfter("", PageRequest.of(0, 1000));
+    }
+
+    @Test
+    void mightContainTest_whenPutAfterLoad_thenTrue() {
+        userEmailFilter.load();
+        assertFalse(userEmailFilter.mightContain("third@mail.ru"));
+
+        userEmailFilter.put("third@mail.ru");
+
+        assertTrue(userEmailFilter.mightContain("third@mail.ru"));
+    }
+
+    @Test
+    void mightContainTest_whenUnknownEmails_thenFalsePositivesBelowRate() {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            emails.add("known" + i + "@mail.ru");
+        }
+        userEmailFilter.load();
+        emails.forEach(userEmailFilter::put);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (userEmailFilter.mightContain("unknown" + i + "@mail.ru")) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(emails.stream().allMatch(userEmailFilter::mightContain));
+        assertTrue(falsePositives < 300);
+    }
+}
@@ -6,26 +6,49 @@ import lombok.experimental.FieldDefaults;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.service.ItemBookingSummaryService;
+import ru.practicum.shareit.common.EntityResolver;
 import ru.practicum.shareit.exception.IsAlreadyExistsException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.pagination.IdCursor;
+import ru.practicum.shareit.pagination.OffsetPageRequest;
+import ru.practicum.shareit.pagination.PaginationProperties;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.UserEmailFilter;
+import ru.practicum.shareit.user.UserProperties;
 import ru.practicum.shareit.user.UserServiceImpl;
 import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserImportResultDto;
 import ru.practicum.shareit.user.mapper.UserDtoMapper;
 import ru.practicum.shareit.user.User;
 import ru.practicum.shareit.user.UserRepository;
+import ru.practicum.shareit.TestHelper;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,14 +57,41 @@ import static org.mockito.Mockito.*;
 public class UserServiceTest {
     @Mock
     UserRepository userRepository;
-    @InjectMocks
+    @Mock
+    ItemRepository itemRepository;
+    @Mock
+    ItemRequestRepository itemRequestRepository;
+    @Mock
+    BookingRepository bookingRepository;
+    @Mock
+    ItemBookingSummaryService itemBookingSummaryService;
+    @Mock
+    EntityManager entityManager;
+    @Mock
+    UserEmailFilter userEmailFilter;
+    @Mock
+    TransactionTemplate transactionTemplate;
+    @Spy
+    PaginationProperties paginationProperties = new PaginationProperties();
+    final UserProperties userProperties = new UserProperties();
     UserServiceImpl userServiceImpl;
     User user;
     User updatedUser;
 
     @BeforeEach
+    @SuppressWarnings("unchecked")
     void beforeEach() {
+        userServiceImpl = new UserServiceImpl(userRepository, itemRepository, paginationProperties,
+                new EntityResolver(userRepository, itemRepository, itemRequestRepository, bookingRepository),
+                itemBookingSummaryService, entityManager, userEmailFilter, userProperties, transactionTemplate);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
         when(userRepository.save(any())).thenAnswer(input -> input.getArguments()[0]);
+        when(userRepository.saveAndFlush(any())).thenAnswer(input -> input.getArguments()[0]);
         user = User.builder().id(0L).name("userName1").email("userEmail1@mail.ru").build();
         updatedUser = User.builder().id(0L).name("updatedUserName1").email("updatedUserEmail1@mail.ru").build();
     }
@@ -49,21 +99,64 @@ public class UserServiceTest {
     @Test
     void addUserTest_whenUserCorrect_thenSave() {
         long userId = 0L;
-        when(userRepository.save(user)).thenReturn(user);
+        when(userRepository.saveAndFlush(user)).thenReturn(user);
         UserDto userDto = userServiceImpl.addUser(user);
 
-        verify(userRepository).save(user);
+        verify(userRepository).saveAndFlush(user);
+        verify(userEmailFilter).put("useremail1@mail.ru");
         assertEquals(UserDtoMapper.userToUserDto(user), userDto);
     }
 
+    @Test
+    void addUserTest_whenEmailDefinitelyNew_thenNoExistenceProbe() {
+        when(userEmailFilter.mightContain(any())).thenReturn(false);
+
+        userServiceImpl.addUser(user);
+
+        verify(userRepository, never()).existsByEmailNormalized(any());
+        verify(userRepository).saveAndFlush(user);
+    }
+
+    @Test
+    void addUserTest_whenEmailExistsInOtherCase_thenThrowWithoutInsert() {
+        user.setEmail("UserEmail1@Mail.RU");
+        when(userEmailFilter.mightContain("useremail1@mail.ru")).thenReturn(true);
+        when(userRepository.existsByEmailNormalized("useremail1@mail.ru")).thenReturn(true);
+
+        assertThrows(IsAlreadyExistsException.class, () -> userServiceImpl.addUser(user));
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
     @Test
     void addUserTest_whenDuplicateEmailUser_thenThrowException() {
-        when(userRepository.save(any()))
-                .thenThrow(new IsAlreadyExistsException("A user with the same email already exists"));
+        when(userRepository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("A user with the same email already exists"));
 
         assertThrows(IsAlreadyExistsException.class,
                 () -> userServiceImpl.addUser(user));
-        verify(userRepository).save(user);
+        verify(userRepository).saveAndFlush(user);
+        verify(userEmailFilter, never()).put(any());
+    }
+
+    @Test
+    void addUserTest_whenInsertOnConflict_thenInsertWithSequenceId() {
+        userProperties.setInsertOnConflict(true);
+        when(userRepository.nextUserId()).thenReturn(51L);
+        when(userRepository.insertIfAbsent(51L, user.getName(), user.getEmail(), "useremail1@mail.ru")).thenReturn(1);
+
+        UserDto userDto = userServiceImpl.addUser(user);
+
+        assertEquals(51L, userDto.getId());
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void addUserTest_whenInsertOnConflictSkipsRow_thenThrowException() {
+        userProperties.setInsertOnConflict(true);
+        when(userRepository.nextUserId()).thenReturn(51L);
+        when(userRepository.insertIfAbsent(anyLong(), any(), any(), any())).thenReturn(0);
+
+        assertThrows(IsAlreadyExistsException.class, () -> userServiceImpl.addUser(user));
     }
 
     @Test
@@ -148,9 +241,65 @@ public class UserServiceTest {
     void updateItemTest_whenCorrect_thenUpdate() {
         long userId = 0L;
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(user)));
 
         userServiceImpl.updateUser(user, userId);
-        verify(userRepository).save(any());
+        verify(userRepository).saveAndFlush(any());
+    }
+
+    @Test
+    void updateUserTest_whenStoredUserVersioned_thenSaveWithStoredVersion() {
+        user.setVersion(4L);
+        when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(user)));
+
+        userServiceImpl.updateUser(User.builder().name(updatedUser.getName()).build(), user.getId());
+
+        verify(userRepository).saveAndFlush(argThat(savedUser -> savedUser.getVersion() == 4L));
+    }
+
+    @Test
+    void updateUserTest_whenNewEmailTaken_thenThrowException() {
+        when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(user)));
+        when(userEmailFilter.mightContain(any())).thenReturn(true);
+        when(userRepository.existsByEmailNormalized("updateduseremail1@mail.ru")).thenReturn(true);
+
+        assertThrows(IsAlreadyExistsException.class,
+                () -> userServiceImpl.updateUser(User.builder().email(updatedUser.getEmail()).build(), user.getId()));
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void updateUserTest_whenEmailConstraintViolated_thenThrowAlreadyExists() {
+        when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(userRepository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThrows(IsAlreadyExistsException.class,
+                () -> userServiceImpl.updateUser(User.builder().email(updatedUser.getEmail()).build(), user.getId()));
+    }
+
+    @Test
+    void updateUserTest_whenConcurrentlyUpdated_thenOptimisticLockPassesThrough() {
+        when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(userRepository.saveAndFlush(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, user.getId()));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> userServiceImpl.updateUser(User.builder().name(updatedUser.getName()).build(), user.getId()));
+        verify(userEmailFilter, never()).put(any());
+    }
+
+    @Test
+    void updateUserTest_whenEmailCaseChangedOnly_thenNoExistenceProbe() {
+        when(userRepository.findById(any())).thenReturn(Optional.of(user));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(user)));
+        when(userEmailFilter.mightContain(any())).thenReturn(true);
+
+        userServiceImpl.updateUser(User.builder().email("USEREMAIL1@mail.ru").build(), user.getId());
+
+        verify(userRepository, never()).existsByEmailNormalized(any());
+        verify(userRepository).saveAndFlush(any());
     }
 
     @Test
@@ -160,7 +309,8 @@ public class UserServiceTest {
                 NotFoundException.class,
                 () -> {
                     when(userRepository.findById(eq(userId))).thenReturn(Optional.empty());
-                    userServiceImpl.getUserById(userId);
+                    when(userRepository.findSnapshotById(eq(userId))).thenReturn(Optional.empty());
+                    userServiceImpl.getUserById(userId, eTag -> false);
                 }
         );
     }
@@ -168,9 +318,9 @@ public class UserServiceTest {
     @Test
     void getAllUsersTest() {
         List<User> users = List.of(User.builder().name("userName1").email("userEmail1@mail.ru").build());
-        when(userRepository.findAll()).thenReturn(users);
-        List<UserDto> usersDto = userServiceImpl.getAllUsers();
-        verify(userRepository).findAll();
+        when(userRepository.findUsersAfter(anyLong(), any())).thenReturn(users);
+        List<UserDto> usersDto = userServiceImpl.getAllUsers(null, null);
+        verify(userRepository).findUsersAfter(0L, OffsetPageRequest.of(0, paginationProperties.getMaxPageSize()));
         assertEquals(1, usersDto.size());
         assertEquals(UserDtoMapper.userToUserDto(users.get(0)), usersDto.get(0));
     }
@@ -179,26 +329,116 @@ public class UserServiceTest {
     void getUserByIdTest_whenUserPresent_thenUser() {
         long userId = 0L;
         when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.findFreshSnapshotById(userId)).thenReturn(Optional.of(TestHelper.snapshotOf(user)));
         UserDto userDto = UserDtoMapper.userToUserDto(user);
-        UserDto userDtoFromDb = userServiceImpl.getUserById(userId);
+        UserDto userDtoFromDb = userServiceImpl.getUserById(userId, eTag -> false);
 
-        verify(userRepository, times(2)).findById(userId);
+        verify(userRepository).findFreshSnapshotById(userId);
+        verify(userRepository, never()).findSnapshotById(anyLong());
         assertEquals(userDto, userDtoFromDb);
     }
 
+    @Test
+    void getUserByIdTest_whenNotModified_thenNull() {
+        user.setVersion(2L);
+        when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+        when(userRepository.findFreshSnapshotById(user.getId())).thenReturn(Optional.of(TestHelper.snapshotOf(user)));
+        List<String> eTags = new ArrayList<>();
+
+        UserDto result = userServiceImpl.getUserById(user.getId(), eTag -> eTags.add(eTag));
+
+        assertNull(result);
+        assertEquals(List.of("0-2"), eTags);
+    }
+
     @Test
     void getUserByIdTest_whenUserNotFound_thenThrowException() {
         long userId = 0L;
         when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.findSnapshotById(userId)).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,
-                () -> userServiceImpl.getUserById(userId));
+                () -> userServiceImpl.getUserById(userId, eTag -> false));
     }
 
     @Test
     void deleteUserById_deletes() {
         when(userRepository.findById(anyLong())).thenReturn(Optional.of(user));
+        when(userRepository.findSnapshotById(anyLong())).thenReturn(Optional.of(TestHelper.snapshotOf(user)));
         userServiceImpl.deleteUser(0L);
+        verify(itemRepository).decrementCommentCountsForAuthor(0L);
         verify(userRepository).deleteById(0L);
     }
+
+    @Test
+    void getAllUsersTest_whenCursorAndSizeOverLimit_thenSeekWithMaxPageSize() {
+        paginationProperties.setMaxPageSize(2);
+
+        userServiceImpl.getAllUsers(IdCursor.of(5L).encode(), 1000);
+
+        verify(userRepository).findUsersAfter(5L, OffsetPageRequest.of(0, 2));
+    }
+
+    @Test
+    void getAllUsersTest_whenSizeIllegal_thenThrowException() {
+        assertThrows(ValidationException.class, () -> userServiceImpl.getAllUsers(null, 0));
+    }
+
+    @Test
+    void exportUsersTest_whenUsersPresent_thenPassEachToConsumer() {
+        when(userRepository.streamAllUsers()).thenReturn(Stream.of(user, updatedUser));
+        List<UserDto> exported = new ArrayList<>();
+
+        userServiceImpl.exportUsers(exported::add);
+
+        assertEquals(List.of(UserDtoMapper.userToUserDto(user), UserDtoMapper.userToUserDto(updatedUser)), exported);
+    }
+
+    @Test
+    void importUsersTest_whenInvalidDuplicateAndExisting_thenPerRowOutcomes() {
+        User invalidUser = User.builder().name("").email("invalid@mail.ru").build();
+        User duplicateUser = User.builder().name("duplicate").email(user.getEmail().toUpperCase()).build();
+        User existingUser = User.builder().name("existing").email("Existing@mail.ru").build();
+        when(userEmailFilter.mightContain(any())).thenReturn(true);
+        when(userRepository.findExistingEmails(any())).thenReturn(List.of("existing@mail.ru"));
+        when(userRepository.saveAllAndFlush(any())).thenAnswer(input -> {
+            List<User> saved = input.getArgument(0);
+            saved.forEach(savedUser -> savedUser.setId(7L));
+            return saved;
+        });
+
+        List<UserImportResultDto> results = userServiceImpl
+                .importUsers(List.of(user, invalidUser, duplicateUser, existingUser).iterator());
+
+        assertEquals(4, results.size());
+        assertEquals(7L, results.get(0).getId());
+        assertNull(results.get(0).getError());
+        assertEquals("Поля заполнены неверно", results.get(1).getError());
+        assertEquals("Email повторяется в загрузке", results.get(2).getError());
+        assertEquals("Пользователь с таким email уже существует", results.get(3).getError());
+        assertNull(results.get(3).getId());
+        verify(userRepository).saveAllAndFlush(List.of(user));
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    void importUsersTest_whenConcurrentDuplicateInChunk_thenRetryRowByRow() {
+        User concurrentUser = User.builder().name("concurrent").email("concurrent@mail.ru").build();
+        when(userRepository.saveAllAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(userRepository.saveAndFlush(user)).thenAnswer(input -> {
+            user.setId(7L);
+            return user;
+        });
+        when(userRepository.saveAndFlush(concurrentUser)).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        List<UserImportResultDto> results = userServiceImpl.importUsers(List.of(user, concurrentUser).iterator());
+
+        assertEquals(7L, results.get(0).getId());
+        assertNull(results.get(0).getError());
+        assertNull(results.get(1).getId());
+        assertEquals("Пользователь с таким email уже существует", results.get(1).getError());
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        verify(userEmailFilter).put("useremail1@mail.ru");
+        verify(userEmailFilter, never()).put("concurrent@mail.ru");
+    }
 }
@@ -1,8 +1,3 @@
-DROP TABLE IF EXISTS comments;
-DROP TABLE IF EXISTS bookings;
-DROP TABLE IF EXISTS items;
-DROP TABLE IF EXISTS users;
-
 CREATE TABLE IF NOT EXISTS users (
                                      id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
                                      name VARCHAR(100) NOT NULL,
@@ -32,4 +27,4 @@ CREATE TABLE IF NOT EXISTS comments (
     author_id INTEGER REFERENCES users(id) ON DELETE CASCADE,
     create_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
     text VARCHAR(500) NOT NULL
-    );
\ No newline at end of file
+    );